@@ -1,10 +1,50 @@
 package com.alipay.oceanbase;
 
+import static com.alipay.oceanbase.util.OBDataSourceConstants.ASYNC_QUEUE_SIZE;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.ASYNC_QUEUE_SIZE_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.ASYNC_THREADS;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.ASYNC_THREADS_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BATCH_CHUNK_ROWS;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BATCH_CHUNK_ROWS_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BATCH_PARALLELISM;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BATCH_PARALLELISM_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BATCH_REWRITE_BYTES;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BATCH_REWRITE_BYTES_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BATCH_REWRITE_ROWS;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BATCH_REWRITE_ROWS_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BATCH_THREADS;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BATCH_THREADS_KEY;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.CLUSTER_ADDRESS;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.DEFAULT_MYSQL_DRIVER_CLASS;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.DS_CONFIG;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEALTH_CHECK_INTERVAL;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEALTH_CHECK_INTERVAL_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEDGE_MIN_DELAY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEDGE_MIN_DELAY_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEDGE_PERCENT;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEDGE_PERCENTILE;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEDGE_PERCENTILE_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEDGE_PERCENT_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEDGE_THREADS;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEDGE_THREADS_KEY;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.PASSWORD;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.PERIOD;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.QUERY_COALESCING_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.REPLICA_LAG_INTERVAL;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.REPLICA_LAG_INTERVAL_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.REPLICA_LAG_SQL_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.RESULT_CACHE_MAX_ROWS;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.RESULT_CACHE_MAX_ROWS_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.RESULT_CACHE_SIZE;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.RESULT_CACHE_SIZE_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.RESULT_CACHE_TTL;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.RESULT_CACHE_TTL_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SESSION_CONSISTENCY_WINDOW;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SESSION_CONSISTENCY_WINDOW_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SESSION_TOKEN_LIMIT;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SESSION_TOKEN_LIMIT_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SQL_CACHE_SIZE;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SQL_CACHE_SIZE_KEY;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.USER_NAME;
 
 import java.io.PrintWriter;
@@ -25,15 +65,30 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
 import com.alipay.oceanbase.config.OBDataSourceConfig;
+import com.alipay.oceanbase.group.AsyncQueryExecutor;
 import com.alipay.oceanbase.group.EquityMSManager;
 import com.alipay.oceanbase.group.MergeServerSelector;
+import com.alipay.oceanbase.group.ParallelBatchExecutor;
+import com.alipay.oceanbase.group.RequestHedger;
+import com.alipay.oceanbase.jdbc.BatchRewriter;
+import com.alipay.oceanbase.jdbc.QueryCallback;
+import com.alipay.oceanbase.jdbc.QueryCoalescer;
+import com.alipay.oceanbase.jdbc.QueryFuture;
+import com.alipay.oceanbase.jdbc.ResultCache;
+import com.alipay.oceanbase.jdbc.RowMapper;
 import com.alipay.oceanbase.task.DSStatusPrintOutTask;
+import com.alipay.oceanbase.task.HealthCheckTask;
+import com.alipay.oceanbase.task.ReplicaLagTask;
 import com.alipay.oceanbase.task.UpdateConfigTask;
 import com.alipay.oceanbase.util.ConfigLoader;
 import com.alipay.oceanbase.util.Helper;
 import com.alipay.oceanbase.util.ObUtil;
+import com.alipay.oceanbase.util.SessionConsistency;
 import com.alipay.oceanbase.util.ThreadLocalRandom;
 import com.alipay.oceanbase.util.log.CommonLoggerComponent;
+import com.alipay.oceanbase.util.parse.SqlClassification;
+import com.alipay.oceanbase.util.parse.SqlClassificationCache;
+import com.alipay.oceanbase.util.parse.SqlHintType;
 import com.alipay.oceanbase.util.thread.CustomerThreadFactory;
 
 /**
@@ -56,10 +111,19 @@ public class OBGroupDataSource implements DataSource {
     private String                               configURL            = null;
     private int                                  period               = -1;
     protected int                                isStrongConsistency  = -1;
+    private HealthCheckTask                      healthCheckTask      = null;
+    private SqlClassificationCache               sqlCache             = new SqlClassificationCache(0);
+    private SessionConsistency                   sessionConsistency   = new SessionConsistency(0);
+    private ResultCache                          resultCache          = new ResultCache(0, 0, 0);
+    private QueryCoalescer                       queryCoalescer       = new QueryCoalescer(false);
+    private RequestHedger                        hedger               = RequestHedger.NONE;
+    private BatchRewriter                        batchRewriter        = new BatchRewriter(0, 0);
+    private ParallelBatchExecutor                parallelBatch        = ParallelBatchExecutor.NONE;
+    private AsyncQueryExecutor                   asyncQuery           = AsyncQueryExecutor.NONE;
 
     protected final ScheduledExecutorService     scheduler            = Executors
                                                                           .newScheduledThreadPool(
-                                                                              2,
+                                                                              4,
                                                                               new CustomerThreadFactory());
 
     /**
@@ -108,10 +172,37 @@ public class OBGroupDataSource implements DataSource {
             config
                 .set(new OBDataSourceConfig(userName, password, clusterAddress, this.configParams));
             isStrongConsistency = ObUtil.isConsistency(userName, password, clusterAddress);
+            sqlCache = new SqlClassificationCache(Helper.getInt(this.configParams,
+                SQL_CACHE_SIZE_KEY, SQL_CACHE_SIZE));
+            sessionConsistency = new SessionConsistency(Helper.getInt(this.configParams,
+                SESSION_CONSISTENCY_WINDOW_KEY, SESSION_CONSISTENCY_WINDOW), Helper.getInt(
+                this.configParams, SESSION_TOKEN_LIMIT_KEY, SESSION_TOKEN_LIMIT));
+            resultCache = new ResultCache(Helper.getInt(this.configParams, RESULT_CACHE_TTL_KEY,
+                RESULT_CACHE_TTL), Helper.getInt(this.configParams, RESULT_CACHE_SIZE_KEY,
+                RESULT_CACHE_SIZE), Helper.getInt(this.configParams, RESULT_CACHE_MAX_ROWS_KEY,
+                RESULT_CACHE_MAX_ROWS));
+            queryCoalescer = new QueryCoalescer(Boolean.parseBoolean(this.configParams
+                .get(QUERY_COALESCING_KEY)));
+            hedger = new RequestHedger(Helper.getInt(this.configParams, HEDGE_PERCENT_KEY,
+                HEDGE_PERCENT), Helper.getInt(this.configParams, HEDGE_PERCENTILE_KEY,
+                HEDGE_PERCENTILE), Helper.getInt(this.configParams, HEDGE_MIN_DELAY_KEY,
+                HEDGE_MIN_DELAY), Helper.getInt(this.configParams, HEDGE_THREADS_KEY, HEDGE_THREADS));
+            batchRewriter = new BatchRewriter(Helper.getInt(this.configParams,
+                BATCH_REWRITE_ROWS_KEY, BATCH_REWRITE_ROWS), Helper.getInt(this.configParams,
+                BATCH_REWRITE_BYTES_KEY, BATCH_REWRITE_BYTES));
+            parallelBatch = new ParallelBatchExecutor(Helper.getInt(this.configParams,
+                BATCH_PARALLELISM_KEY, BATCH_PARALLELISM), Helper.getInt(this.configParams,
+                BATCH_CHUNK_ROWS_KEY, BATCH_CHUNK_ROWS), Helper.getInt(this.configParams,
+                BATCH_THREADS_KEY, BATCH_THREADS));
+            asyncQuery = new AsyncQueryExecutor(Helper.getInt(this.configParams,
+                ASYNC_THREADS_KEY, ASYNC_THREADS), Helper.getInt(this.configParams,
+                ASYNC_QUEUE_SIZE_KEY, ASYNC_QUEUE_SIZE));
 
             UpdateConfigTask task = new UpdateConfigTask(userName, password, configURL,
                 this.config.get(), this.configParams, this);
-            mergeServerSelectory.set(new EquityMSManager(config.get(), task));
+            EquityMSManager equityMSManager = new EquityMSManager(config.get(), task);
+            equityMSManager.setHedger(hedger);
+            mergeServerSelectory.set(equityMSManager);
 
             String val = this.configParams.get(PERIOD);
             if (StringUtils.isNotBlank(val)) {
@@ -128,6 +219,32 @@ public class OBGroupDataSource implements DataSource {
             scheduler.scheduleAtFixedRate(new DSStatusPrintOutTask(this), 0, 30, TimeUnit.SECONDS);
             if (logger.isInfoEnabled()) {
                 logger.info("datasource status print task scheduling period:" + 30 + "s");
+            }
+
+            int healthCheckInterval = Helper.getInt(this.configParams, HEALTH_CHECK_INTERVAL_KEY,
+                HEALTH_CHECK_INTERVAL);
+            if (healthCheckInterval > 0) {// 小于等于0时关闭主动健康检查
+                healthCheckTask = new HealthCheckTask(this, this.configParams);
+                scheduler.scheduleWithFixedDelay(healthCheckTask, healthCheckInterval,
+                    healthCheckInterval, TimeUnit.MILLISECONDS);
+                if (logger.isInfoEnabled()) {
+                    logger.info("health check task scheduling interval:" + healthCheckInterval
+                                + "ms");
+                }
+            }
+
+            String replicaLagSql = this.configParams.get(REPLICA_LAG_SQL_KEY);
+            int replicaLagInterval = Helper.getInt(this.configParams, REPLICA_LAG_INTERVAL_KEY,
+                REPLICA_LAG_INTERVAL);
+            if (StringUtils.isNotBlank(replicaLagSql) && replicaLagInterval > 0) {// 没有配置sql时不采样复制延迟
+                scheduler.scheduleWithFixedDelay(new ReplicaLagTask(this, replicaLagSql),
+                    replicaLagInterval, replicaLagInterval, TimeUnit.MILLISECONDS);
+                if (logger.isInfoEnabled()) {
+                    logger.info("replica lag task scheduling interval:" + replicaLagInterval
+                                + "ms");
+                }
+            }
+            if (logger.isInfoEnabled()) {
                 logger.info("datasource init end ...");
             }
         }
@@ -142,7 +259,19 @@ public class OBGroupDataSource implements DataSource {
             this.inited.set(false);
 
             this.config.get().destroyAllDruidDS();
+            if (this.healthCheckTask != null) {// 在调度线程中关闭探测连接
+                final HealthCheckTask task = this.healthCheckTask;
+                this.scheduler.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        task.destroy();
+                    }
+                });
+            }
             this.scheduler.shutdown();
+            this.hedger.destroy();
+            this.parallelBatch.destroy();
+            this.asyncQuery.destroy();
         }
     }
 
@@ -156,6 +285,38 @@ public class OBGroupDataSource implements DataSource {
     }
 
     // /////////////////////// getter and setter ///////////////////////
+    public SqlClassificationCache getSqlCache() {
+        return sqlCache;
+    }
+
+    public SessionConsistency getSessionConsistency() {
+        return sessionConsistency;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    public QueryCoalescer getQueryCoalescer() {
+        return queryCoalescer;
+    }
+
+    public RequestHedger getHedger() {
+        return hedger;
+    }
+
+    public BatchRewriter getBatchRewriter() {
+        return batchRewriter;
+    }
+
+    public ParallelBatchExecutor getParallelBatch() {
+        return parallelBatch;
+    }
+
+    public AsyncQueryExecutor getAsyncQuery() {
+        return asyncQuery;
+    }
+
     public void setConfigURL(String url) {
         if (StringUtils.isNotBlank(url)) {
             this.configURL = url;
@@ -221,6 +382,72 @@ public class OBGroupDataSource implements DataSource {
         return new TGroupConnection(this, username, password);
     }
 
+    /**
+     * 
+     * @see #executeQueryAsync(String, Object[], RowMapper, QueryCallback)
+     */
+    public <T> QueryFuture<T> executeQueryAsync(String sql, Object[] params,
+                                                RowMapper<T> rowMapper) throws SQLException {
+        return executeQueryAsync(sql, params, rowMapper, null);
+    }
+
+    /**
+     * 异步执行查询, 不占用调用方线程。<br/>
+     * 路由与自动提交连接上的查询相同: 按sql中的hint和当前线程的OBRouting上下文选择一致性和集群,
+     * session token在读己之写的窗口内时按强一致读处理; 不经过结果缓存和查询合并。
+     * 
+     * @param sql 只支持select
+     * @param params 按顺序以setObject设置, 可以为null
+     * @param rowMapper
+     * @param callback 完成时回调, 可以为null
+     * @return
+     * @throws SQLException 数据源已关闭、没有开启异步查询或者不是select
+     */
+    public <T> QueryFuture<T> executeQueryAsync(String sql, Object[] params,
+                                                RowMapper<T> rowMapper, QueryCallback<T> callback)
+                                                                                                   throws SQLException {
+        this.checkClose();
+        SqlClassification sc = sqlCache.classify(sql);
+        if (!sc.isSelect()) {
+            throw new SQLException("executeQueryAsync only supports select, sql=" + sql);
+        }
+
+        return asyncQuery.submit(getDBSelector(), isConsistentRead(sc, isSessionRecentWrite()),
+            OBRouting.getClusterHint(sc, true), OBRouting.getRouteHint(sc.getRouteHint()), sql,
+            params, rowMapper, callback);
+    }
+
+    /**
+     * 读请求的一致性, 与自动提交连接上的查询相同
+     * 
+     * @param sc
+     * @param readYourWrites 连接或session token在读己之写的窗口内
+     * @return 是否按强一致读处理
+     */
+    boolean isConsistentRead(SqlClassification sc, boolean readYourWrites) {
+        boolean isConsistency = true;// default: consistency=true, read_consistency_level>=4
+        if (!readYourWrites) {
+            SqlHintType hint = OBRouting.getConsistencyHint(sc);
+            if (hint == SqlHintType.CONSISTENCY_NONE && isStrongConsistency < 4) {
+                isConsistency = false;
+            } else if (hint == SqlHintType.CONSISTENCY_WEAK) {
+                isConsistency = false;
+            }
+        }
+        return isConsistency;
+    }
+
+    /**
+     * 
+     * 
+     * @return 当前线程的session token在读己之写的窗口内
+     */
+    boolean isSessionRecentWrite() {
+        String token = OBRouting.getSessionToken();
+        return token != null && sessionConsistency.isEnabled()
+               && sessionConsistency.isRecentWrite(token);
+    }
+
     private PrintWriter out = null;
 
     /**
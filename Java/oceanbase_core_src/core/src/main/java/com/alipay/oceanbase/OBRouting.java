@@ -0,0 +1,288 @@
+package com.alipay.oceanbase;
+
+import java.io.Closeable;
+
+import com.alipay.oceanbase.util.parse.RouteHint;
+import com.alipay.oceanbase.util.parse.SqlClassification;
+import com.alipay.oceanbase.util.parse.SqlHintType;
+
+/**
+ * 线程私有的路由上下文, 不修改sql即可指定一致性、集群和路由hint, 与sql中的hint含义相同。<br/>
+ * 1. 上下文中设置的项优先于sql中的hint, 未设置的项仍以sql中的hint为准;<br/>
+ * 2. 集群(master/slave)只对走读连接的查询生效, 写操作总是发往主集群;<br/>
+ * 3. session token标识跨连接的会话, 用于读己之写的会话一致性;<br/>
+ * 4. 上下文可以嵌套, 内层继承外层的设置, close后恢复外层, 必须在同一个线程中close:
+ * <pre>
+ * OBRouting.Scope scope = OBRouting.weak().slave().deadline(50);
+ * try {
+ *     ...
+ * } finally {
+ *     scope.close();
+ * }
+ * </pre>
+ */
+public final class OBRouting {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<Scope>();
+
+    /**
+     * 新建一个继承当前设置的上下文
+     *
+     * @return
+     */
+    public static Scope begin() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * 相当于read_consistency(weak)
+     */
+    public static Scope weak() {
+        return begin().weak();
+    }
+
+    /**
+     * 相当于read_consistency(strong)
+     */
+    public static Scope strong() {
+        return begin().strong();
+    }
+
+    /**
+     * 相当于read_cluster(master)
+     */
+    public static Scope master() {
+        return begin().master();
+    }
+
+    /**
+     * 相当于read_cluster(slave)
+     */
+    public static Scope slave() {
+        return begin().slave();
+    }
+
+    /**
+     *
+     *
+     * @return 当前线程没有上下文时返回null
+     */
+    public static Scope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 
+     * 
+     * @return 当前上下文的session token, 没有时返回null
+     */
+    static String getSessionToken() {
+        Scope scope = CURRENT.get();
+        return scope == null ? null : scope.session;
+    }
+
+    /**
+     * 一致性hint, 上下文中未设置时读取sql中的hint
+     *
+     * @param sc
+     * @return
+     */
+    static SqlHintType getConsistencyHint(SqlClassification sc) {
+        Scope scope = CURRENT.get();
+        if (scope != null && scope.consistency != SqlHintType.CONSISTENCY_NONE) {
+            return scope.consistency;
+        }
+        return sc.getConsistencyHint();
+    }
+
+    /**
+     * 集群hint, 只有读操作使用上下文中的设置
+     *
+     * @param sc
+     * @param gotoRead
+     * @return
+     */
+    static SqlHintType getClusterHint(SqlClassification sc, boolean gotoRead) {
+        Scope scope = CURRENT.get();
+        if (gotoRead && scope != null && scope.cluster != SqlHintType.CLUSTER_NONE) {
+            return scope.cluster;
+        }
+        return sc.getClusterHint();
+    }
+
+    /**
+     * 路由hint, 上下文中设置的项覆盖sql中的同名项
+     *
+     * @param hint sql中的路由hint
+     * @return
+     */
+    static RouteHint getRouteHint(RouteHint hint) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return hint;
+        }
+        return RouteHint.valueOf(scope.server != null ? scope.server : hint.getServer(),
+            scope.clusterId >= 0 ? scope.clusterId : hint.getClusterId(),
+            scope.timeout > 0 ? scope.timeout : hint.getTimeout(),
+            scope.retryTimes >= 0 ? scope.retryTimes : hint.getRetryTimes(),
+            scope.maxLag >= 0 ? scope.maxLag : hint.getMaxLag());
+    }
+
+    /**
+     * 一个路由上下文, 只能在创建它的线程中使用
+     */
+    public static final class Scope implements Closeable {
+        private final Scope previous;
+        private SqlHintType consistency = SqlHintType.CONSISTENCY_NONE;
+        private SqlHintType cluster     = SqlHintType.CLUSTER_NONE;
+        private String      server      = null;
+        private long        clusterId   = -1L;
+        private long        timeout     = -1L;
+        private int         retryTimes  = -1;
+        private long        maxLag      = -1L;
+        private String      session     = null;
+        private boolean     closed      = false;
+
+        private Scope(Scope previous) {
+            this.previous = previous;
+            if (previous != null) {
+                this.consistency = previous.consistency;
+                this.cluster = previous.cluster;
+                this.server = previous.server;
+                this.clusterId = previous.clusterId;
+                this.timeout = previous.timeout;
+                this.retryTimes = previous.retryTimes;
+                this.maxLag = previous.maxLag;
+                this.session = previous.session;
+            }
+        }
+
+        public Scope weak() {
+            this.consistency = SqlHintType.CONSISTENCY_WEAK;
+            return this;
+        }
+
+        public Scope strong() {
+            this.consistency = SqlHintType.CONSISTENCY_STRONG;
+            return this;
+        }
+
+        public Scope master() {
+            this.cluster = SqlHintType.CLUSTER_MASTER;
+            return this;
+        }
+
+        public Scope slave() {
+            this.cluster = SqlHintType.CLUSTER_SLAVE;
+            return this;
+        }
+
+        /**
+         * 相当于ob_route(ms=ip:port)
+         *
+         * @param server ip:port
+         * @return
+         */
+        public Scope server(String server) {
+            this.server = server;
+            return this;
+        }
+
+        /**
+         * 相当于ob_route(cluster=id)
+         *
+         * @param clusterId
+         * @return
+         */
+        public Scope cluster(long clusterId) {
+            this.clusterId = clusterId;
+            return this;
+        }
+
+        /**
+         * 相当于ob_timeout, 每条sql各自计时, 只限制重试, 不中断已经发出的sql
+         *
+         * @param timeout ms, 大于0
+         * @return
+         */
+        public Scope deadline(long timeout) {
+            if (timeout <= 0) {
+                throw new IllegalArgumentException("timeout must be positive, " + timeout);
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * 相当于ob_retry
+         *
+         * @param retryTimes 0表示不重试
+         * @return
+         */
+        public Scope retry(int retryTimes) {
+            if (retryTimes < 0) {
+                throw new IllegalArgumentException("retry times must be non-negative, "
+                                                   + retryTimes);
+            }
+            this.retryTimes = retryTimes;
+            return this;
+        }
+
+        /**
+         * 相当于ob_max_lag, 复制延迟超过maxLag的备集群不读
+         *
+         * @param maxLag ms, 0表示只读没有延迟的备集群
+         * @return
+         */
+        public Scope maxLag(long maxLag) {
+            if (maxLag < 0) {
+                throw new IllegalArgumentException("max lag must be non-negative, " + maxLag);
+            }
+            this.maxLag = maxLag;
+            return this;
+        }
+
+        /**
+         * 跨连接的会话标识, 同一个token的写操作之后, 一致性窗口内的读发往主集群
+         *
+         * @param token
+         * @return
+         */
+        public Scope session(String token) {
+            this.session = token;
+            return this;
+        }
+
+        /**
+         * 恢复外层的上下文, 重复调用无影响
+         *
+         * @see java.io.Closeable#close()
+         */
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+
+        /**
+         *
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return consistency + ", " + cluster + ", "
+                   + RouteHint.valueOf(server, clusterId, timeout, retryTimes, maxLag);
+        }
+    }
+
+    private OBRouting() {
+    }
+}
@@ -26,6 +26,7 @@ import org.apache.log4j.Logger;
 
 import com.alipay.oceanbase.exception.NotSupportedException;
 import com.alipay.oceanbase.factory.DataSourceHolder;
+import com.alipay.oceanbase.util.SessionConsistency;
 
 /**
  * 
@@ -57,8 +58,13 @@ public class TGroupConnection implements Connection {
 
     private static DatabaseMetaData meta            = null;
 
+    private long                    lastWriteTime   = 0L;  // 最近一次写结束的时间, System.nanoTime()
+
     Connection getBaseConnection(String sql, boolean isRead) throws SQLException {
         if (isRead && isAutoCommit) {
+            if (isReadYourWrites()) {// 读连接可能在备集群上
+                return wBaseConnection;
+            }
             return rBaseConnection;
         } else {
             if (wBaseConnection != null) {
@@ -83,6 +89,20 @@ public class TGroupConnection implements Connection {
         return conn;
     }
 
+    /**
+     * 不绑定到当前连接的物理连接, 用于对冲请求, 由调用方关闭
+     * 
+     * @param dsw
+     * @return
+     * @throws SQLException
+     */
+    Connection createDetachedConnection(DataSourceHolder dsw) throws SQLException {
+        if (username != null) {
+            return dsw.getDataSource().getConnection(username, password);
+        }
+        return dsw.getDataSource().getConnection();
+    }
+
     private void setBaseConnection(Connection baseConnection, DataSourceHolder dsw, boolean isRead) {
         if (baseConnection == null) {
             logger.warn("setBaseConnection to null !!");
@@ -130,6 +150,37 @@ public class TGroupConnection implements Connection {
         }
     }
 
+    /**
+     * 写操作结束后调用, 读己之写的一致性窗口从此时开始
+     */
+    void markWrite() {
+        SessionConsistency session = tGroupDataSource.getSessionConsistency();
+        if (session.isEnabled()) {
+            lastWriteTime = System.nanoTime();
+
+            String token = OBRouting.getSessionToken();
+            if (token != null) {
+                session.markWrite(token);
+            }
+        }
+    }
+
+    /**
+     * 
+     * 
+     * @return 本连接或当前session token在一致性窗口内有写操作, 读请求应发往主集群
+     */
+    boolean isReadYourWrites() {
+        SessionConsistency session = tGroupDataSource.getSessionConsistency();
+        if (!session.isEnabled()) {
+            return false;
+        }
+        if (session.isWithinWindow(lastWriteTime)) {
+            return true;
+        }
+        return tGroupDataSource.isSessionRecentWrite();
+    }
+
     private Set<TGroupStatement> openedStatements = new HashSet<TGroupStatement>(2);
 
     void removeOpenedStatements(Statement statement) {
@@ -287,6 +338,8 @@ public class TGroupConnection implements Connection {
                 wBaseConnection.commit();
             } catch (SQLException e) {
                 throw e;
+            } finally {
+                markWrite();
             }
         }
     }
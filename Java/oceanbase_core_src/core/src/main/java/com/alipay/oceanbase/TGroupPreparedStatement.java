@@ -21,22 +21,21 @@ import java.sql.SQLXML;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.Calendar;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
 
 import org.apache.log4j.Logger;
 
 import com.alipay.oceanbase.factory.DataSourceHolder;
 import com.alipay.oceanbase.group.MergeServerSelector.DataSourceTryer;
-import com.alipay.oceanbase.jdbc.parameter.ParameterContext;
+import com.alipay.oceanbase.group.ParallelBatchExecutor;
+import com.alipay.oceanbase.group.QueryCanceller;
+import com.alipay.oceanbase.jdbc.BatchRewriter;
+import com.alipay.oceanbase.jdbc.MaterializedResultSet;
+import com.alipay.oceanbase.jdbc.QueryKey;
+import com.alipay.oceanbase.jdbc.parameter.BatchBuffer;
+import com.alipay.oceanbase.jdbc.parameter.ParameterBuffer;
 import com.alipay.oceanbase.jdbc.parameter.ParameterMethod;
-import com.alipay.oceanbase.jdbc.parameter.Parameters;
-import com.alipay.oceanbase.util.parse.SQLHintParser;
-import com.alipay.oceanbase.util.parse.SQLParser;
+import com.alipay.oceanbase.util.parse.InsertValues;
+import com.alipay.oceanbase.util.parse.SqlClassification;
 import com.alipay.oceanbase.util.parse.SqlHintType;
 import com.alipay.oceanbase.util.parse.SqlType;
 
@@ -51,18 +50,20 @@ public class TGroupPreparedStatement extends TGroupStatement implements Prepared
     private static final Logger logger = Logger.getLogger(TGroupPreparedStatement.class);
 
     private String              sql    = null;
+    private SqlClassification   sc     = null;                                            // sql不变, 创建时解析一次
 
     public TGroupPreparedStatement(OBGroupDataSource tGroupDataSource,
                                    TGroupConnection tGroupConnection, String sql) {
         super(tGroupDataSource, tGroupConnection);
         this.sql = sql;
+        this.sc = this.classify(sql);
     }
 
-    private int                              autoGeneratedKeys = -1;
-    private int[]                            columnIndexes     = null;
-    private String[]                         columnNames       = null;
+    private int               autoGeneratedKeys = -1;
+    private int[]             columnIndexes     = null;
+    private String[]          columnNames       = null;
 
-    protected Map<Integer, ParameterContext> parameterSettings = new LinkedHashMap<Integer, ParameterContext>();
+    protected ParameterBuffer parameterSettings = new ParameterBuffer();
 
     public void clearParameters() throws SQLException {
         parameterSettings.clear();
@@ -93,8 +94,9 @@ public class TGroupPreparedStatement extends TGroupStatement implements Prepared
                 resultSetHoldability);
         }
         setBaseStatement(ps);
-        if (queryTimeout >= 0) {
-            ps.setQueryTimeout(queryTimeout);
+        int timeout = this.getEffectiveQueryTimeout();
+        if (timeout >= 0) {
+            ps.setQueryTimeout(timeout);
         }
         ps.setFetchSize(fetchSize);
         ps.setMaxRows(maxRows);
@@ -106,16 +108,22 @@ public class TGroupPreparedStatement extends TGroupStatement implements Prepared
         checkClosed();
         ensureResultSetIsEmpty();
 
-        boolean gotoRead = SqlType.SELECT.equals(SQLParser.getSqlType(sql))
-                           && tGroupConnection.getAutoCommit();
+        boolean gotoRead = sc.isSelect() && tGroupConnection.getAutoCommit();
+        this.routeHint = OBRouting.getRouteHint(sc.getRouteHint());
         Connection conn = tGroupConnection.getBaseConnection(sql, gotoRead);
 
         if (conn != null) {
             return executeQueryOnConnection(conn, sql);
         } else {
-            return this.tGroupDataSource.getDBSelector().tryExecute(executeQueryTryer,
-                this.getConsistency(sql, gotoRead), SQLHintParser.getCluster(sql), sql,
-                this.parameterSettings);
+            boolean isConsistency = this.getConsistency(sc, gotoRead);
+            SqlHintType whichCluster = OBRouting.getClusterHint(sc, gotoRead);
+            QueryKey key = !isConsistency && isResultShareable() ? QueryKey.valueOf(sql, maxRows,
+                whichCluster, routeHint, this.parameterSettings) : null;
+            ParameterBuffer parameters = this.parameterSettings;
+            if (isHedged(isConsistency)) {// 对冲请求可能在返回之后仍在执行, 使用参数的快照
+                parameters = parameters.copy();
+            }
+            return executeQueryWithCache(key, isConsistency, whichCluster, sql, parameters);
         }
     }
 
@@ -123,16 +131,22 @@ public class TGroupPreparedStatement extends TGroupStatement implements Prepared
         checkClosed();
         ensureResultSetIsEmpty();
 
-        boolean gotoRead = SqlType.SELECT.equals(SQLParser.getSqlType(this.sql))
-                           && tGroupConnection.getAutoCommit();
+        boolean gotoRead = sc.isSelect() && tGroupConnection.getAutoCommit();
+        this.routeHint = OBRouting.getRouteHint(sc.getRouteHint());
         Connection conn = tGroupConnection.getBaseConnection(sql, gotoRead);
 
-        if (conn != null) {
-            return executeOnConnection(conn);
-        } else {
-            return this.tGroupDataSource.getDBSelector().tryExecute(executeTryer,
-                this.getConsistency(this.sql, gotoRead), SQLHintParser.getCluster(this.sql),
-                this.sql, this.parameterSettings);
+        try {
+            if (conn != null) {
+                return executeOnConnection(conn);
+            } else {
+                return this.tGroupDataSource.getDBSelector().tryExecute(executeTryer,
+                    this.getConsistency(sc, gotoRead), OBRouting.getClusterHint(sc, gotoRead),
+                    routeHint, this.sql, this.parameterSettings);
+            }
+        } finally {
+            if (!sc.isSelect()) {
+                tGroupConnection.markWrite();
+            }
         }
     }
 
@@ -148,7 +162,7 @@ public class TGroupPreparedStatement extends TGroupStatement implements Prepared
 
     protected boolean executeOnConnection(Connection conn) throws SQLException {
         PreparedStatement ps = this.createPreparedStatementInternal(conn, this.sql);
-        Parameters.setParameters(ps, this.parameterSettings);
+        this.parameterSettings.setParameters(ps);
         boolean result = ps.execute();
         this.currentResultSet = ps.getResultSet();
         this.updateCount = ps.getUpdateCount();
@@ -158,32 +172,53 @@ public class TGroupPreparedStatement extends TGroupStatement implements Prepared
     @Override
     protected ResultSet executeQueryOnConnection(Connection conn, String sql) throws SQLException {
         PreparedStatement ps = this.createPreparedStatementInternal(conn, sql);
-        Parameters.setParameters(ps, parameterSettings);
+        parameterSettings.setParameters(ps);
         this.currentResultSet = ps.executeQuery();
         return this.currentResultSet;
     }
 
+    @Override
+    protected MaterializedResultSet executeQueryDetached(Connection conn,
+                                                         QueryCanceller canceller,
+                                                         Object... args) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement((String) args[0]);
+        try {
+            this.prepareDetached(ps);
+            ((ParameterBuffer) args[1]).setParameters(ps);
+            canceller.register(ps);
+            return MaterializedResultSet.materialize(ps.executeQuery(), null);
+        } finally {
+            canceller.unregister();
+            ps.close();
+        }
+    }
+
     public int executeUpdate() throws SQLException {
         checkClosed();
         ensureResultSetIsEmpty();
 
         Connection conn = tGroupConnection.getBaseConnection(sql, false);
+        this.routeHint = OBRouting.getRouteHint(sc.getRouteHint());
 
-        if (conn != null) {
-            //#bug 2011-10-28,modify by junyu,updateCount not set,fixed
-            super.updateCount = executeUpdateOnConnection(conn);
-            return super.updateCount;
-        } else {
-            //#bug 2011-10-28,modify by junyu,updateCount not set,fixed
-            super.updateCount = tGroupDataSource.getDBSelector().tryExecute(executeUpdateTryer,
-                true, SqlHintType.CLUSTER_NONE, sql, this.parameterSettings);
-            return super.updateCount;
+        try {
+            if (conn != null) {
+                //#bug 2011-10-28,modify by junyu,updateCount not set,fixed
+                super.updateCount = executeUpdateOnConnection(conn);
+                return super.updateCount;
+            } else {
+                //#bug 2011-10-28,modify by junyu,updateCount not set,fixed
+                super.updateCount = tGroupDataSource.getDBSelector().tryExecute(executeUpdateTryer,
+                    true, SqlHintType.CLUSTER_NONE, routeHint, sql, this.parameterSettings);
+                return super.updateCount;
+            }
+        } finally {
+            tGroupConnection.markWrite();
         }
     }
 
     private int executeUpdateOnConnection(Connection conn) throws SQLException {
         PreparedStatement ps = createPreparedStatementInternal(conn, sql);
-        Parameters.setParameters(ps, parameterSettings);
+        parameterSettings.setParameters(ps);
         return ps.executeUpdate();
     }
 
@@ -206,191 +241,183 @@ public class TGroupPreparedStatement extends TGroupStatement implements Prepared
     }
 
     public void setArray(int i, Array x) throws SQLException {
-        parameterSettings.put(i, new ParameterContext(ParameterMethod.setArray,
-            new Object[] { i, x }));
+        parameterSettings.setObject(i, ParameterMethod.setArray, x);
     }
 
     public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setAsciiStream,
-            new Object[] { parameterIndex, x, length }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setAsciiStream, x, length);
     }
 
     public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setBigDecimal,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setBigDecimal, x);
     }
 
     public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setBinaryStream,
-            new Object[] { parameterIndex, x, length }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setBinaryStream, x, length);
     }
 
     public void setBlob(int i, Blob x) throws SQLException {
-        parameterSettings.put(i, new ParameterContext(ParameterMethod.setBlob,
-            new Object[] { i, x }));
+        parameterSettings.setObject(i, ParameterMethod.setBlob, x);
     }
 
     public void setBoolean(int parameterIndex, boolean x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setBoolean,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setLong(parameterIndex, ParameterMethod.setBoolean, x ? 1 : 0);
     }
 
     public void setByte(int parameterIndex, byte x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setByte,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setLong(parameterIndex, ParameterMethod.setByte, x);
     }
 
     public void setBytes(int parameterIndex, byte[] x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setBytes,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setBytes, x);
     }
 
     public void setCharacterStream(int parameterIndex, Reader reader, int length)
                                                                                  throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(
-            ParameterMethod.setCharacterStream, new Object[] { parameterIndex, reader, length }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setCharacterStream, reader,
+            length);
     }
 
     public void setClob(int i, Clob x) throws SQLException {
-        parameterSettings.put(i, new ParameterContext(ParameterMethod.setClob,
-            new Object[] { i, x }));
+        parameterSettings.setObject(i, ParameterMethod.setClob, x);
     }
 
     public void setDate(int parameterIndex, Date x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setDate1,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setDate1, x);
     }
 
     public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setDate2,
-            new Object[] { parameterIndex, x, cal }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setDate2, x, cal);
     }
 
     public void setDouble(int parameterIndex, double x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setDouble,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setDouble(parameterIndex, ParameterMethod.setDouble, x);
     }
 
     public void setFloat(int parameterIndex, float x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setFloat,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setDouble(parameterIndex, ParameterMethod.setFloat, x);
     }
 
     public void setInt(int parameterIndex, int x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setInt,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setLong(parameterIndex, ParameterMethod.setInt, x);
     }
 
     public void setLong(int parameterIndex, long x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setLong,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setLong(parameterIndex, ParameterMethod.setLong, x);
     }
 
     public void setNull(int parameterIndex, int sqlType) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setNull1,
-            new Object[] { parameterIndex, sqlType }));
+        parameterSettings.setLong(parameterIndex, ParameterMethod.setNull1, sqlType);
     }
 
     public void setNull(int paramIndex, int sqlType, String typeName) throws SQLException {
-        parameterSettings.put(paramIndex, new ParameterContext(ParameterMethod.setNull2,
-            new Object[] { paramIndex, sqlType, typeName }));
+        parameterSettings.setObject(paramIndex, ParameterMethod.setNull2, typeName, sqlType);
     }
 
     public void setObject(int parameterIndex, Object x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setObject1,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setObject1, x);
     }
 
     public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setObject2,
-            new Object[] { parameterIndex, x, targetSqlType }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setObject2, x, targetSqlType);
     }
 
     public void setObject(int parameterIndex, Object x, int targetSqlType, int scale)
                                                                                      throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setObject3,
-            new Object[] { parameterIndex, x, targetSqlType, scale }));
+        parameterSettings.setObject(parameterIndex, x, targetSqlType, scale);
     }
 
     public void setRef(int i, Ref x) throws SQLException {
-        parameterSettings.put(i,
-            new ParameterContext(ParameterMethod.setRef, new Object[] { i, x }));
+        parameterSettings.setObject(i, ParameterMethod.setRef, x);
     }
 
     public void setShort(int parameterIndex, short x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setShort,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setLong(parameterIndex, ParameterMethod.setShort, x);
     }
 
     public void setString(int parameterIndex, String x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setString,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setString, x);
     }
 
     public void setTime(int parameterIndex, Time x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setTime1,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setTime1, x);
     }
 
     public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setTime2,
-            new Object[] { parameterIndex, x, cal }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setTime2, x, cal);
     }
 
     public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setTimestamp1,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setTimestamp1, x);
     }
 
     public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setTimestamp2,
-            new Object[] { parameterIndex, x, cal }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setTimestamp2, x, cal);
     }
 
     public void setURL(int parameterIndex, URL x) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(ParameterMethod.setURL,
-            new Object[] { parameterIndex, x }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setURL, x);
     }
 
     @Deprecated
     public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
-        parameterSettings.put(parameterIndex, new ParameterContext(
-            ParameterMethod.setUnicodeStream, new Object[] { parameterIndex, x, length }));
+        parameterSettings.setObject(parameterIndex, ParameterMethod.setUnicodeStream, x, length);
     }
 
     /* ======================================================================== *
      *                            executeBatch                                  *
      * ======================================================================== */
-    private List<Map<Integer, ParameterContext>> pstArgs = null;
+    private BatchBuffer  pstArgs      = null;
+    private InsertValues insertValues = null;
+    private boolean      insertParsed = false;
 
     public void addBatch() throws SQLException {
         if (pstArgs == null) {
-            pstArgs = new LinkedList<Map<Integer, ParameterContext>>();
+            pstArgs = new BatchBuffer();
         }
-        Map<Integer, ParameterContext> newArg = new HashMap<Integer, ParameterContext>(
-            parameterSettings.size());
-        newArg.putAll(parameterSettings);
+        pstArgs.add(parameterSettings);
         parameterSettings.clear();
-        pstArgs.add(newArg);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        super.clearBatch();
+        if (pstArgs != null) {
+            pstArgs.clear();
+        }
     }
 
     public int[] executeBatch() throws SQLException {
         try {
             checkClosed();
             ensureResultSetIsEmpty();
-            if (pstArgs == null || pstArgs.isEmpty()) {
+            if (pstArgs == null || pstArgs.size() == 0) {
                 return new int[0];
             }
+            this.routeHint = OBRouting.getRouteHint(sc.getRouteHint());
+            ParallelBatchExecutor parallelBatch = tGroupDataSource.getParallelBatch();
+            if (parallelBatch.isParallel(pstArgs.size()) && isParallelizable(sc.getSqlType())
+                && this.isDetachable() && autoGeneratedKeys == -1 && columnIndexes == null && columnNames == null) {
+                this.getRewritableInsert(pstArgs.size());// 在调用线程中解析, 各分块共享
+                return parallelBatch.execute(pstArgs.size(), new ParallelBatchExecutor.Chunk() {
+                    public int[] execute(int from, int to) throws SQLException {
+                        return tGroupDataSource.getDBSelector().tryExecute(parallelBatchTryer,
+                            true, SqlHintType.CLUSTER_NONE, routeHint, sql, from, to);
+                    }
+                });
+            }
+
             Connection conn = tGroupConnection.getBaseConnection(sql, false);
             if (conn != null) {
                 return executeBatchOnConnection(conn);
             } else {
                 return tGroupDataSource.getDBSelector().tryExecute(executeBatchTryer, true,
-                    SqlHintType.CLUSTER_NONE, sql, this.parameterSettings);
+                    SqlHintType.CLUSTER_NONE, routeHint, sql, this.parameterSettings);
             }
         } finally {
-            if (pstArgs != null) {
+            if (pstArgs != null && pstArgs.size() > 0) {
                 pstArgs.clear();
+                tGroupConnection.markWrite();
             }
         }
     }
@@ -405,22 +432,123 @@ public class TGroupPreparedStatement extends TGroupStatement implements Prepared
                                                          }
                                                      };
 
+    /**
+     * 在独立的连接上执行[from, to)行, args为(sql, from, to)
+     */
+    private DataSourceTryer<int[]> parallelBatchTryer = new DataSourceTryer<int[]>() {
+                                                          public int[] tryOnDataSource(DataSourceHolder dsw,
+                                                                                       Object... args)
+                                                                                                      throws SQLException {
+                                                              Connection conn = tGroupConnection
+                                                                  .createDetachedConnection(dsw);
+                                                              try {
+                                                                  return executeBatchRange(conn,
+                                                                      true, (Integer) args[1],
+                                                                      (Integer) args[2]);
+                                                              } finally {
+                                                                  closeDetached(conn);
+                                                              }
+                                                          }
+                                                      };
+
     private int[] executeBatchOnConnection(Connection conn) throws SQLException {
-        PreparedStatement ps = createPreparedStatementInternal(conn, sql);
-        for (Map<Integer, ParameterContext> parameterSettings : pstArgs) {
-            setBatchParameters(ps, parameterSettings.values());
-            ps.addBatch();
+        return executeBatchRange(conn, false, 0, pstArgs.size());
+    }
+
+    /**
+     * 执行batch中的[from, to)行
+     *
+     * @param conn
+     * @param detached 是否为独立的连接, 是时statement用完即关闭, 不作为baseStatement
+     * @param from
+     * @param to
+     * @return
+     * @throws SQLException
+     */
+    private int[] executeBatchRange(Connection conn, boolean detached, int from, int to)
+                                                                                      throws SQLException {
+        InsertValues insert = this.getRewritableInsert(to - from);
+        if (insert != null) {
+            return executeRewrittenBatch(conn, detached, insert, from, to);
+        }
+
+        PreparedStatement ps = prepareBatch(conn, detached, sql);
+        try {
+            for (int row = from; row < to; row++) {
+                pstArgs.setParameters(ps, row);
+                ps.addBatch();
+            }
+            return ps.executeBatch();
+        } finally {
+            if (detached) {
+                ps.close();
+            }
         }
-        return ps.executeBatch();
     }
 
-    private static void setBatchParameters(PreparedStatement ps,
-                                           Collection<ParameterContext> batchedParameters)
-                                                                                          throws SQLException {
-        for (ParameterContext context : batchedParameters) {
-            Parameters.parameterHandlers.get(context.getParameterMethod()).setParameter(ps,
-                context.getArgs());
+    private PreparedStatement prepareBatch(Connection conn, boolean detached, String sql)
+                                                                                       throws SQLException {
+        if (!detached) {
+            return createPreparedStatementInternal(conn, sql);
+        }
+        PreparedStatement ps = conn.prepareStatement(sql);
+        this.prepareDetached(ps);
+        return ps;
+    }
+
+    /**
+     * 单行的insert改写为多行VALUES, 按BatchRewriter分块执行
+     *
+     * @param conn
+     * @param detached
+     * @param insert
+     * @param start
+     * @param end
+     * @return
+     * @throws SQLException
+     */
+    private int[] executeRewrittenBatch(final Connection conn, final boolean detached,
+                                        final InsertValues insert, int start, int end)
+                                                                                      throws SQLException {
+        return tGroupDataSource.getBatchRewriter().execute(pstArgs, insert, start, end,
+            new BatchRewriter.Chunk() {
+                public int execute(String sql, int from, int to) throws SQLException {
+                    PreparedStatement ps = prepareBatch(conn, detached, sql);
+                    try {
+                        for (int row = from; row < to; row++) {
+                            pstArgs.setParameters(ps, row, (row - from)
+                                                           * insert.getPlaceholders());
+                        }
+                        return ps.executeUpdate();
+                    } finally {
+                        if (detached) {
+                            ps.close();
+                        }
+                    }
+                }
+            });
+    }
+
+    /**
+     * 开启改写、单行insert、每行参数完整且不需要返回自增主键时可以改写
+     *
+     * @param rows 这次执行的行数
+     * @return 不能改写时返回null
+     */
+    private InsertValues getRewritableInsert(int rows) {
+        if (!tGroupDataSource.getBatchRewriter().isEnabled() || sc.getSqlType() != SqlType.INSERT
+            || rows < 2 || pstArgs.isSparse() || autoGeneratedKeys != -1
+            || columnIndexes != null || columnNames != null) {
+            return null;
+        }
+        if (!insertParsed) {// sql不变, 只解析一次
+            insertValues = InsertValues.parse(sql);
+            insertParsed = true;
+        }
+        if (insertValues == null || insertValues.getPlaceholders() != pstArgs.width()) {
+            return null;
         }
+        return insertValues;
     }
 
     public int getAutoGeneratedKeys() {
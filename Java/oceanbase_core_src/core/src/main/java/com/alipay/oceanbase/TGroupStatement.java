@@ -5,15 +5,24 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.log4j.Logger;
 
 import com.alipay.oceanbase.factory.DataSourceHolder;
+import com.alipay.oceanbase.group.MergeServerSelector;
 import com.alipay.oceanbase.group.MergeServerSelector.DataSourceTryer;
-import com.alipay.oceanbase.util.parse.SQLHintParser;
-import com.alipay.oceanbase.util.parse.SQLParser;
+import com.alipay.oceanbase.group.MergeServerSelector.HedgeableTryer;
+import com.alipay.oceanbase.group.ParallelBatchExecutor;
+import com.alipay.oceanbase.group.QueryCanceller;
+import com.alipay.oceanbase.jdbc.MaterializedResultSet;
+import com.alipay.oceanbase.jdbc.QueryCoalescer;
+import com.alipay.oceanbase.jdbc.QueryKey;
+import com.alipay.oceanbase.jdbc.ResultCache;
+import com.alipay.oceanbase.util.parse.RouteHint;
+import com.alipay.oceanbase.util.parse.SqlClassification;
 import com.alipay.oceanbase.util.parse.SqlHintType;
 import com.alipay.oceanbase.util.parse.SqlType;
 
@@ -59,6 +68,8 @@ public class TGroupStatement implements Statement {
 
     protected ResultSet currentResultSet     = null;
 
+    protected RouteHint routeHint            = RouteHint.NONE;                             // 当前执行sql的路由hint
+
     public boolean execute(String sql) throws SQLException {
         return executeInternal(sql, -1, null, null);
     }
@@ -81,16 +92,23 @@ public class TGroupStatement implements Statement {
         ensureResultSetIsEmpty();
 
         Connection conn = tGroupConnection.getBaseConnection(sql, false);
-        boolean gotoRead = SqlType.SELECT.equals(SQLParser.getSqlType(sql))
-                           && tGroupConnection.getAutoCommit();
+        SqlClassification sc = this.classify(sql);
+        boolean gotoRead = sc.isSelect() && tGroupConnection.getAutoCommit();
+        this.routeHint = OBRouting.getRouteHint(sc.getRouteHint());
 
-        if (conn != null) {
-            return this.executeOnConnection(conn, sql, autoGeneratedKeys, columnIndexes,
-                columnNames);
-        } else {
-            return this.tGroupDataSource.getDBSelector().tryExecute(executeTryer,
-                this.getConsistency(sql, gotoRead), SQLHintParser.getCluster(sql), sql,
-                autoGeneratedKeys, columnIndexes, columnNames);
+        try {
+            if (conn != null) {
+                return this.executeOnConnection(conn, sql, autoGeneratedKeys, columnIndexes,
+                    columnNames);
+            } else {
+                return this.tGroupDataSource.getDBSelector().tryExecute(executeTryer,
+                    this.getConsistency(sc, gotoRead), OBRouting.getClusterHint(sc, gotoRead),
+                    routeHint, sql, autoGeneratedKeys, columnIndexes, columnNames);
+            }
+        } finally {
+            if (!sc.isSelect()) {
+                tGroupConnection.markWrite();
+            }
         }
     }
 
@@ -152,14 +170,20 @@ public class TGroupStatement implements Statement {
         ensureResultSetIsEmpty();
 
         Connection conn = tGroupConnection.getBaseConnection(sql, false);
-        if (conn != null) {
-            this.updateCount = executeUpdateOnConnection(conn, sql, autoGeneratedKeys,
-                columnIndexes, columnNames);
-            return this.updateCount;
-        } else {
-            this.updateCount = this.tGroupDataSource.getDBSelector().tryExecute(executeUpdateTryer,
-                true, SqlHintType.CLUSTER_NONE, sql, autoGeneratedKeys, columnIndexes, columnNames);
-            return this.updateCount;
+        this.routeHint = OBRouting.getRouteHint(this.classify(sql).getRouteHint());
+        try {
+            if (conn != null) {
+                this.updateCount = executeUpdateOnConnection(conn, sql, autoGeneratedKeys,
+                    columnIndexes, columnNames);
+                return this.updateCount;
+            } else {
+                this.updateCount = this.tGroupDataSource.getDBSelector().tryExecute(
+                    executeUpdateTryer, true, SqlHintType.CLUSTER_NONE, routeHint, sql,
+                    autoGeneratedKeys, columnIndexes, columnNames);
+                return this.updateCount;
+            }
+        } finally {
+            tGroupConnection.markWrite();
         }
     }
 
@@ -209,8 +233,9 @@ public class TGroupStatement implements Statement {
         }
 
         setBaseStatement(stmt);
-        if (queryTimeout >= 0) {
-            stmt.setQueryTimeout(queryTimeout);
+        int timeout = this.getEffectiveQueryTimeout();
+        if (timeout >= 0) {
+            stmt.setQueryTimeout(timeout);
         }
         stmt.setFetchSize(fetchSize);
         stmt.setMaxRows(maxRows);
@@ -247,16 +272,30 @@ public class TGroupStatement implements Statement {
             if (batchedArgs == null || batchedArgs.isEmpty()) {
                 return new int[0];
             }
+            this.routeHint = OBRouting.getRouteHint(RouteHint.NONE);
+            ParallelBatchExecutor parallelBatch = tGroupDataSource.getParallelBatch();
+            if (parallelBatch.isParallel(batchedArgs.size()) && this.isParallelBatch(batchedArgs)) {
+                final List<String> sqls = new ArrayList<String>(batchedArgs);
+                return parallelBatch.execute(sqls.size(), new ParallelBatchExecutor.Chunk() {
+                    public int[] execute(int from, int to) throws SQLException {
+                        return tGroupDataSource.getDBSelector().tryExecute(parallelBatchTryer,
+                            true, SqlHintType.CLUSTER_NONE, routeHint, sqls.get(from),
+                            sqls.subList(from, to));
+                    }
+                });
+            }
+
             Connection conn = tGroupConnection.getBaseConnection(null, false);
             if (conn != null) {
                 return executeBatchOnConnection(conn, this.batchedArgs);
             } else {
                 return tGroupDataSource.getDBSelector().tryExecute(executeBatchTryer, true,
-                    SqlHintType.CLUSTER_NONE, batchedArgs.get(0));
+                    SqlHintType.CLUSTER_NONE, routeHint, batchedArgs.get(0));
             }
         } finally {
-            if (batchedArgs != null) {
+            if (batchedArgs != null && !batchedArgs.isEmpty()) {
                 batchedArgs.clear();
+                tGroupConnection.markWrite();
             }
         }
     }
@@ -281,6 +320,47 @@ public class TGroupStatement implements Statement {
         return stmt.executeBatch();
     }
 
+    /**
+     * 在独立的连接上执行batch中的一块, args[1]为这一块的sql
+     */
+    private DataSourceTryer<int[]> parallelBatchTryer = new DataSourceTryer<int[]>() {
+                                                          @SuppressWarnings("unchecked")
+                                                          public int[] tryOnDataSource(DataSourceHolder dsw,
+                                                                                       Object... args)
+                                                                                                      throws SQLException {
+                                                              Connection conn = TGroupStatement.this.tGroupConnection
+                                                                  .createDetachedConnection(dsw);
+                                                              try {
+                                                                  Statement stmt = conn
+                                                                      .createStatement();
+                                                                  try {
+                                                                      prepareDetached(stmt);
+                                                                      for (String sql : (List<String>) args[1]) {
+                                                                          stmt.addBatch(sql);
+                                                                      }
+                                                                      return stmt.executeBatch();
+                                                                  } finally {
+                                                                      stmt.close();
+                                                                  }
+                                                              } finally {
+                                                                  closeDetached(conn);
+                                                              }
+                                                          }
+                                                      };
+
+    /**
+     * 关闭独立的连接, 归还连接池
+     * 
+     * @param conn
+     */
+    protected void closeDetached(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            logger.warn("close detached connection failed.", e);
+        }
+    }
+
     protected boolean closed = false;
 
     public void close() throws SQLException {
@@ -335,35 +415,219 @@ public class TGroupStatement implements Statement {
         checkClosed();
         ensureResultSetIsEmpty();
         // read operation
-        boolean gotoRead = SqlType.SELECT.equals(SQLParser.getSqlType(sql))
-                           && tGroupConnection.getAutoCommit();
+        SqlClassification sc = this.classify(sql);
+        boolean gotoRead = sc.isSelect() && tGroupConnection.getAutoCommit();
+        this.routeHint = OBRouting.getRouteHint(sc.getRouteHint());
         Connection conn = tGroupConnection.getBaseConnection(sql, gotoRead);
         if (conn != null) {
             return executeQueryOnConnection(conn, sql);
         } else {
-            return this.tGroupDataSource.getDBSelector().tryExecute(executeQueryTryer,
-                getConsistency(sql, gotoRead), SQLHintParser.getCluster(sql), sql);
+            boolean isConsistency = getConsistency(sc, gotoRead);
+            SqlHintType whichCluster = OBRouting.getClusterHint(sc, gotoRead);
+            QueryKey key = !isConsistency && isResultShareable() ? QueryKey.valueOf(sql, maxRows,
+                whichCluster, routeHint) : null;
+            return executeQueryWithCache(key, isConsistency, whichCluster, sql);
         }
     }
 
     /**
+     * 开启了结果缓存或合并查询时, 弱一致读的结果可以共享; 流式读取(fetchSize为Integer.MIN_VALUE)的结果不物化
      * 
+     * @return
+     */
+    protected boolean isResultShareable() {
+        return (tGroupDataSource.getResultCache().isEnabled() || tGroupDataSource
+            .getQueryCoalescer().isEnabled()) && fetchSize != Integer.MIN_VALUE;
+    }
+
+    /**
+     * 弱一致读先查结果缓存, 未命中时执行查询(并发的相同查询只执行一次), 将结果物化后放入缓存
      * 
-     * @param sql
-     * @param gotoRead
+     * @param key 为null时不共享结果
+     * @param isConsistency
+     * @param whichCluster
+     * @param args executeQueryTryer的参数
      * @return
+     * @throws SQLException
      */
-    protected boolean getConsistency(final String sql, boolean gotoRead) {
-        boolean isConsistency = true;// default: consistency=true, read_consistency_level>=4
-        if (gotoRead) {
-            SqlHintType hint = SQLHintParser.getConsistencyHint(sql);
-            if (hint == SqlHintType.CONSISTENCY_NONE && tGroupDataSource.isStrongConsistency < 4) {
-                isConsistency = false;
-            } else if (hint == SqlHintType.CONSISTENCY_WEAK) {
-                isConsistency = false;
+    protected ResultSet executeQueryWithCache(final QueryKey key, final boolean isConsistency,
+                                              final SqlHintType whichCluster,
+                                              final Object... args) throws SQLException {
+        final MergeServerSelector selector = this.tGroupDataSource.getDBSelector();
+        final DataSourceTryer<ResultSet> tryer = isHedged(isConsistency) ? hedgedQueryTryer
+            : executeQueryTryer;
+        if (key == null) {
+            ResultSet rs = selector.tryExecute(tryer, isConsistency, whichCluster, routeHint, args);
+            if (rs instanceof MaterializedResultSet) {
+                this.currentResultSet = ((MaterializedResultSet) rs).copy(this);
+                return this.currentResultSet;
             }
+            return rs;
         }
-        return isConsistency;
+
+        final ResultCache cache = tGroupDataSource.getResultCache();
+        MaterializedResultSet result = cache.isEnabled() ? cache.get(key, this) : null;
+        if (result == null) {
+            QueryCoalescer.Loader loader = new QueryCoalescer.Loader() {
+                public MaterializedResultSet load() throws SQLException {
+                    ResultSet rs = selector.tryExecute(tryer, isConsistency, whichCluster,
+                        routeHint, args);
+                    MaterializedResultSet result;
+                    if (rs instanceof MaterializedResultSet) {
+                        result = (MaterializedResultSet) rs;
+                    } else {
+                        try {
+                            result = MaterializedResultSet.materialize(rs, null);
+                        } finally {
+                            ensureResultSetIsEmpty();
+                        }
+                    }
+                    if (cache.isEnabled()) {
+                        cache.put(key, result);
+                    }
+                    return result;
+                }
+            };
+
+            QueryCoalescer coalescer = tGroupDataSource.getQueryCoalescer();
+            if (coalescer.isEnabled()) {
+                int timeout = this.getEffectiveQueryTimeout();
+                result = coalescer.execute(key, loader, timeout > 0 ? timeout * 1000L : 0L);
+            } else {
+                result = loader.load();
+            }
+            result = result.copy(this);
+        }
+        this.currentResultSet = result;
+        return result;
+    }
+
+    /**
+     * 开启了对冲请求时, 弱一致读在独立的连接上执行并物化结果, 流式读取除外
+     * 
+     * @param isConsistency
+     * @return
+     */
+    protected boolean isHedged(boolean isConsistency) {
+        return !isConsistency && tGroupDataSource.getHedger().isEnabled()
+               && fetchSize != Integer.MIN_VALUE;
+    }
+
+    /**
+     * 在独立的连接上执行查询, 返回物化的结果, 可以在对冲线程中执行
+     * 
+     * @param conn
+     * @param canceller
+     * @param args executeQueryTryer的参数
+     * @return
+     * @throws SQLException
+     */
+    protected MaterializedResultSet executeQueryDetached(Connection conn,
+                                                         QueryCanceller canceller,
+                                                         Object... args) throws SQLException {
+        Statement stmt = conn.createStatement();
+        try {
+            this.prepareDetached(stmt);
+            canceller.register(stmt);
+            return MaterializedResultSet.materialize(stmt.executeQuery((String) args[0]), null);
+        } finally {
+            canceller.unregister();
+            stmt.close();
+        }
+    }
+
+    protected void prepareDetached(Statement stmt) throws SQLException {
+        int timeout = this.getEffectiveQueryTimeout();
+        if (timeout >= 0) {
+            stmt.setQueryTimeout(timeout);
+        }
+        stmt.setMaxRows(maxRows);
+    }
+
+    protected HedgeableTryer<ResultSet> hedgedQueryTryer = new HedgeableTryer<ResultSet>() {
+                                                             public ResultSet tryOnDataSource(DataSourceHolder dsw,
+                                                                                              Object... args)
+                                                                                                             throws SQLException {
+                                                                 return tryOnDataSource(dsw,
+                                                                     new QueryCanceller(), args);
+                                                             }
+
+                                                             public ResultSet tryOnDataSource(DataSourceHolder dsw,
+                                                                                              QueryCanceller canceller,
+                                                                                              Object... args)
+                                                                                                             throws SQLException {
+                                                                 Connection conn = TGroupStatement.this.tGroupConnection
+                                                                     .createDetachedConnection(dsw);
+                                                                 try {
+                                                                     return executeQueryDetached(
+                                                                         conn, canceller, args);
+                                                                 } finally {
+                                                                     closeDetached(conn);
+                                                                 }
+                                                             }
+                                                         };
+
+    /**
+     * batch只有insert/update/delete/replace, 自动提交且没有绑定写连接时, 各块可以在独立的连接上并行执行
+     *
+     * @param sqls
+     * @return
+     * @throws SQLException
+     */
+    private boolean isParallelBatch(List<String> sqls) throws SQLException {
+        if (!this.isDetachable()) {
+            return false;
+        }
+        for (String sql : sqls) {
+            if (!isParallelizable(this.classify(sql).getSqlType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 自动提交且没有绑定写连接, 否则batch需要在绑定的连接上执行
+     *
+     * @return
+     * @throws SQLException
+     */
+    protected boolean isDetachable() throws SQLException {
+        return tGroupConnection.getAutoCommit()
+               && tGroupConnection.getBaseConnection(null, false) == null;
+    }
+
+    /**
+     * ddl、set等语句可能依赖会话状态或相互依赖, 只有dml可以拆分到不同的连接
+     *
+     * @param type
+     * @return
+     */
+    protected static boolean isParallelizable(SqlType type) {
+        return type == SqlType.INSERT || type == SqlType.UPDATE || type == SqlType.DELETE
+               || type == SqlType.REPLACE;
+    }
+
+    /**
+     * 
+     * 
+     * @param sql
+     * @return 路由需要的sql类型和hint
+     */
+    protected SqlClassification classify(String sql) {
+        return tGroupDataSource.getSqlCache().classify(sql);
+    }
+
+    /**
+     * 读己之写的一致性窗口内, 读请求按强一致读处理
+     * 
+     * @param sc
+     * @param gotoRead
+     * @return
+     */
+    protected boolean getConsistency(SqlClassification sc, boolean gotoRead) {
+        return !gotoRead
+               || tGroupDataSource.isConsistentRead(sc, tGroupConnection.isReadYourWrites());
     }
 
     protected ResultSet executeQueryOnConnection(Connection conn, String sql) throws SQLException {
@@ -414,6 +678,21 @@ public class TGroupStatement implements Statement {
         this.queryTimeout = queryTimeout;
     }
 
+    /**
+     * queryTimeout与ob_timeout hint中较小的一个, ob_timeout按秒向上取整。<br/>
+     * 默认的CONNECTION_PROPERTIES关闭了enableQueryTimeouts, 此时驱动忽略queryTimeout, ob_timeout只限制重试。
+     * 
+     * @return 小于0表示不设置
+     */
+    protected int getEffectiveQueryTimeout() {
+        long timeout = routeHint.getTimeout();
+        if (timeout <= 0) {
+            return queryTimeout;
+        }
+        int seconds = (int) Math.min((timeout + 999) / 1000, Integer.MAX_VALUE);
+        return queryTimeout > 0 ? Math.min(queryTimeout, seconds) : seconds;
+    }
+
     public ResultSet getResultSet() throws SQLException {
         return currentResultSet;
     }
@@ -32,6 +32,9 @@ public class ClusterConfig implements Serializable {
 
     private WeakConsistencyStrategy readStrategy     = WeakConsistencyStrategy.RANDOM_STRATEGY; // default strategy
 
+    private volatile long           replicaLag       = -1L;                                    // ms, 最近一次采样的复制延迟, -1表示未知
+    private volatile long           replicaLagTime   = 0L;                                     // 最近一次设置replicaLag的时间, ms
+
     public ClusterConfig(String ip, long port, long clusterId, long role, long percent) {
         this.ip = ip;
         this.port = port;
@@ -55,6 +58,16 @@ public class ClusterConfig implements Serializable {
         return equityStrategy.isInvalid();
     }
 
+    /**
+     * 复制延迟超过maxLag, 主集群不会过期; 限制了延迟时, 延迟未知的备集群按过期处理
+     * 
+     * @param maxLag ms, 负数表示不限制
+     * @return
+     */
+    public boolean isStale(long maxLag) {
+        return maxLag >= 0 && !isMaster() && (replicaLag < 0 || replicaLag > maxLag);
+    }
+
     /**
      * 
      * 
@@ -161,6 +174,29 @@ public class ClusterConfig implements Serializable {
         return readStrategy;
     }
 
+    public long getReplicaLag() {
+        return replicaLag;
+    }
+
+    public void setReplicaLag(long replicaLag) {
+        this.replicaLag = replicaLag;
+        this.replicaLagTime = System.currentTimeMillis();
+    }
+
+    public long getReplicaLagTime() {
+        return replicaLagTime;
+    }
+
+    /**
+     * 重建配置时沿用原集群的复制延迟和采样时间
+     *
+     * @param previous
+     */
+    public void inheritReplicaLag(ClusterConfig previous) {
+        this.replicaLagTime = previous.replicaLagTime;
+        this.replicaLag = previous.replicaLag;
+    }
+
     public EquityStrategy getEquityStrategy() {
         return equityStrategy;
     }
@@ -1,5 +1,7 @@
 package com.alipay.oceanbase.config;
 
+import static com.alipay.oceanbase.util.OBDataSourceConstants.DEFAULT_SERVER_WEIGHT;
+
 import java.io.Serializable;
 
 import org.apache.commons.lang.StringUtils;
@@ -25,8 +27,9 @@ public class MergeServerConfig implements Serializable {
         this.port = port;
     }
 
-    private String ip;
-    private Long   port;
+    private String       ip;
+    private Long         port;
+    private volatile int weight = DEFAULT_SERVER_WEIGHT; // 选择权重, 不参与equals
 
     /**
      * 
@@ -77,4 +80,15 @@ public class MergeServerConfig implements Serializable {
         this.port = port;
     }
 
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("mergeserver weight must not be negative!");
+        }
+        this.weight = weight;
+    }
+
 }
@@ -8,9 +8,12 @@ import java.util.Set;
 import org.apache.log4j.Logger;
 
 import com.alipay.oceanbase.strategy.ConsistentHashingStrategy;
+import com.alipay.oceanbase.strategy.LeastActiveStrategy;
+import com.alipay.oceanbase.strategy.PeakEwmaStrategy;
 import com.alipay.oceanbase.strategy.RandomStrategy;
 import com.alipay.oceanbase.strategy.RoundRobinStrategy;
 import com.alipay.oceanbase.strategy.WeakConsistencyStrategy;
+import com.alipay.oceanbase.strategy.WeightedRandomStrategy;
 import com.alipay.oceanbase.util.ObUtil;
 
 /**
@@ -37,7 +40,7 @@ public class OBDataSourceConfig {
         for (ClusterConfig cc : clusterConfigs) {
             // 1. get all mergeserver per cluster
             Set<MergeServerConfig> mergeServerConfigs = ObUtil.getServerList(conn,
-                cc.getClusterid());
+                cc.getClusterid(), configParams);
             cc.setServers(mergeServerConfigs);
 
             // 2. init all druid ds for every mergeserver 
@@ -52,6 +55,16 @@ public class OBDataSourceConfig {
             } else if (strategy == WeakConsistencyStrategy.ROUNDROBIN_STRATEGY) {
                 RoundRobinStrategy rrs = new RoundRobinStrategy(mergeServerConfigs, configParams);
                 cc.setEquityStrategy(rrs);
+            } else if (strategy == WeakConsistencyStrategy.LEAST_ACTIVE_STRATEGY) {
+                LeastActiveStrategy las = new LeastActiveStrategy(mergeServerConfigs, configParams);
+                cc.setEquityStrategy(las);
+            } else if (strategy == WeakConsistencyStrategy.PEAK_EWMA_STRATEGY) {
+                PeakEwmaStrategy pes = new PeakEwmaStrategy(mergeServerConfigs, configParams);
+                cc.setEquityStrategy(pes);
+            } else if (strategy == WeakConsistencyStrategy.WEIGHTED_RANDOM_STRATEGY) {
+                WeightedRandomStrategy wrs = new WeightedRandomStrategy(mergeServerConfigs,
+                    configParams);
+                cc.setEquityStrategy(wrs);
             }
 
             if (logger.isInfoEnabled()) {
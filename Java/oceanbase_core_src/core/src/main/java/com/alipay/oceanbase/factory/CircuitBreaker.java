@@ -0,0 +1,320 @@
+package com.alipay.oceanbase.factory;
+
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_BUCKETS;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_ERROR_RATE;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_ERROR_RATE_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_MIN_CALLS;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_MIN_CALLS_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_OPEN_TIME;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_OPEN_TIME_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_PROBES;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_PROBES_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_SLOW_CALL_RATE;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_SLOW_CALL_RATE_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_SLOW_CALL_TIME_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_WINDOW;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.BREAKER_WINDOW_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.CLUSTER_INVALID_TIME;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.LB_MODULE_LOGGER_NAME;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.alipay.oceanbase.util.Helper;
+
+/**
+ * mergeserver熔断器。<br/>
+ * 1. CLOSED: 正常放行, 在滑动窗口内统计调用数、异常数和慢调用数, 异常率或慢调用率超过阈值时熔断;<br/>
+ * 2. OPEN: 全部拒绝, 熔断时间到达后进入HALF_OPEN, 熔断时间每次翻倍, 最长CLUSTER_INVALID_TIME;<br/>
+ * 3. HALF_OPEN: 只放行probes个探测请求, 全部成功则恢复CLOSED, 任一失败则重新熔断;<br/>
+ * 4. 选中mergeserver后通过tryAcquire以CAS占用探测名额, 返回的permit带有半开的代数, 只有持有当次permit的请求
+ *    计入探测结果或通过onAbort归还名额; 熔断前发出、半开期间才结束的请求不影响半开状态。
+ */
+public class CircuitBreaker {
+    private static final Logger logger        = Logger.getLogger(LB_MODULE_LOGGER_NAME);
+
+    public static final int     CLOSED        = 0;
+    public static final int     OPEN          = 1;
+    public static final int     HALF_OPEN     = 2;
+
+    public static final long    PASS          = 0L;                 // 不是探测请求
+    public static final long    REJECTED      = -1L;                // 熔断中或探测名额已用完
+
+    private final String        name;
+    private final int           minCalls;
+    private final int           errorRate;                          // 百分比
+    private final int           slowCallRate;                       // 百分比
+    private final long          slowCallNanos;                      // 0表示不统计慢调用
+    private final long          baseOpenTime;                       // ms
+    private final int           probes;
+
+    private final long          bucketTime;                         // ms
+    private final Bucket[]      buckets;
+
+    private final AtomicInteger state         = new AtomicInteger(CLOSED);
+    private volatile long       openedAt      = 0;
+    private volatile long       openTime;
+    private final AtomicLong    probe         = new AtomicLong(0);  // 高32位为半开的代数, 低32位为已占用的探测名额
+    private final AtomicInteger probeSucceed  = new AtomicInteger(0);
+
+    public CircuitBreaker(String name, Map<String, String> configParams) {
+        this(name, Helper.getInt(configParams, BREAKER_WINDOW_KEY, BREAKER_WINDOW), Helper.getInt(
+            configParams, BREAKER_MIN_CALLS_KEY, BREAKER_MIN_CALLS), Helper.getInt(configParams,
+            BREAKER_ERROR_RATE_KEY, BREAKER_ERROR_RATE), Helper.getInt(configParams,
+            BREAKER_SLOW_CALL_TIME_KEY, 0), Helper.getInt(configParams,
+            BREAKER_SLOW_CALL_RATE_KEY, BREAKER_SLOW_CALL_RATE), Helper.getInt(configParams,
+            BREAKER_OPEN_TIME_KEY, BREAKER_OPEN_TIME), Helper.getInt(configParams,
+            BREAKER_PROBES_KEY, BREAKER_PROBES));
+    }
+
+    /**
+     *
+     * @param name 对应的mergeserver, 用于日志
+     * @param window 滑动窗口长度, ms
+     * @param minCalls 窗口内调用数不足时不熔断
+     * @param errorRate 异常率阈值, 百分比
+     * @param slowCallTime 慢调用阈值, ms, 小于等于0时不统计慢调用
+     * @param slowCallRate 慢调用率阈值, 百分比
+     * @param openTime 首次熔断时间, ms
+     * @param probes 半开状态下放行的探测请求数
+     */
+    public CircuitBreaker(String name, int window, int minCalls, int errorRate, int slowCallTime,
+                          int slowCallRate, int openTime, int probes) {
+        this.name = name;
+        this.bucketTime = Math.max(1, (window <= 0 ? BREAKER_WINDOW : window) / BREAKER_BUCKETS);
+        this.buckets = new Bucket[BREAKER_BUCKETS];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+
+        this.minCalls = Math.max(1, minCalls);
+        this.errorRate = errorRate <= 0 ? BREAKER_ERROR_RATE : errorRate;
+        this.slowCallRate = slowCallRate <= 0 ? BREAKER_SLOW_CALL_RATE : slowCallRate;
+        this.slowCallNanos = slowCallTime <= 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(slowCallTime);
+        this.baseOpenTime = Math.min(openTime <= 0 ? BREAKER_OPEN_TIME : openTime,
+            CLUSTER_INVALID_TIME);
+        this.openTime = this.baseOpenTime;
+        this.probes = Math.max(1, probes);
+    }
+
+    /**
+     * 是否拒绝请求, 不占用探测名额, 供策略过滤。熔断时间到达时转入HALF_OPEN。
+     *
+     * @return
+     */
+    public boolean isOpen() {
+        switch (state.get()) {
+            case CLOSED:
+                return false;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openTime) {
+                    return true;
+                }
+                halfOpen();
+                return isOpen();
+            default:
+                return (int) probe.get() >= probes;
+        }
+    }
+
+    /**
+     * 选中该mergeserver后调用, 半开状态下占用一个探测名额
+     *
+     * @return PASS: 正常放行; REJECTED: 熔断中或探测名额已用完; 其他: 探测请求的permit
+     */
+    public long tryAcquire() {
+        for (;;) {
+            switch (state.get()) {
+                case CLOSED:
+                    return PASS;
+                case OPEN:
+                    if (System.currentTimeMillis() - openedAt < openTime) {
+                        return REJECTED;
+                    }
+                    halfOpen();
+                    break;
+                default:
+                    long p = probe.get();
+                    if ((int) p >= probes) {
+                        return REJECTED;
+                    }
+                    if (probe.compareAndSet(p, p + 1)) {
+                        return p >>> 32;
+                    }
+            }
+        }
+    }
+
+    /**
+     * 请求没有结果就结束了, 归还当次半开占用的探测名额
+     *
+     * @param permit tryAcquire的返回值
+     */
+    public void onAbort(long permit) {
+        if (permit <= PASS || state.get() != HALF_OPEN) {
+            return;
+        }
+        for (;;) {
+            long p = probe.get();
+            if (p >>> 32 != permit || (int) p <= 0 || probe.compareAndSet(p, p - 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 不是探测请求的结果
+     *
+     * @param failure
+     * @param nanos 响应时间, 未知时为0
+     */
+    public void onResult(boolean failure, long nanos) {
+        onResult(failure, nanos, PASS);
+    }
+
+    /**
+     *
+     *
+     * @param failure
+     * @param nanos 响应时间, 未知时为0
+     * @param permit tryAcquire的返回值
+     */
+    public void onResult(boolean failure, long nanos, long permit) {
+        boolean slow = slowCallNanos > 0 && nanos >= slowCallNanos;
+
+        int s = state.get();
+        if (s == HALF_OPEN) {
+            if (permit <= PASS || probe.get() >>> 32 != permit) {// 不是当次半开的探测
+                return;
+            }
+            if (failure || slow) {
+                trip(true);
+            } else if (probeSucceed.incrementAndGet() >= probes) {
+                close();
+            }
+            return;
+        } else if (s == OPEN) {
+            return;
+        }
+
+        Bucket bucket = current(System.currentTimeMillis());
+        bucket.calls.incrementAndGet();
+        if (failure) {
+            bucket.failures.incrementAndGet();
+        }
+        if (slow) {
+            bucket.slows.incrementAndGet();
+        }
+
+        if (failure || slow) {// 成功的快调用只会降低比率, 无需检查
+            check();
+        }
+    }
+
+    /**
+     * 立即熔断
+     */
+    public void trip() {
+        trip(false);
+    }
+
+    public int getState() {
+        return state.get();
+    }
+
+    /**
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        switch (state.get()) {
+            case CLOSED:
+                return "CLOSED";
+            case OPEN:
+                return "OPEN";
+            default:
+                return "HALF_OPEN";
+        }
+    }
+
+    private void check() {
+        long now = System.currentTimeMillis();
+        long idx = now / bucketTime;
+        int calls = 0, failures = 0, slows = 0;
+        for (Bucket b : buckets) {
+            if (idx - b.epoch.get() < buckets.length) {
+                calls += b.calls.get();
+                failures += b.failures.get();
+                slows += b.slows.get();
+            }
+        }
+
+        if (calls < minCalls) {
+            return;
+        }
+        if (failures * 100L >= (long) errorRate * calls
+            || (slowCallNanos > 0 && slows * 100L >= (long) slowCallRate * calls)) {
+            trip(false);
+        }
+    }
+
+    private void trip(boolean backoff) {
+        int s = state.get();
+        if (s == OPEN || !state.compareAndSet(s, OPEN)) {
+            return;
+        }
+        if (backoff) {// 探测失败, 熔断时间翻倍
+            openTime = Math.min(openTime * 2, CLUSTER_INVALID_TIME);
+        }
+        openedAt = System.currentTimeMillis();
+
+        if (logger.isInfoEnabled()) {
+            logger.info("circuit breaker open, mergeserver:" + name + ", open time:" + openTime
+                        + "ms");
+        }
+    }
+
+    private synchronized void halfOpen() {
+        if (state.get() != OPEN) {
+            return;
+        }
+        probeSucceed.set(0);
+        probe.set(((probe.get() >>> 32) + 1) << 32);// 新的代数, 名额清零
+        state.set(HALF_OPEN);
+    }
+
+    private void close() {
+        for (Bucket b : buckets) {
+            b.epoch.set(-1);
+        }
+        openTime = baseOpenTime;
+        if (state.compareAndSet(HALF_OPEN, CLOSED) && logger.isInfoEnabled()) {
+            logger.info("circuit breaker closed, mergeserver:" + name);
+        }
+    }
+
+    private Bucket current(long now) {
+        long idx = now / bucketTime;
+        Bucket b = buckets[(int) (idx % buckets.length)];
+        long epoch = b.epoch.get();
+        if (epoch != idx && b.epoch.compareAndSet(epoch, idx)) {// 复用过期的桶, 并发重置时允许少量误差
+            b.calls.set(0);
+            b.failures.set(0);
+            b.slows.set(0);
+        }
+        return b;
+    }
+
+    private static class Bucket {
+        final AtomicLong    epoch    = new AtomicLong(-1);
+        final AtomicInteger calls    = new AtomicInteger(0);
+        final AtomicInteger failures = new AtomicInteger(0);
+        final AtomicInteger slows    = new AtomicInteger(0);
+    }
+
+}
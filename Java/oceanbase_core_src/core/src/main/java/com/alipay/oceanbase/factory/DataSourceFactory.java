@@ -37,7 +37,7 @@ public class DataSourceFactory {
                                              Map<String, String> configParams) throws SQLException {
         final DruidDataSource druid = newDataSoruce(msconfig, configParams);
 
-        return new DataSourceHolder(msconfig) {
+        return new DataSourceHolder(msconfig, configParams) {
 
             /**
              * 
@@ -1,12 +1,22 @@
 package com.alipay.oceanbase.factory;
 
 import static com.alipay.oceanbase.util.OBDataSourceConstants.AUDIT_FACTOR;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.AUDIT_PRECISION;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.AUDIT_THRESHOLD;
-import static com.alipay.oceanbase.util.OBDataSourceConstants.CLUSTER_INVALID_TIME;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.EWMA_DECAY_TIME;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.LB_MODULE_LOGGER_NAME;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SLOW_START_MODE_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SLOW_START_WINDOW;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SLOW_START_WINDOW_KEY;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Date;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.sql.DataSource;
 
@@ -14,6 +24,9 @@ import org.apache.log4j.Logger;
 
 import com.alibaba.druid.pool.DruidDataSource;
 import com.alipay.oceanbase.config.MergeServerConfig;
+import com.alipay.oceanbase.util.Helper;
+import com.alipay.oceanbase.util.LatencyHistogram;
+import com.alipay.oceanbase.util.PeakEwma;
 
 /**
  * 
@@ -22,14 +35,25 @@ import com.alipay.oceanbase.config.MergeServerConfig;
  * @version $Id: DataSourceHolder.java, v 0.1 2013-5-24 下午3:59:04 liangjie.li Exp $
  */
 public abstract class DataSourceHolder {
-    private static final Logger logger            = Logger.getLogger(LB_MODULE_LOGGER_NAME);
+    private static final Logger    logger            = Logger.getLogger(LB_MODULE_LOGGER_NAME);
 
-    private ReentrantLock       lock              = new ReentrantLock();
+    private static final long      ZERO_BITS         = Double.doubleToRawLongBits(0.0D);
+    private static final int       DECAY_RETRIES     = 3;                         // 成功时衰减的CAS重试次数
 
-    private volatile long       invalidTime       = 0;
-    private volatile double     auditValue        = 0;
+    private final AtomicLong       auditBits         = new AtomicLong(ZERO_BITS); // auditValue的double位
+    private final CircuitBreaker   circuitBreaker;
+    private volatile boolean       down              = false;                     // 健康检查结果
 
-    private MergeServerConfig   mergeServerConfig = null;
+    private final long             warmupWindow;                                  // 慢启动窗口, ms
+    private final SlowStartMode    warmupMode;
+    private volatile long          warmupStart       = 0;                         // 0表示不在预热中
+
+    private final AtomicInteger    inflight          = new AtomicInteger(0);      // statements executing on this ms
+    private final PeakEwma         responseTime      = new PeakEwma(EWMA_DECAY_TIME,
+                                                         TimeUnit.MILLISECONDS);
+    private final LatencyHistogram latency           = new LatencyHistogram();    // 响应时间分布, 用于对冲请求的延迟
+
+    private MergeServerConfig      mergeServerConfig = null;
 
     public abstract DataSource getDataSource();
 
@@ -80,44 +104,278 @@ public abstract class DataSourceHolder {
         }
     }
 
+    /**
+     * 新建一条不属于连接池的物理连接, 与连接池建连的方式一致(url、connectionProperties、filter), 只覆盖超时。<br/>
+     * 连接池默认关闭enableQueryTimeouts, 后台探测需要用socketTimeout限制执行时间
+     *
+     * @param timeout connectTimeout和socketTimeout, ms
+     * @return 数据源不是druid时返回null
+     * @throws SQLException
+     */
+    public Connection createPhysicalConnection(int timeout) throws SQLException {
+        DataSource ds = this.getDataSource();
+        if (!(ds instanceof DruidDataSource)) {
+            return null;
+        }
+        DruidDataSource druid = (DruidDataSource) ds;
+        Properties props = new Properties();
+        props.putAll(druid.getConnectProperties());
+        if (druid.getUsername() != null) {
+            props.put("user", druid.getUsername());
+        }
+        if (druid.getPassword() != null) {
+            props.put("password", druid.getPassword());
+        }
+        props.put("connectTimeout", String.valueOf(timeout));
+        props.put("socketTimeout", String.valueOf(timeout));
+        return druid.createPhysicalConnection(druid.getUrl(), props);
+    }
+
     /**
      * 
      * @param mergeServerConfig
      */
     public DataSourceHolder(MergeServerConfig mergeServerConfig) {
-        this.mergeServerConfig = mergeServerConfig;
+        this(mergeServerConfig, null);
     }
 
     /**
      * 
+     * @param mergeServerConfig
+     * @param configParams 熔断器配置
+     */
+    public DataSourceHolder(MergeServerConfig mergeServerConfig, Map<String, String> configParams) {
+        this.mergeServerConfig = mergeServerConfig;
+        this.warmupWindow = configParams == null ? 0 : Helper.getInt(configParams,
+            SLOW_START_WINDOW_KEY, SLOW_START_WINDOW);
+        this.warmupMode = SlowStartMode.parse(configParams == null ? null : configParams
+            .get(SLOW_START_MODE_KEY));
+        this.circuitBreaker = new CircuitBreaker(String.valueOf(mergeServerConfig),
+            configParams);
+    }
+
+    /**
+     * 无锁审计: auditValue以double位存放在AtomicLong中, 通过CAS更新。<br/>
+     * 1. 成功(v为0)且auditValue已为0时直接返回, 不产生任何写; AUDIT_FACTOR接近1, 衰减到AUDIT_PRECISION以下时清零,
+     *    否则需要数百万次成功才能衰减到0;<br/>
+     * 2. 成功时最多重试DECAY_RETRIES次CAS, 持续冲突时才丢弃本次衰减, 只会让衰减略慢;<br/>
+     * 3. 失败时循环CAS直到成功, 保证异常不丢失;<br/>
+     * 4. 越过阈值的那次CAS同时把auditValue清零, 只有一个线程会触发熔断。
      * 
      * @param v
      */
     public void audit(double v) {
-        lock.lock();
-        try {
-            auditValue = auditValue * AUDIT_FACTOR + v;
-            if (auditValue - AUDIT_THRESHOLD > 0.0) {// 置为不可用状态, 一分钟内某集群ms异常为47次。
-                invalidTime = System.currentTimeMillis();
-                auditValue = 0;
-
-                if (logger.isInfoEnabled()) {
-                    logger.info("invalid cluster " + this.toString() + ", at "
-                                + new Date(invalidTime));
+        audit(v, 0L);
+    }
+
+    /**
+     * 审计一次调用结果, 同时计入熔断器的滑动窗口, 不是探测请求
+     * 
+     * @param v
+     * @param nanos 响应时间, 未知时为0
+     */
+    public void audit(double v, long nanos) {
+        audit(v, nanos, CircuitBreaker.PASS);
+    }
+
+    /**
+     * 
+     * 
+     * @param v
+     * @param nanos 响应时间, 未知时为0
+     * @param permit tryAcquire的返回值
+     */
+    public void audit(double v, long nanos, long permit) {
+        circuitBreaker.onResult(v > 0.0D, nanos, permit);
+
+        long bits = auditBits.get();
+        if (v == 0.0D && bits == ZERO_BITS) {
+            return;
+        }
+
+        for (int i = 0;; i++) {
+            double next = Double.longBitsToDouble(bits) * AUDIT_FACTOR + v;
+            boolean invalid = next - AUDIT_THRESHOLD > 0.0;// 置为不可用状态, 一分钟内某集群ms异常为47次。
+            if (invalid || next < AUDIT_PRECISION) {// 小于一次异常的千分之一, 不影响熔断, 清零后成功不再写
+                next = 0.0D;
+            }
+
+            if (auditBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+                if (invalid) {
+                    circuitBreaker.trip();
+                    if (logger.isInfoEnabled()) {
+                        logger.info("invalid cluster " + this.toString() + ", at " + new Date());
+                    }
                 }
+                return;
+            }
+
+            if (v == 0.0D && i >= DECAY_RETRIES) {
+                return;
             }
-        } finally {
-            lock.unlock();
+            bits = auditBits.get();
         }
     }
 
+    /**
+     * 选中该数据源后调用, 熔断器半开时占用一个探测名额
+     * 
+     * @return 见CircuitBreaker.tryAcquire
+     */
+    public long tryAcquire() {
+        return down ? CircuitBreaker.REJECTED : circuitBreaker.tryAcquire();
+    }
+
+    /**
+     * 在该数据源上开始执行一条语句
+     */
+    public void incrementInflight() {
+        inflight.incrementAndGet();
+    }
+
+    /**
+     * 语句没有结果就结束了(被取消、数据源已销毁等), 不计入成功或失败
+     * 
+     * @param permit tryAcquire的返回值
+     */
+    public void abort(long permit) {
+        circuitBreaker.onAbort(permit);
+    }
+
+    /**
+     * 该数据源上的一条语句执行结束
+     */
+    public void decrementInflight() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * 当前在该数据源上执行中的语句数
+     * 
+     * @return
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * 记录一次语句的响应时间
+     * 
+     * @param nanos
+     */
+    public void recordResponseTime(long nanos) {
+        responseTime.observe(nanos);
+        latency.record(nanos);
+    }
+
+    /**
+     * 响应时间的peak ewma, 单位纳秒
+     * 
+     * @return
+     */
+    public double getResponseTime() {
+        return responseTime.get();
+    }
+
+    public LatencyHistogram getLatencyHistogram() {
+        return latency;
+    }
+
     /**
      * 
      * 
      * @return
      */
     public boolean isInvalid() {
-        return (System.currentTimeMillis() - invalidTime) < CLUSTER_INVALID_TIME;
+        return down || circuitBreaker.isOpen();
+    }
+
+    /**
+     * 健康检查连续失败, 标记为不可用
+     */
+    public void markDown() {
+        if (!down) {
+            down = true;
+            logger.warn("health check mark down mergeserver " + this.toString());
+        }
+    }
+
+    /**
+     * 健康检查连续成功, 恢复可用
+     */
+    public void markUp() {
+        if (down) {
+            down = false;
+            startWarmup();
+            if (logger.isInfoEnabled()) {
+                logger.info("health check mark up mergeserver " + this.toString());
+            }
+        }
+    }
+
+    /**
+     * 开始慢启动, 预热窗口内被选中的概率从很小逐步增长到正常
+     */
+    public void startWarmup() {
+        if (warmupWindow > 0) {
+            warmupStart = Math.max(1L, System.currentTimeMillis());
+            if (logger.isInfoEnabled()) {
+                logger.info("slow start mergeserver " + this.toString() + ", window:"
+                            + warmupWindow + "ms, mode:" + warmupMode);
+            }
+        }
+    }
+
+    /**
+     * 
+     * 
+     * @return
+     */
+    public boolean isWarmingUp() {
+        long start = warmupStart;
+        if (start == 0) {
+            return false;
+        }
+        if (System.currentTimeMillis() - start >= warmupWindow) {
+            warmupStart = 0;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 预热进度对应的权重系数, 不在预热中时为1
+     * 
+     * @return
+     */
+    public double getWarmupFactor() {
+        long start = warmupStart;
+        if (start == 0) {
+            return 1.0D;
+        }
+
+        double progress = (double) (System.currentTimeMillis() - start) / warmupWindow;
+        if (progress >= 1.0D) {
+            return 1.0D;
+        }
+        return Math.max(SlowStartMode.MIN_FACTOR, warmupMode.factor(Math.max(0.0D, progress)));
+    }
+
+    public boolean isDown() {
+        return down;
+    }
+
+    public MergeServerConfig getMergeServerConfig() {
+        return mergeServerConfig;
+    }
+
+    /**
+     * 熔断器状态
+     * 
+     * @return
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
     }
 
     /**
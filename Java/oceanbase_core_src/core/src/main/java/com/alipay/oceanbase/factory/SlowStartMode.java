@@ -0,0 +1,56 @@
+package com.alipay.oceanbase.factory;
+
+/**
+ * 新加入mergeserver的慢启动方式, progress为预热窗口已过去的比例(0-1)
+ */
+public enum SlowStartMode {
+
+    linear() {// 权重随时间线性增长
+        /**
+         *
+         * @see com.alipay.oceanbase.factory.SlowStartMode#factor(double)
+         */
+        @Override
+        public double factor(double progress) {
+            return progress;
+        }
+    },
+    exponential() {// 权重每过窗口的十分之一翻倍, 前期流量很小, 末期迅速放量
+        /**
+         *
+         * @see com.alipay.oceanbase.factory.SlowStartMode#factor(double)
+         */
+        @Override
+        public double factor(double progress) {
+            return Math.pow(2.0D, 10.0D * (progress - 1.0D));
+        }
+    };
+
+    public static final double MIN_FACTOR = 0.05D; // 预热期间至少保留的流量比例
+
+    /**
+     *
+     *
+     * @param progress
+     * @return
+     */
+    public abstract double factor(double progress);
+
+    /**
+     *
+     *
+     * @param mode
+     * @return 无法识别时返回linear
+     */
+    public static SlowStartMode parse(String mode) {
+        if (mode != null) {
+            for (SlowStartMode m : values()) {
+                if (m.name().equalsIgnoreCase(mode.trim())) {
+                    return m;
+                }
+            }
+        }
+        return linear;
+    }
+
+}
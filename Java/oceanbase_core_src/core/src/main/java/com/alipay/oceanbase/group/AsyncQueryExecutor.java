@@ -0,0 +1,185 @@
+package com.alipay.oceanbase.group;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.alipay.oceanbase.factory.DataSourceHolder;
+import com.alipay.oceanbase.group.MergeServerSelector.DataSourceTryer;
+import com.alipay.oceanbase.jdbc.QueryCallback;
+import com.alipay.oceanbase.jdbc.QueryFuture;
+import com.alipay.oceanbase.jdbc.RowMapper;
+import com.alipay.oceanbase.util.StripedCounter;
+import com.alipay.oceanbase.util.parse.RouteHint;
+import com.alipay.oceanbase.util.parse.SqlHintType;
+import com.alipay.oceanbase.util.thread.CustomerThreadFactory;
+
+/**
+ * 异步查询: 在有界线程池中经EquityMSManager.tryExecute选择mergeserver和重试, 结果按RowMapper转为对象后通过QueryFuture返回。<br/>
+ * 1. 每次执行使用独立的连接, 用完即归还连接池, 不占用调用方的连接;<br/>
+ * 2. 队列满时不阻塞调用方, 返回的QueryFuture直接以SQLException失败;<br/>
+ * 3. 路由的一致性、集群和hint由调用方线程计算后传入, 执行线程中没有OBRouting上下文。
+ */
+public class AsyncQueryExecutor {
+
+    private static final Logger            logger    = Logger.getLogger(AsyncQueryExecutor.class);
+
+    public static final AsyncQueryExecutor NONE      = new AsyncQueryExecutor(0, 0);
+
+    private final ThreadPoolExecutor       executor;
+    private final ExecutorService          cancelExecutor;
+
+    private final StripedCounter           submitted = new StripedCounter();
+    private final StripedCounter           rejected  = new StripedCounter();
+
+    /**
+     *
+     *
+     * @param threads 执行查询的线程数, 小于等于0时关闭
+     * @param queueSize 等待执行的查询数上限
+     */
+    public AsyncQueryExecutor(int threads, int queueSize) {
+        if (threads > 0) {
+            this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(queueSize, 1)),
+                new CustomerThreadFactory());
+            this.executor.allowCoreThreadTimeOut(true);
+            this.cancelExecutor = Executors.newSingleThreadExecutor(new CustomerThreadFactory());
+        } else {
+            this.executor = null;
+            this.cancelExecutor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * 关闭线程池, 还在排队的查询被取消
+     */
+    public void destroy() {
+        if (executor != null) {
+            for (Runnable task : executor.shutdownNow()) {
+                ((Future<?>) task).cancel(false);
+            }
+            cancelExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     *
+     *
+     * @param selector
+     * @param isConsistency
+     * @param whichCluster
+     * @param routeHint
+     * @param sql
+     * @param params 按顺序以setObject设置, 可以为null
+     * @param rowMapper
+     * @param callback 可以为null
+     * @return
+     * @throws SQLException 没有开启异步查询
+     */
+    public <T> QueryFuture<T> submit(final MergeServerSelector selector,
+                                     final boolean isConsistency, final SqlHintType whichCluster,
+                                     final RouteHint routeHint, final String sql,
+                                     Object[] params, final RowMapper<T> rowMapper,
+                                     QueryCallback<T> callback) throws SQLException {
+        if (!isEnabled()) {
+            throw new SQLException("async query is disabled");
+        }
+
+        final List<Object> args = params == null ? Collections.<Object> emptyList() : Arrays
+            .asList(params.clone());
+        final QueryCanceller canceller = new QueryCanceller();
+        final DataSourceTryer<List<T>> tryer = new DataSourceTryer<List<T>>() {
+            public List<T> tryOnDataSource(DataSourceHolder dsw, Object... ignored)
+                                                                                   throws SQLException {
+                return query(dsw, canceller, routeHint, sql, args, rowMapper);
+            }
+        };
+
+        QueryFuture<T> future = new QueryFuture<T>(new Callable<List<T>>() {
+            public List<T> call() throws SQLException {
+                return selector.tryExecute(tryer, isConsistency, whichCluster, routeHint, sql,
+                    args);
+            }
+        }, canceller, callback, cancelExecutor);
+
+        submitted.increment();
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.reject(new SQLException("async query rejected, queue is full", e));
+        }
+        return future;
+    }
+
+    private static <T> List<T> query(DataSourceHolder dsw, QueryCanceller canceller,
+                                     RouteHint routeHint, String sql, List<Object> args,
+                                     RowMapper<T> rowMapper) throws SQLException {
+        Connection conn = dsw.getDataSource().getConnection();
+        try {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            try {
+                if (routeHint.getTimeout() > 0) {
+                    ps.setQueryTimeout((int) Math.min((routeHint.getTimeout() + 999) / 1000,
+                        Integer.MAX_VALUE));
+                }
+                for (int i = 0; i < args.size(); i++) {
+                    ps.setObject(i + 1, args.get(i));
+                }
+
+                canceller.register(ps);
+                ResultSet rs = ps.executeQuery();
+                try {
+                    List<T> rows = new ArrayList<T>();
+                    for (int rowNum = 0; rs.next(); rowNum++) {
+                        rows.add(rowMapper.mapRow(rs, rowNum));
+                    }
+                    return rows;
+                } finally {
+                    rs.close();
+                }
+            } finally {
+                canceller.unregister();
+                ps.close();
+            }
+        } finally {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                logger.warn("close async query connection failed.", e);
+            }
+        }
+    }
+
+    /**
+     * submittedCount;rejectedCount;activeThreads;queued
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return submitted.sum() + ";" + rejected.sum() + ";"
+               + (executor == null ? 0 : executor.getActiveCount()) + ";"
+               + (executor == null ? 0 : executor.getQueue().size());
+    }
+}
@@ -0,0 +1,191 @@
+package com.alipay.oceanbase.group;
+
+import static com.alipay.oceanbase.util.OBDataSourceConstants.CLUSTER_DEFICIT_LIMIT;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SPLIT_CHAR;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.alipay.oceanbase.config.ClusterConfig;
+
+/**
+ * 多集群读流量的deficit均衡, 使实际读流量分布与cluster_flow_percent一致。<br/>
+ * 1. 强一致读被强制发往主集群, 若分布表此时选中的是备集群, 则给该备集群记一笔欠账;<br/>
+ * 2. 弱一致读选中主集群时, 转发给欠账最多的可用且复制延迟满足要求的备集群并偿还一笔, 没有欠账时仍发往主集群;<br/>
+ * 3. 欠账通过CAS增减, 单个集群上限CLUSTER_DEFICIT_LIMIT, 避免备集群长时间不可用后积压;<br/>
+ * 4. 各集群实际承担的读请求按线程分段计数, 用于输出实际/目标分布。
+ */
+final class ClusterBalancer {
+
+    private static final int      STRIPES = 16;                // 计数分段数, 2的幂
+    private static final int      PADDING = 8;                 // 每个计数独占一个cache line
+
+    private final ClusterConfig[] clusters;
+    private final int[]           targets;                     // 分布表中所占的槽位数
+    private final int             tableSize;
+    private final AtomicInteger[] deficits;
+    private final AtomicLongArray served;
+
+    ClusterBalancer(ClusterConfig[] table, ClusterConfig[] distinct, ClusterConfig masterCluster) {
+        int n = distinct.length;
+        boolean hasMaster = false;
+        for (ClusterConfig cc : distinct) {
+            hasMaster |= (cc == masterCluster);
+        }
+        if (!hasMaster && masterCluster != null) {// 主集群流量为0时也要统计强一致读
+            n++;
+        }
+
+        this.clusters = new ClusterConfig[n];
+        System.arraycopy(distinct, 0, this.clusters, 0, distinct.length);
+        if (n > distinct.length) {
+            this.clusters[n - 1] = masterCluster;
+        }
+
+        this.targets = new int[n];
+        for (ClusterConfig cc : table) {
+            int i = indexOf(cc);
+            if (i >= 0) {
+                targets[i]++;
+            }
+        }
+        this.tableSize = table.length;
+
+        this.deficits = new AtomicInteger[n];
+        for (int i = 0; i < n; i++) {
+            deficits[i] = new AtomicInteger(0);
+        }
+        this.served = new AtomicLongArray(STRIPES * n * PADDING);
+    }
+
+    /**
+     * 强一致读发往主集群, proposed为分布表本次选中的集群
+     *
+     * @param proposed
+     */
+    void onConsistencyRead(ClusterConfig proposed) {
+        if (!proposed.isMaster()) {
+            int i = indexOf(proposed);
+            if (i >= 0) {
+                AtomicInteger d = deficits[i];
+                int v;
+                do {
+                    v = d.get();
+                    if (v >= CLUSTER_DEFICIT_LIMIT) {
+                        break;
+                    }
+                } while (!d.compareAndSet(v, v + 1));
+            }
+        }
+    }
+
+    /**
+     * 弱一致读选中主集群时, 找欠账最多的可用备集群偿还
+     *
+     * @param maxLag 允许的最大复制延迟, ms, 负数表示不限制
+     * @return 没有需要偿还的备集群时返回null
+     */
+    ClusterConfig repay(long maxLag) {
+        while (true) {
+            int best = -1, max = 0;
+            for (int i = 0; i < clusters.length; i++) {
+                int v = deficits[i].get();
+                if (v > max && !clusters[i].isMaster() && !clusters[i].isInvalid()
+                    && !clusters[i].isStale(maxLag)) {
+                    best = i;
+                    max = v;
+                }
+            }
+
+            if (best < 0) {
+                return null;
+            }
+            if (deficits[best].compareAndSet(max, max - 1)) {
+                return clusters[best];
+            }
+        }
+    }
+
+    /**
+     * 记录读请求最终发往的集群
+     *
+     * @param cc
+     */
+    void served(ClusterConfig cc) {
+        int i = indexOf(cc);
+        if (i >= 0) {
+            int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+            served.getAndIncrement((stripe * clusters.length + i) * PADDING);
+        }
+    }
+
+    /**
+     *
+     *
+     * @param cc
+     * @return
+     */
+    long getServedCount(ClusterConfig cc) {
+        int i = indexOf(cc);
+        return i < 0 ? 0L : servedCount(i);
+    }
+
+    /**
+     *
+     *
+     * @param cc
+     * @return
+     */
+    int getDeficit(ClusterConfig cc) {
+        int i = indexOf(cc);
+        return i < 0 ? 0 : deficits[i].get();
+    }
+
+    /**
+     * clusterId;role;target%;realized%;served;deficit, 每个集群一行
+     *
+     * @return
+     */
+    String[] status() {
+        long total = 0;
+        long[] counts = new long[clusters.length];
+        for (int i = 0; i < clusters.length; i++) {
+            counts[i] = servedCount(i);
+            total += counts[i];
+        }
+
+        String[] lines = new String[clusters.length];
+        for (int i = 0; i < clusters.length; i++) {
+            ClusterConfig cc = clusters[i];
+            StringBuilder sb = new StringBuilder();
+            sb.append(cc.getClusterid()).append(SPLIT_CHAR)
+                .append(cc.isMaster() ? "master" : "slave").append(SPLIT_CHAR)
+                .append(percent(targets[i], tableSize)).append(SPLIT_CHAR)
+                .append(percent(counts[i], total)).append(SPLIT_CHAR).append(counts[i])
+                .append(SPLIT_CHAR).append(deficits[i].get());
+            lines[i] = sb.toString();
+        }
+        return lines;
+    }
+
+    private long servedCount(int i) {
+        long sum = 0;
+        for (int s = 0; s < STRIPES; s++) {
+            sum += served.get((s * clusters.length + i) * PADDING);
+        }
+        return sum;
+    }
+
+    private int indexOf(ClusterConfig cc) {
+        for (int i = 0; i < clusters.length; i++) {
+            if (clusters[i] == cc) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String percent(long part, long total) {
+        return total <= 0 ? "0.00" : String.format("%.2f", part * 100.0D / total);
+    }
+}
@@ -1,16 +1,20 @@
 package com.alipay.oceanbase.group;
 
+import static com.alipay.oceanbase.util.OBDataSourceConstants.DS_STATUS_MODULE_LOGGER_NAME;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.LB_MODULE_LOGGER_NAME;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.MASTER;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.MAX_REPLICA_LAG;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.MAX_REPLICA_LAG_KEY;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.READ_DIST_TABLE_SIZE;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.RETRY_IN_CLUSTER_TIMES;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.SLAVE;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
@@ -19,10 +23,14 @@ import com.alibaba.druid.pool.DataSourceDisableException;
 import com.alipay.oceanbase.config.ClusterConfig;
 import com.alipay.oceanbase.config.OBDataSourceConfig;
 import com.alipay.oceanbase.exception.DataSourceException;
+import com.alipay.oceanbase.factory.CircuitBreaker;
 import com.alipay.oceanbase.factory.DataSourceHolder;
+import com.alipay.oceanbase.group.RequestHedger.Outcome;
 import com.alipay.oceanbase.jdbc.sorter.OceanbaseBaseExceptionSorter;
 import com.alipay.oceanbase.task.UpdateConfigTask;
 import com.alipay.oceanbase.util.Helper;
+import com.alipay.oceanbase.util.ThreadLocalSequenceNumber;
+import com.alipay.oceanbase.util.parse.RouteHint;
 import com.alipay.oceanbase.util.parse.SqlHintType;
 
 /**
@@ -35,25 +43,32 @@ public class EquityMSManager implements MergeServerSelector {
 
     private static final Logger        logger               = Logger
                                                                 .getLogger(LB_MODULE_LOGGER_NAME);
+    private static final Logger        statusLogger         = Logger
+                                                                .getLogger(DS_STATUS_MODULE_LOGGER_NAME);
     private static final ReentrantLock lock                 = new ReentrantLock();
     private static volatile long       lastCompareTimestamp = 0L;
     private static final long          TIME                 = 1 * 100;
+    private static final int           ACQUIRE_TIMES        = 2;                               // 探测名额被占用时重选的次数
 
-    private volatile ClusterConfig[]   readDistTable        = new ClusterConfig[READ_DIST_TABLE_SIZE];
+    private volatile ReadDist          readDist             = null;
 
-    private AtomicInteger              masterCount          = new AtomicInteger(0);
-    private AtomicInteger              clusterIndex         = new AtomicInteger(0);
+    private ThreadLocalSequenceNumber  clusterIndex         = new ThreadLocalSequenceNumber(); // 线程私有游标
 
     private ClusterConfig              masterCluster        = null;
     private ClusterConfig              slaveCluster         = null;
 
     private Set<ClusterConfig>         clusters             = null;
 
+    private final long                 maxReplicaLag;                                          // ms, 负数表示不限制
+
     private final UpdateConfigTask     task;
+    private volatile RequestHedger     hedger               = RequestHedger.NONE;
 
     public EquityMSManager(OBDataSourceConfig obDataSourceConfig, UpdateConfigTask task) {
         this.clusters = obDataSourceConfig.getClusterConfigs();
         this.task = task;
+        this.maxReplicaLag = Helper.getInt(obDataSourceConfig.getConfigParams(),
+            MAX_REPLICA_LAG_KEY, MAX_REPLICA_LAG);
 
         Set<ClusterConfig> clusterConfigs = obDataSourceConfig.getClusterConfigs();
         for (ClusterConfig cc : clusterConfigs) {
@@ -68,7 +83,7 @@ public class EquityMSManager implements MergeServerSelector {
             throw new DataSourceException("master cluster is null, may be cluster switching");
         }
 
-        this.readDistTable = Helper.buildReadDistTable(clusters);
+        this.setReadDistTable(Helper.buildReadDistTable(clusters));
     }
 
     private void refreshConfig() {
@@ -101,28 +116,88 @@ public class EquityMSManager implements MergeServerSelector {
     @Override
     public <T> T tryExecute(DataSourceTryer<T> tryer, boolean isConsistency,
                             SqlHintType whichCluster, Object... args) throws SQLException {
+        return this.tryExecute(tryer, isConsistency, whichCluster, RouteHint.NONE, args);
+    }
+
+    /**
+     * 1. ob_route指定的mergeserver或集群优先于一致性和read_cluster的选择, 找不到时直接失败;<br/>
+     * 2. ob_retry覆盖默认的RETRY_IN_CLUSTER_TIMES;<br/>
+     * 3. ob_timeout只是重试的预算, 到期后不再重试; 已经发出的sql不会被取消, 只受statement的queryTimeout限制。
+     * 
+     * @see com.alipay.oceanbase.group.MergeServerSelector#tryExecute(com.alipay.oceanbase.group.MergeServerSelector.DataSourceTryer, boolean, com.alipay.oceanbase.util.parse.SqlHintType, com.alipay.oceanbase.util.parse.RouteHint, java.lang.Object[])
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T tryExecute(DataSourceTryer<T> tryer, boolean isConsistency,
+                            SqlHintType whichCluster, RouteHint routeHint, Object... args)
+                                                                                         throws SQLException {
+        long deadline = routeHint.getTimeout() > 0 ? System.nanoTime() + routeHint.getTimeout()
+                                                                          * 1000000L : 0L;
+        int times = routeHint.getExecuteTimes(RETRY_IN_CLUSTER_TIMES);
 
-        ClusterConfig clusterConfig = this.selectCluster(isConsistency, whichCluster);
+        ClusterConfig clusterConfig = this.selectCluster(isConsistency, whichCluster, routeHint);
         List<DataSourceHolder> excludeKeys = new ArrayList<DataSourceHolder>();
 
         SQLException exception = null;
-        for (int i = 0; i < RETRY_IN_CLUSTER_TIMES; i++) {
-            DataSourceHolder dataSourceHolder = clusterConfig.getEquityStrategy().select(
-                excludeKeys, args);
+        for (int i = 0; i < times; i++) {
+            if (i > 0 && deadline != 0L && System.nanoTime() - deadline >= 0) {
+                logger.warn("ob_timeout(" + routeHint.getTimeout() + "ms) expired, give up retry");
+                break;
+            }
+
+            DataSourceHolder dataSourceHolder = this.selectDataSource(clusterConfig, excludeKeys,
+                routeHint, args);
+            long permit = dataSourceHolder.tryAcquire();
+            List<DataSourceHolder> rejected = null;
+            // 半开状态的探测名额已被并发的请求占用时换一个
+            for (int j = 0; permit == CircuitBreaker.REJECTED && j < ACQUIRE_TIMES; j++) {
+                if (rejected == null) {
+                    rejected = new ArrayList<DataSourceHolder>(excludeKeys);
+                }
+                rejected.add(dataSourceHolder);
+                dataSourceHolder = this.selectDataSource(clusterConfig, rejected, routeHint, args);
+                permit = dataSourceHolder.tryAcquire();
+            }// 仍然没有名额时与全部不可用时相同, 照常发送, 结果不计入探测
 
             if (logger.isDebugEnabled()) {
                 logger.debug("sql will send to " + dataSourceHolder);
             }
 
+            long start = System.nanoTime();
+            boolean reported = false;// 结果是否已计入熔断器, 否则归还半开状态的探测名额
+            dataSourceHolder.incrementInflight();
             try {
+                if (isHedgeable(tryer, isConsistency, routeHint)) {
+                    Outcome<T> outcome = hedger.execute((HedgeableTryer<T>) tryer,
+                        dataSourceHolder, clusterConfig.getEquityStrategy(), excludeKeys, args);
+                    if (outcome.getWinner() == dataSourceHolder) {
+                        long elapsed = System.nanoTime() - start;
+                        dataSourceHolder.recordResponseTime(elapsed);
+                        dataSourceHolder.audit(0, elapsed, permit);
+                        reported = true;
+                    } else if (outcome.getPrimaryError() != null) {// 对冲请求胜出前已经失败
+                        boolean isFatal = OceanbaseBaseExceptionSorter.isExceptionFatal(outcome
+                            .getPrimaryError());
+                        dataSourceHolder.audit(isFatal ? 1 : 0, System.nanoTime() - start,
+                            permit);
+                        reported = true;
+                    }
+                    return outcome.getResult();// 被对冲请求取消时不计入
+                }
+
                 T ret = tryer.tryOnDataSource(dataSourceHolder, args);
-                dataSourceHolder.audit(0);// 该数据源可用概率增加
+                long elapsed = System.nanoTime() - start;
+                dataSourceHolder.recordResponseTime(elapsed);
+                dataSourceHolder.audit(0, elapsed, permit);// 该数据源可用概率增加
+                reported = true;
 
                 return ret;
             } catch (DataSourceDisableException dde) {
                 logger.warn("druid datasource has destroy, will retry.");
                 i--;
             } catch (SQLException e) {
+                long elapsed = System.nanoTime() - start;
+                dataSourceHolder.recordResponseTime(elapsed);
                 exception = e;
                 try {
                     exception.initCause(new SQLException(dataSourceHolder.toString()));
@@ -133,6 +208,10 @@ public class EquityMSManager implements MergeServerSelector {
                 boolean isFatal = OceanbaseBaseExceptionSorter.isExceptionFatal(e);
                 boolean isNotMaster = OceanbaseBaseExceptionSorter.isNotMasterClusterFatal(e);
 
+                if (!isFatal) {// mergeserver有响应, 按成功计入
+                    dataSourceHolder.audit(0, elapsed, permit);
+                    reported = true;
+                }
                 if (!isNotMaster && !isFatal) {
                     break;
                 }
@@ -141,75 +220,191 @@ public class EquityMSManager implements MergeServerSelector {
 
                 if (isFatal) {
                     excludeKeys.add(dataSourceHolder);
-                    dataSourceHolder.audit(1);// 该数据源不可用概率增加
+                    dataSourceHolder.audit(1, elapsed, permit);// 该数据源不可用概率增加
+                    reported = true;
                 }
 
                 if (isNotMaster) {
-                    clusterConfig = this.selectCluster(isConsistency, whichCluster);
+                    clusterConfig = this.selectCluster(isConsistency, whichCluster, routeHint);
                 }
 
                 logger.warn("try locate on [" + dataSourceHolder + "] failed, ", e);
+            } finally {
+                if (!reported) {
+                    dataSourceHolder.abort(permit);
+                }
+                dataSourceHolder.decrementInflight();
             }
         }
 
         throw exception;
     }
 
+    /**
+     * 只对冲弱一致读, ob_route指定了mergeserver时不对冲
+     */
+    private boolean isHedgeable(DataSourceTryer<?> tryer, boolean isConsistency,
+                                RouteHint routeHint) {
+        return !isConsistency && hedger.isEnabled() && routeHint.getServer() == null
+               && tryer instanceof HedgeableTryer;
+    }
+
+    /**
+     * ob_route(ms=ip:port)指定了mergeserver时在各集群中查找, 否则由集群的策略选择
+     */
+    private DataSourceHolder selectDataSource(ClusterConfig clusterConfig,
+                                              List<DataSourceHolder> excludeKeys,
+                                              RouteHint routeHint, Object... args)
+                                                                                  throws SQLException {
+        String server = routeHint.getServer();
+        if (server == null) {
+            return clusterConfig.getEquityStrategy().select(excludeKeys, args);
+        }
+
+        DataSourceHolder dsh = clusterConfig.getEquityStrategy().getDataSourceHolder(server);
+        for (Iterator<ClusterConfig> it = clusters.iterator(); dsh == null && it.hasNext();) {
+            dsh = it.next().getEquityStrategy().getDataSourceHolder(server);
+        }
+        if (dsh == null) {
+            throw new SQLException("mergeserver in ob_route hint not found: " + server);
+        }
+        return dsh;
+    }
+
+    /**
+     * ob_route(cluster=id)指定了集群时直接返回该集群, ob_max_lag覆盖数据源配置的maxReplicaLag
+     * 
+     * @param isConsistency
+     * @param whichCluster
+     * @param routeHint
+     * @return
+     * @throws SQLException 指定的集群不存在
+     */
+    protected ClusterConfig selectCluster(boolean isConsistency, SqlHintType whichCluster,
+                                          RouteHint routeHint) throws SQLException {
+        long clusterId = routeHint.getClusterId();
+        if (clusterId < 0) {
+            long maxLag = routeHint.getMaxLag() >= 0 ? routeHint.getMaxLag() : maxReplicaLag;
+            return this.selectCluster(isConsistency, whichCluster, maxLag);
+        }
+
+        for (ClusterConfig cc : clusters) {
+            if (cc.getClusterid() == clusterId) {
+                return cc;
+            }
+        }
+        throw new SQLException("cluster in ob_route hint not found: " + clusterId);
+    }
+
     /**
      * 1. 如果非一致性读请求（select sql或weak hint sql），进入选择，否则直接返回主，并给主增加计数，不参与选择。<br/>
      * 2. 选择规则：<br/>
      *    a. 如果选择任意的集群为不可用状态，则重选，当所有集群皆都不可用，则默认返回主；<br/>
-     *    b. 如果选择主，则查看主集群计数值是否为小于或者等于0，否则重新选择；<br/>
+     *    b. 如果选择主，则转发给因强一致读而欠账最多的备集群，没有欠账时返回主；<br/>
      *    c. 如果选择备，则返回。<br/>
      * 3. 新增hint指定主备集群查询。 
      *    /*+read_cluster(master)* / 
      *    /*+read_cluster(slave)* /
+     * 4. 复制延迟超过maxReplicaLag的备集群视为不可用, 指定备集群时改发主集群。
      * 
      * @param isConsistency
      * @return
      */
     protected ClusterConfig selectCluster(boolean isConsistency, SqlHintType whichCluster) {
+        return this.selectCluster(isConsistency, whichCluster, maxReplicaLag);
+    }
+
+    /**
+     * 
+     * 
+     * @param isConsistency
+     * @param whichCluster
+     * @param maxLag 允许的最大复制延迟, ms, 负数表示不限制
+     * @return
+     */
+    protected ClusterConfig selectCluster(boolean isConsistency, SqlHintType whichCluster,
+                                          long maxLag) {
         if (SqlHintType.CLUSTER_MASTER == whichCluster) {
             if (logger.isDebugEnabled()) {
                 logger.debug("sql will send to master cluster");
             }
             return masterCluster;
         } else if (SqlHintType.CLUSTER_SLAVE == whichCluster) {
+            if (slaveCluster != null && slaveCluster.isStale(maxLag)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("slave cluster lag " + slaveCluster.getReplicaLag()
+                                 + "ms, sql will send to master cluster");
+                }
+                return masterCluster;
+            }
             if (logger.isDebugEnabled()) {
                 logger.debug("sql will send to slave cluster");
             }
             return slaveCluster;
         }
 
-        boolean found = false;
-        ClusterConfig cluster = null;
-        for (int i = 0; i < READ_DIST_TABLE_SIZE / 2; ++i) {
-            cluster = readDistTable[Math.abs(clusterIndex.getAndIncrement() % READ_DIST_TABLE_SIZE)];
-            if (!cluster.isInvalid()) {// 选择的集群可用，并且不在requested中
-                found = true;
-                break;
+        ReadDist dist = this.readDist;
+        int seq = clusterIndex.getSequenceNumber();
+        ClusterConfig cluster = dist.table[seq % READ_DIST_TABLE_SIZE];
+
+        if (cluster.isInvalid() || cluster.isStale(maxLag)) {// 选择的集群不可用，从分布表中的其他集群里轮流选一个可用的
+            ClusterConfig[] candidates = dist.clusters;
+            cluster = null;
+            for (int i = 0; i < candidates.length; ++i) {
+                ClusterConfig cc = candidates[(seq + i) % candidates.length];
+                if (!cc.isInvalid() && !cc.isStale(maxLag)) {
+                    cluster = cc;
+                    break;
+                }
             }
         }
 
-        if (!found) {
+        if (cluster == null) {
             logger
-                .error("all cluster is invalid, but sql will send to master cluster, please check!");
+                .error("all cluster is invalid or lagging, but sql will send to master cluster, please check!");
+            dist.balancer.served(masterCluster);
             return masterCluster;
         }
 
         if (isConsistency) {
-            if (!cluster.isMaster()) {
-                masterCount.incrementAndGet();
+            dist.balancer.onConsistencyRead(cluster);// 本应由备集群承担的读, 记入该备集群的欠账
+            cluster = masterCluster;
+        } else if (cluster.isMaster()) {
+            ClusterConfig repaid = dist.balancer.repay(maxLag);
+            if (repaid != null) {
+                cluster = repaid;
             }
-            return masterCluster;
         }
 
-        if (slaveCluster != null && slaveCluster.getPercent() > 0L && cluster.isMaster()
-            && Helper.atomicDecIfPositive(masterCount) >= 0) {// 如果选中主，则取决主集群的总请求数是否大于等于0；是，则重新选择
-            return slaveCluster;
+        dist.balancer.served(cluster);
+        return cluster;
+    }
+
+    /**
+     * 
+     * @see com.alipay.oceanbase.group.MergeServerSelector#printClusterStatus()
+     */
+    @Override
+    public void printClusterStatus() {
+        if (statusLogger.isInfoEnabled()) {
+            for (String line : this.readDist.balancer.status()) {
+                statusLogger.info(line);
+            }
         }
+    }
 
-        return cluster;
+    /**
+     * 
+     * 
+     * @param cc
+     * @return 当前分布表生效以来发往该集群的读请求数
+     */
+    long getServedCount(ClusterConfig cc) {
+        return this.readDist.balancer.getServedCount(cc);
+    }
+
+    public void setHedger(RequestHedger hedger) {
+        this.hedger = hedger;
     }
 
     /**
@@ -218,6 +413,27 @@ public class EquityMSManager implements MergeServerSelector {
      */
     @Override
     public void setReadDistTable(ClusterConfig[] readDistTable) {
-        this.readDistTable = readDistTable;
+        this.readDist = new ReadDist(readDistTable, masterCluster);
+    }
+
+    /**
+     * 读流量分布表及其中出现的集群, 整体替换以保证两者及均衡计数一致
+     */
+    private static final class ReadDist {
+        final ClusterConfig[] table;
+        final ClusterConfig[] clusters;
+        final ClusterBalancer balancer;
+
+        ReadDist(ClusterConfig[] table, ClusterConfig masterCluster) {
+            Set<ClusterConfig> distinct = new LinkedHashSet<ClusterConfig>();
+            for (ClusterConfig cc : table) {
+                if (cc != null) {
+                    distinct.add(cc);
+                }
+            }
+            this.table = table;
+            this.clusters = distinct.toArray(new ClusterConfig[distinct.size()]);
+            this.balancer = new ClusterBalancer(table, clusters, masterCluster);
+        }
     }
 }
@@ -4,6 +4,7 @@ import java.sql.SQLException;
 
 import com.alipay.oceanbase.config.ClusterConfig;
 import com.alipay.oceanbase.factory.DataSourceHolder;
+import com.alipay.oceanbase.util.parse.RouteHint;
 import com.alipay.oceanbase.util.parse.SqlHintType;
 
 /**
@@ -17,10 +18,29 @@ public interface MergeServerSelector {
     <T> T tryExecute(DataSourceTryer<T> tryer, boolean isConsistency, SqlHintType isMasterCluster,
                      Object... args) throws SQLException;
 
+    /**
+     * 按路由hint执行: 指定mergeserver或集群, 客户端截止时间, 重试次数
+     */
+    <T> T tryExecute(DataSourceTryer<T> tryer, boolean isConsistency, SqlHintType isMasterCluster,
+                     RouteHint routeHint, Object... args) throws SQLException;
+
     public void setReadDistTable(ClusterConfig[] readDistTable);
 
+    /**
+     * 输出各集群的目标与实际读流量分布
+     */
+    public void printClusterStatus();
+
     public static interface DataSourceTryer<T> {
         T tryOnDataSource(DataSourceHolder dsw, Object... args) throws SQLException;
     }
 
+    /**
+     * 可以对冲执行的tryer: 每次执行使用独立的连接, 返回与连接无关的结果, 可以在多个线程中同时执行
+     */
+    public static interface HedgeableTryer<T> extends DataSourceTryer<T> {
+        T tryOnDataSource(DataSourceHolder dsw, QueryCanceller canceller, Object... args)
+                                                                                      throws SQLException;
+    }
+
 }
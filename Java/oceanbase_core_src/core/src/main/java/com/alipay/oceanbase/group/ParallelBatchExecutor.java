@@ -0,0 +1,209 @@
+package com.alipay.oceanbase.group;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.alipay.oceanbase.util.StripedCounter;
+import com.alipay.oceanbase.util.thread.CustomerThreadFactory;
+
+/**
+ * 自动提交模式下把一次executeBatch按行切成若干块, 并发地在不同的mergeserver上执行, 再按原来的顺序拼接结果。<br/>
+ * 1. 一次batch最多parallelism个并发, 调用线程自己也执行分块, 其余由共享的有界线程池执行, 线程池满时少开并发(最少退化为串行);<br/>
+ * 2. 每块各自经过EquityMSManager.tryExecute选择mergeserver和重试;<br/>
+ * 3. 某块失败后不再执行新的分块, 抛出BatchUpdateException, 结果中失败和未执行的行为EXECUTE_FAILED, 已执行的块不回滚;<br/>
+ * 4. 调用线程执行完自己能取到的分块后, 取消还在排队的任务, 只等待正在执行的分块, 返回后不会再有分块访问batch的参数。
+ */
+public class ParallelBatchExecutor {
+
+    public static final ParallelBatchExecutor NONE     = new ParallelBatchExecutor(0, 0, 0);
+
+    private final int                         parallelism;
+    private final int                         chunkRows;
+    private final ThreadPoolExecutor          executor;
+
+    private final StripedCounter              batches  = new StripedCounter();
+    private final StripedCounter              chunks   = new StripedCounter();
+
+    /**
+     *
+     *
+     * @param parallelism 一次batch同时执行的分块数, 小于等于1时关闭
+     * @param chunkRows 每块的行数
+     * @param threads 共享线程池的线程数
+     */
+    public ParallelBatchExecutor(int parallelism, int chunkRows, int threads) {
+        this.parallelism = parallelism;
+        this.chunkRows = Math.max(chunkRows, 1);
+        if (isEnabled()) {
+            int n = Math.max(threads, 1);
+            this.executor = new ThreadPoolExecutor(n, n, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(n), new CustomerThreadFactory(),
+                new ThreadPoolExecutor.DiscardPolicy());// 调用线程会执行剩余的分块
+            this.executor.allowCoreThreadTimeOut(true);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return parallelism > 1;
+    }
+
+    /**
+     *
+     *
+     * @param rows batch的行数
+     * @return 超过一块时并发执行
+     */
+    public boolean isParallel(int rows) {
+        return isEnabled() && rows > chunkRows;
+    }
+
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     *
+     *
+     * @param rows
+     * @param chunk 执行[from, to)行
+     * @return 按原顺序的影响行数
+     * @throws SQLException
+     */
+    public int[] execute(final int rows, final Chunk chunk) throws SQLException {
+        if (executor.isShutdown()) {
+            throw new SQLException("parallel batch executor has been shut down");
+        }
+
+        final int[] result = new int[rows];
+        final int count = (rows + chunkRows - 1) / chunkRows;
+        final AtomicInteger next = new AtomicInteger(0);
+        final AtomicReference<SQLException> error = new AtomicReference<SQLException>();
+        final InFlight inFlight = new InFlight();
+        batches.increment();
+
+        Runnable worker = new Runnable() {
+            public void run() {
+                for (;;) {
+                    inFlight.enter();// 先登记再取分块, 调用线程等待时不会漏掉
+                    try {
+                        if (error.get() != null) {
+                            return;
+                        }
+                        int i = next.getAndIncrement();
+                        if (i >= count) {
+                            return;
+                        }
+                        executeChunk(chunk, i, rows, result, error);
+                    } finally {
+                        inFlight.exit();
+                    }
+                }
+            }
+        };
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 1, n = Math.min(parallelism, count); i < n; i++) {
+            futures.add(executor.submit(worker));
+        }
+        worker.run();
+
+        // 分块已经取完或者已经失败, 排队的任务不需要再执行
+        for (Future<?> future : futures) {
+            future.cancel(false);
+        }
+        inFlight.await();
+
+        SQLException e = error.get();
+        if (e != null) {
+            int executed = Math.min(next.get(), count) * chunkRows;// 之后的分块没有执行
+            if (executed < rows) {
+                Arrays.fill(result, executed, rows, Statement.EXECUTE_FAILED);
+            }
+            throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(),
+                result, e);
+        }
+        return result;
+    }
+
+    private void executeChunk(Chunk chunk, int i, int rows, int[] result,
+                              AtomicReference<SQLException> error) {
+        int from = i * chunkRows, to = Math.min(rows, from + chunkRows);
+        chunks.increment();
+        try {
+            int[] counts = chunk.execute(from, to);
+            System.arraycopy(counts, 0, result, from, to - from);
+        } catch (SQLException e) {
+            Arrays.fill(result, from, to, Statement.EXECUTE_FAILED);
+            error.compareAndSet(null, e);
+        } catch (RuntimeException e) {
+            Arrays.fill(result, from, to, Statement.EXECUTE_FAILED);
+            error.compareAndSet(null, new SQLException("execute batch chunk failed", e));
+        }
+    }
+
+    /**
+     * batchCount;chunkCount;activeThreads
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return batches.sum() + ";" + chunks.sum() + ";"
+               + (executor == null ? 0 : executor.getActiveCount());
+    }
+
+    /**
+     * 正在执行分块的线程数
+     */
+    private static final class InFlight {
+        private int count = 0;
+
+        synchronized void enter() {
+            count++;
+        }
+
+        synchronized void exit() {
+            if (--count == 0) {
+                notifyAll();
+            }
+        }
+
+        /**
+         * 等待正在执行的分块结束, 被中断时也继续等待(保留中断状态), 避免返回后分块仍在读取batch的参数
+         */
+        synchronized void await() {
+            boolean interrupted = false;
+            while (count > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 执行batch中的一块
+     */
+    public interface Chunk {
+        int[] execute(int from, int to) throws SQLException;
+    }
+}
@@ -0,0 +1,58 @@
+package com.alipay.oceanbase.group;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.log4j.Logger;
+
+/**
+ * 取消一次执行中的查询: 执行方注册statement, 另一个线程调用cancel时对其调用Statement.cancel()。<br/>
+ * cancel之后注册的statement直接失败, 不再发往mergeserver。
+ */
+public class QueryCanceller {
+
+    private static final Logger logger    = Logger.getLogger(QueryCanceller.class);
+
+    private Statement           statement = null;
+    private boolean             cancelled = false;
+
+    /**
+     *
+     *
+     * @param statement
+     * @throws SQLException 已经被取消
+     */
+    public synchronized void register(Statement statement) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("query cancelled");
+        }
+        this.statement = statement;
+    }
+
+    public synchronized void unregister() {
+        this.statement = null;
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * mysql驱动的cancel会新建连接执行KILL QUERY, 不要在业务线程中调用
+     */
+    public void cancel() {
+        Statement stmt;
+        synchronized (this) {
+            cancelled = true;
+            stmt = this.statement;
+        }
+
+        if (stmt != null) {
+            try {
+                stmt.cancel();
+            } catch (SQLException e) {
+                logger.warn("cancel statement failed", e);
+            }
+        }
+    }
+}
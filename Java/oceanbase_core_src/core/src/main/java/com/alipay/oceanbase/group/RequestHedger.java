@@ -0,0 +1,362 @@
+package com.alipay.oceanbase.group;
+
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEDGE_MIN_SAMPLES;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.LB_MODULE_LOGGER_NAME;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.alipay.oceanbase.factory.CircuitBreaker;
+import com.alipay.oceanbase.factory.DataSourceHolder;
+import com.alipay.oceanbase.group.MergeServerSelector.HedgeableTryer;
+import com.alipay.oceanbase.jdbc.sorter.OceanbaseBaseExceptionSorter;
+import com.alipay.oceanbase.strategy.EquityStrategy;
+import com.alipay.oceanbase.util.StripedCounter;
+import com.alipay.oceanbase.util.thread.CustomerThreadFactory;
+
+/**
+ * 弱一致读的对冲请求(hedged request): 第一个mergeserver在延迟阈值内没有返回时, 向策略选出的另一个mergeserver发送同样的查询,
+ * 取先返回的结果, 取消另一个。<br/>
+ * 1. 第一个请求在业务线程中执行, 对冲请求在hedger的线程中执行, 未触发对冲时只多一次定时任务的提交和取消;<br/>
+ * 2. 延迟阈值为第一个mergeserver响应时间的分位数(默认p95), 不小于minDelay, 样本不足HEDGE_MIN_SAMPLES时不对冲;<br/>
+ * 3. 对冲额度按令牌桶计算: 每个可对冲的请求积累percent%个额度, 最多积累10次, 对冲次数不超过流量的percent%, 过载时不会放大流量;<br/>
+ * 4. 第一个请求失败时, 若对冲请求已发出则等待它的结果, 都失败时抛出第一个请求的异常, 由EquityMSManager决定是否重试;<br/>
+ * 5. 第一个请求输了时由对冲线程调用Statement.cancel()取消, 对冲请求输了时在单独的取消线程中取消;<br/>
+ * 6. 对冲任务先以CAS从RUNNING进入LAUNCHED再选择mergeserver, 第一个请求结束时以CAS进入PRIMARY_DONE,
+ *    因此总能看到并取消已经开始的对冲请求;<br/>
+ * 7. 对冲请求的响应时间和结果在hedger中记录, 返回的Outcome指明胜出的mergeserver, 第一个请求输了时由EquityMSManager决定如何记录。
+ */
+public class RequestHedger {
+
+    private static final Logger            logger        = Logger
+                                                               .getLogger(LB_MODULE_LOGGER_NAME);
+
+    public static final RequestHedger      NONE          = new RequestHedger(0, 0, 0, 0);
+
+    private static final int               CREDIT        = 100; // 一次对冲消耗的额度
+    private static final int               MAX_CREDITS   = 10 * CREDIT;
+
+    private static final int               RUNNING       = 0;
+    private static final int               LAUNCHED      = 1;  // 对冲任务已开始, 之后才选择和发出对冲请求
+    private static final int               PRIMARY_DONE  = 2;
+    private static final int               SECONDARY_WON = 3;
+
+    private final int                      percent;
+    private final double                   percentile;
+    private final long                     minDelay;            // ns
+    private final ScheduledExecutorService executor;
+    private final ExecutorService          cancelExecutor;      // 对冲线程可能都在执行对冲请求, 取消在单独的线程中执行
+    private final AtomicInteger            credits       = new AtomicInteger(0);
+
+    private final StripedCounter           hedged        = new StripedCounter();
+    private final StripedCounter           won           = new StripedCounter();
+
+    /**
+     *
+     *
+     * @param percent 对冲请求占可对冲流量的最大百分比, 小于等于0时关闭
+     * @param percentile 延迟阈值取响应时间的分位数
+     * @param minDelay 最小的延迟阈值, ms
+     * @param threads 执行对冲请求的线程数
+     */
+    public RequestHedger(int percent, double percentile, long minDelay, int threads) {
+        this.percent = Math.min(percent, CREDIT);
+        this.percentile = percentile;
+        this.minDelay = minDelay * 1000000L;
+        this.executor = isEnabled() ? new ScheduledThreadPoolExecutor(Math.max(threads, 1),
+            new CustomerThreadFactory()) : null;
+        this.cancelExecutor = isEnabled() ? Executors
+            .newSingleThreadExecutor(new CustomerThreadFactory()) : null;
+    }
+
+    public boolean isEnabled() {
+        return percent > 0;
+    }
+
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            cancelExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 在primary上执行, 超过延迟阈值时对冲
+     *
+     * @param tryer
+     * @param primary
+     * @param strategy 选择对冲的mergeserver
+     * @param excludeKeys 本次执行中已经失败的mergeserver
+     * @param args
+     * @return 结果和胜出的mergeserver
+     * @throws SQLException 第一个请求的异常
+     */
+    public <T> Outcome<T> execute(HedgeableTryer<T> tryer, DataSourceHolder primary,
+                                  EquityStrategy strategy, List<DataSourceHolder> excludeKeys,
+                                  Object... args) throws SQLException {
+        deposit();
+        long delay = this.getDelay(primary);
+        if (delay <= 0) {
+            return new Outcome<T>(tryer.tryOnDataSource(primary, new QueryCanceller(), args),
+                primary, null);
+        }
+
+        Hedge<T> hedge = new Hedge<T>(tryer, primary, strategy, excludeKeys, args);
+        ScheduledFuture<?> timer = executor.schedule(hedge, delay, TimeUnit.NANOSECONDS);
+        try {
+            T ret = tryer.tryOnDataSource(primary, hedge.primaryCanceller, args);
+            if (this.finishPrimary(hedge)) {
+                return new Outcome<T>(ret, primary, null);
+            }
+            return new Outcome<T>(hedge.result, hedge.secondary, null);
+        } catch (SQLException e) {
+            boolean cancelled = hedge.primaryCanceller.isCancelled();// 等待期间对冲请求胜出也会取消
+            if (hedge.state.get() == LAUNCHED) {
+                try {
+                    hedge.done.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (hedge.state.get() == SECONDARY_WON) {// 被对冲请求取消时不是第一个请求的错误
+                return new Outcome<T>(hedge.result, hedge.secondary, cancelled ? null : e);
+            }
+            throw e;
+        } finally {
+            timer.cancel(false);
+            this.finishPrimary(hedge);
+        }
+    }
+
+    /**
+     * 第一个请求结束: 之后不再发出对冲请求, 已经开始的对冲请求被取消
+     *
+     * @param hedge
+     * @return 对冲请求没有胜出
+     */
+    private boolean finishPrimary(Hedge<?> hedge) {
+        for (;;) {
+            int s = hedge.state.get();
+            if (s == SECONDARY_WON) {
+                return false;
+            } else if (s == PRIMARY_DONE) {
+                return true;
+            } else if (hedge.state.compareAndSet(s, PRIMARY_DONE)) {
+                if (s == LAUNCHED && hedge.done.getCount() > 0) {
+                    cancelAsync(hedge.secondaryCanceller);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     *
+     *
+     * @param dsh
+     * @return 延迟阈值, ns, 样本不足时返回-1
+     */
+    long getDelay(DataSourceHolder dsh) {
+        if (dsh.getLatencyHistogram().getCount() < HEDGE_MIN_SAMPLES) {
+            return -1L;
+        }
+        return Math.max(minDelay, dsh.getLatencyHistogram().getPercentile(percentile));
+    }
+
+    private void deposit() {
+        for (;;) {
+            int current = credits.get();
+            if (current >= MAX_CREDITS
+                || credits.compareAndSet(current, Math.min(current + percent, MAX_CREDITS))) {
+                return;
+            }
+        }
+    }
+
+    boolean tryAcquire() {
+        for (;;) {
+            int current = credits.get();
+            if (current < CREDIT) {
+                return false;
+            }
+            if (credits.compareAndSet(current, current - CREDIT)) {
+                return true;
+            }
+        }
+    }
+
+    private void cancelAsync(final QueryCanceller canceller) {
+        try {
+            cancelExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    canceller.cancel();
+                }
+            });
+        } catch (Exception e) {// hedger已关闭
+            logger.warn("cancel hedged query failed", e);
+        }
+    }
+
+    public long getHedgedCount() {
+        return hedged.sum();
+    }
+
+    public long getWonCount() {
+        return won.sum();
+    }
+
+    /**
+     * hedgedCount;wonCount;credits
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return getHedgedCount() + ";" + getWonCount() + ";" + credits.get();
+    }
+
+    /**
+     * 对冲执行的结果
+     */
+    public static final class Outcome<T> {
+        private final T                result;
+        private final DataSourceHolder winner;
+        private final SQLException     primaryError;
+
+        Outcome(T result, DataSourceHolder winner, SQLException primaryError) {
+            this.result = result;
+            this.winner = winner;
+            this.primaryError = primaryError;
+        }
+
+        public T getResult() {
+            return result;
+        }
+
+        /**
+         *
+         *
+         * @return 返回结果的mergeserver, 响应时间只应计入它
+         */
+        public DataSourceHolder getWinner() {
+            return winner;
+        }
+
+        /**
+         *
+         *
+         * @return 对冲请求胜出前第一个请求已经失败时的异常, 否则为null
+         */
+        public SQLException getPrimaryError() {
+            return primaryError;
+        }
+    }
+
+    /**
+     * 一次对冲, 由定时任务在延迟阈值后执行
+     */
+    private final class Hedge<T> implements Runnable {
+        final HedgeableTryer<T>      tryer;
+        final DataSourceHolder       primary;
+        final EquityStrategy         strategy;
+        final List<DataSourceHolder> excludeKeys;
+        final Object[]               args;
+
+        final QueryCanceller         primaryCanceller   = new QueryCanceller();
+        final QueryCanceller         secondaryCanceller = new QueryCanceller();
+        final AtomicInteger          state              = new AtomicInteger(RUNNING);
+        final CountDownLatch         done               = new CountDownLatch(1);
+        volatile DataSourceHolder    secondary          = null;
+        volatile T                   result;
+
+        Hedge(HedgeableTryer<T> tryer, DataSourceHolder primary, EquityStrategy strategy,
+              List<DataSourceHolder> excludeKeys, Object[] args) {
+            this.tryer = tryer;
+            this.primary = primary;
+            this.strategy = strategy;
+            this.excludeKeys = new ArrayList<DataSourceHolder>(excludeKeys);
+            this.excludeKeys.add(primary);
+            this.args = args;
+        }
+
+        @Override
+        public void run() {
+            DataSourceHolder secondary = null;
+            long permit = CircuitBreaker.PASS;
+            try {
+                if (!state.compareAndSet(RUNNING, LAUNCHED) || !tryAcquire()) {// 第一个请求已经结束或没有额度
+                    return;
+                }
+                secondary = strategy.select(excludeKeys, args);
+                if (secondary == null || excludeKeys.contains(secondary)) {
+                    secondary = null;
+                    return;
+                }
+                permit = secondary.tryAcquire();
+                if (permit == CircuitBreaker.REJECTED) {// 半开状态的探测名额已被占用, 不对冲
+                    secondary = null;
+                    return;
+                }
+                this.secondary = secondary;
+                hedged.increment();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("hedge query from " + primary + " to " + secondary);
+                }
+            } catch (Exception e) {
+                logger.warn("select hedged mergeserver failed", e);
+                return;
+            } finally {
+                if (secondary == null) {
+                    state.compareAndSet(LAUNCHED, RUNNING);// 没有发出对冲请求
+                    done.countDown();
+                }
+            }
+
+            long start = System.nanoTime();
+            boolean reported = false;
+            secondary.incrementInflight();
+            try {
+                T ret = tryer.tryOnDataSource(secondary, secondaryCanceller, args);
+                long elapsed = System.nanoTime() - start;
+                secondary.recordResponseTime(elapsed);
+                secondary.audit(0, elapsed, permit);
+                reported = true;
+
+                result = ret;
+                if (state.compareAndSet(LAUNCHED, SECONDARY_WON)) {
+                    won.increment();
+                    primaryCanceller.cancel();
+                }
+            } catch (SQLException e) {
+                if (!secondaryCanceller.isCancelled()) {
+                    long elapsed = System.nanoTime() - start;
+                    secondary.recordResponseTime(elapsed);
+                    secondary.audit(OceanbaseBaseExceptionSorter.isExceptionFatal(e) ? 1 : 0,
+                        elapsed, permit);
+                    reported = true;
+                    logger.warn("hedged query on [" + secondary + "] failed, ", e);
+                }
+            } catch (Throwable t) {
+                logger.warn("hedged query on [" + secondary + "] failed, ", t);
+            } finally {
+                if (!reported) {// 被取消的对冲请求没有结果
+                    secondary.abort(permit);
+                }
+                secondary.decrementInflight();
+                done.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.alipay.oceanbase.jdbc;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import com.alipay.oceanbase.jdbc.parameter.BatchBuffer;
+import com.alipay.oceanbase.util.StripedCounter;
+import com.alipay.oceanbase.util.parse.InsertValues;
+
+/**
+ * 批量insert改写为多行VALUES时的分块: 每块不超过maxRows行, 估算的sql长度不超过maxBytes, 至少一行;<br/>
+ * 服务端预编译语句最多MAX_PLACEHOLDERS个参数, 每块的行数同时不超过MAX_PLACEHOLDERS / 每行的参数个数。<br/>
+ * 不依赖mysql驱动的rewriteBatchedStatements, 远程配置下发的connectionProperties不一定包含它。
+ */
+public class BatchRewriter {
+
+    private static final int     MAX_PLACEHOLDERS = 65535;               // mysql协议中参数个数为2字节
+
+    private final int            maxRows;
+    private final int            maxBytes;
+
+    private final StripedCounter statements       = new StripedCounter();
+    private final StripedCounter rows             = new StripedCounter();
+
+    /**
+     *
+     *
+     * @param maxRows 每条语句的最大行数, 小于等于1时关闭
+     * @param maxBytes 每条语句的最大字节数
+     */
+    public BatchRewriter(int maxRows, int maxBytes) {
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return maxRows > 1;
+    }
+
+    /**
+     *
+     *
+     * @param batch
+     * @param insert
+     * @param from 起始行
+     * @return 从from开始的一块的结束行(不包含)
+     */
+    public int nextChunk(BatchBuffer batch, InsertValues insert, int from) {
+        return nextChunk(batch, insert, from, batch.size());
+    }
+
+    /**
+     *
+     *
+     * @param batch
+     * @param insert
+     * @param from 起始行
+     * @param limit 结束行(不包含), 并发执行时为所在分块的结束行
+     * @return 从from开始的一块的结束行(不包含)
+     */
+    public int nextChunk(BatchBuffer batch, InsertValues insert, int from, int limit) {
+        int rowsLimit = Math.min(maxRows, Math.max(1, MAX_PLACEHOLDERS / insert.getPlaceholders()));
+        int end = Math.min(limit, from + rowsLimit);
+        long bytes = insert.getRowLength() + batch.estimateBytes(from);
+        int to = from + 1;
+        for (; to < end; to++) {
+            bytes += insert.getTupleLength() + batch.estimateBytes(to);
+            if (bytes > maxBytes) {
+                break;
+            }
+        }
+
+        statements.increment();
+        rows.add(to - from);
+        return to;
+    }
+
+    /**
+     * 按块执行[start, end)行, 每块一次往返。<br/>
+     * 影响行数等于块的行数时每行返回1, 否则(如insert ignore)返回SUCCESS_NO_INFO;
+     * 某块失败时抛出BatchUpdateException, 其中包含之前各块的结果。
+     *
+     * @param batch
+     * @param insert
+     * @param start
+     * @param end
+     * @param chunk 执行改写后的一块
+     * @return
+     * @throws SQLException
+     */
+    public int[] execute(BatchBuffer batch, InsertValues insert, int start, int end, Chunk chunk)
+                                                                                                throws SQLException {
+        int[] result = new int[end - start];
+        for (int from = start; from < end;) {
+            int to = nextChunk(batch, insert, from, end);
+            try {
+                int count = chunk.execute(insert.toSql(to - from), from, to);
+                Arrays.fill(result, from - start, to - start,
+                    count == to - from ? 1 : Statement.SUCCESS_NO_INFO);
+            } catch (SQLException e) {
+                throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(),
+                    Arrays.copyOf(result, from - start), e);
+            }
+            from = to;
+        }
+        return result;
+    }
+
+    public long getStatementCount() {
+        return statements.sum();
+    }
+
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    /**
+     * statementCount;rowCount
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return getStatementCount() + ";" + getRowCount();
+    }
+
+    /**
+     * 执行改写后的一块
+     */
+    public interface Chunk {
+
+        /**
+         *
+         *
+         * @param sql 元组重复to - from次的sql
+         * @param from
+         * @param to
+         * @return 影响行数
+         * @throws SQLException
+         */
+        int execute(String sql, int from, int to) throws SQLException;
+    }
+}
@@ -0,0 +1,453 @@
+package com.alipay.oceanbase.jdbc;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.druid.util.jdbc.ResultSetBase;
+import com.alibaba.druid.util.jdbc.ResultSetMetaDataBase;
+import com.alibaba.druid.util.jdbc.ResultSetMetaDataBase.ColumnMetaData;
+
+/**
+ * 与连接无关的只读结果集, 所有行保存在内存中。<br/>
+ * 1. 由materialize从底层结果集一次读完, 之后底层结果集和连接可以立即释放;<br/>
+ * 2. 行数据不可变, copy出的多个结果集共享行数据, 各自维护游标, 可以被多个线程分别读取;<br/>
+ * 3. 取值时按mysql驱动的规则做类型转换, byte[]和日期类型返回副本。
+ */
+public class MaterializedResultSet extends ResultSetBase {
+
+    private final ResultSetMetaDataBase columns;
+    private final Map<String, Integer>  labels;                                 // 大写的列名 -> 列序号
+    private final List<Object[]>        rows;
+    private int                         cursor = -1;                            // 0 based, rows.size()表示afterLast
+
+    private MaterializedResultSet(Statement statement, ResultSetMetaDataBase columns,
+                                  Map<String, Integer> labels, List<Object[]> rows) {
+        super(statement);
+        this.columns = columns;
+        this.labels = labels;
+        this.rows = rows;
+        super.metaData = columns;
+    }
+
+    /**
+     * 读完rs中剩余的行, 不关闭rs
+     *
+     * @param rs
+     * @param statement 生成结果集的statement
+     * @return
+     * @throws SQLException
+     */
+    public static MaterializedResultSet materialize(ResultSet rs, Statement statement)
+                                                                                      throws SQLException {
+        ResultSetMetaData rsmd = rs.getMetaData();
+        int count = rsmd.getColumnCount();
+
+        ResultSetMetaDataBase columns = new ResultSetMetaDataBase();
+        Map<String, Integer> labels = new HashMap<String, Integer>();
+        for (int i = 1; i <= count; i++) {
+            ColumnMetaData column = new ColumnMetaData();
+            column.setColumnLabel(rsmd.getColumnLabel(i));
+            column.setColumnName(rsmd.getColumnName(i));
+            column.setTableName(rsmd.getTableName(i));
+            column.setSchemaName(rsmd.getSchemaName(i));
+            column.setCatalogName(rsmd.getCatalogName(i));
+            column.setColumnType(rsmd.getColumnType(i));
+            column.setColumnTypeName(rsmd.getColumnTypeName(i));
+            column.setColumnClassName(rsmd.getColumnClassName(i));
+            column.setColumnDisplaySize(rsmd.getColumnDisplaySize(i));
+            column.setPrecision(rsmd.getPrecision(i));
+            column.setScale(rsmd.getScale(i));
+            column.setNullable(rsmd.isNullable(i));
+            column.setSigned(rsmd.isSigned(i));
+            column.setAutoIncrement(rsmd.isAutoIncrement(i));
+            column.setCaseSensitive(rsmd.isCaseSensitive(i));
+            column.setReadOnly(true);
+            columns.getColumns().add(column);
+        }
+        for (int i = count; i >= 1; i--) {// 同名列取第一个, 标签优先于原始列名
+            putLabel(labels, columns.getColumn(i).getColumnName(), i);
+        }
+        for (int i = count; i >= 1; i--) {
+            putLabel(labels, columns.getColumn(i).getColumnLabel(), i);
+        }
+
+        List<Object[]> rows = new ArrayList<Object[]>();
+        while (rs.next()) {
+            Object[] row = new Object[count];
+            for (int i = 0; i < count; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            rows.add(row);
+        }
+
+        return new MaterializedResultSet(statement, columns, labels,
+            Collections.unmodifiableList(rows));
+    }
+
+    /**
+     *
+     *
+     * @param statement
+     * @return 共享行数据, 游标位于第一行之前的新结果集
+     */
+    public MaterializedResultSet copy(Statement statement) {
+        return new MaterializedResultSet(statement, columns, labels, rows);
+    }
+
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public Object getObjectInternal(int columnIndex) throws SQLException {
+        checkOpen();
+        if (cursor < 0 || cursor >= rows.size()) {
+            throw new SQLException("Before start of result set or after end of result set.");
+        }
+        Object[] row = rows.get(cursor);
+        if (columnIndex < 1 || columnIndex > row.length) {
+            throw new SQLException("Column Index out of range, " + columnIndex + " > "
+                                   + row.length + ".");
+        }
+        return detach(row[columnIndex - 1]);
+    }
+
+    @Override
+    public int findColumn(String columnLabel) throws SQLException {
+        checkOpen();
+        Integer index = labels.get(columnLabel.toUpperCase());
+        if (index == null) {
+            throw new SQLException("Column '" + columnLabel + "' not found.");
+        }
+        return index;
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null) {
+            return null;
+        } else if (value instanceof byte[]) {
+            return new String((byte[]) value);
+        }
+        return value.toString();
+    }
+
+    @Override
+    public boolean getBoolean(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null) {
+            return false;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof Number) {
+            return ((Number) value).intValue() != 0;
+        }
+        String s = getString(columnIndex).trim();
+        if ("true".equalsIgnoreCase(s) || "y".equalsIgnoreCase(s)) {
+            return true;
+        } else if ("false".equalsIgnoreCase(s) || "n".equalsIgnoreCase(s)) {
+            return false;
+        }
+        return toBigDecimal(value, columnIndex).signum() != 0;
+    }
+
+    @Override
+    public byte getByte(int columnIndex) throws SQLException {
+        Number value = toNumber(columnIndex);
+        return value == null ? 0 : value.byteValue();
+    }
+
+    @Override
+    public short getShort(int columnIndex) throws SQLException {
+        Number value = toNumber(columnIndex);
+        return value == null ? 0 : value.shortValue();
+    }
+
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+        Number value = toNumber(columnIndex);
+        return value == null ? 0 : value.intValue();
+    }
+
+    @Override
+    public long getLong(int columnIndex) throws SQLException {
+        Number value = toNumber(columnIndex);
+        return value == null ? 0L : value.longValue();
+    }
+
+    @Override
+    public float getFloat(int columnIndex) throws SQLException {
+        Number value = toNumber(columnIndex);
+        return value == null ? 0F : value.floatValue();
+    }
+
+    @Override
+    public double getDouble(int columnIndex) throws SQLException {
+        Number value = toNumber(columnIndex);
+        return value == null ? 0D : value.doubleValue();
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        return value == null ? null : toBigDecimal(value, columnIndex);
+    }
+
+    @Override
+    @Deprecated
+    public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+        BigDecimal value = getBigDecimal(columnIndex);
+        return value == null ? null : value.setScale(scale, BigDecimal.ROUND_HALF_UP);
+    }
+
+    @Override
+    public byte[] getBytes(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null || value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        return getString(columnIndex).getBytes();
+    }
+
+    @Override
+    public Date getDate(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null || value instanceof Date) {
+            return (Date) value;
+        } else if (value instanceof java.util.Date) {
+            return new Date(((java.util.Date) value).getTime());
+        }
+        try {
+            return Date.valueOf(getString(columnIndex).trim());
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Cannot convert value '" + value + "' to DATE, column "
+                                   + columnIndex);
+        }
+    }
+
+    @Override
+    public Time getTime(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null || value instanceof Time) {
+            return (Time) value;
+        } else if (value instanceof java.util.Date) {
+            return new Time(((java.util.Date) value).getTime());
+        }
+        try {
+            return Time.valueOf(getString(columnIndex).trim());
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Cannot convert value '" + value + "' to TIME, column "
+                                   + columnIndex);
+        }
+    }
+
+    @Override
+    public Timestamp getTimestamp(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null || value instanceof Timestamp) {
+            return (Timestamp) value;
+        } else if (value instanceof java.util.Date) {
+            return new Timestamp(((java.util.Date) value).getTime());
+        }
+        try {
+            return Timestamp.valueOf(getString(columnIndex).trim());
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Cannot convert value '" + value + "' to TIMESTAMP, column "
+                                   + columnIndex);
+        }
+    }
+
+    @Override
+    public InputStream getBinaryStream(int columnIndex) throws SQLException {
+        byte[] value = getBytes(columnIndex);
+        return value == null ? null : new ByteArrayInputStream(value);
+    }
+
+    @Override
+    public InputStream getAsciiStream(int columnIndex) throws SQLException {
+        return getBinaryStream(columnIndex);
+    }
+
+    @Override
+    public Reader getCharacterStream(int columnIndex) throws SQLException {
+        String value = getString(columnIndex);
+        return value == null ? null : new StringReader(value);
+    }
+
+    @Override
+    public synchronized boolean next() throws SQLException {
+        checkOpen();
+        if (cursor < rows.size()) {
+            cursor++;
+        }
+        return cursor < rows.size();
+    }
+
+    @Override
+    public synchronized boolean previous() throws SQLException {
+        checkOpen();
+        if (cursor >= 0) {
+            cursor--;
+        }
+        return cursor >= 0;
+    }
+
+    @Override
+    public boolean isBeforeFirst() throws SQLException {
+        checkOpen();
+        return cursor < 0 && !rows.isEmpty();
+    }
+
+    @Override
+    public boolean isAfterLast() throws SQLException {
+        checkOpen();
+        return cursor >= rows.size() && !rows.isEmpty();
+    }
+
+    @Override
+    public boolean isFirst() throws SQLException {
+        checkOpen();
+        return cursor == 0 && !rows.isEmpty();
+    }
+
+    @Override
+    public boolean isLast() throws SQLException {
+        checkOpen();
+        return cursor == rows.size() - 1 && !rows.isEmpty();
+    }
+
+    @Override
+    public void beforeFirst() throws SQLException {
+        checkOpen();
+        cursor = -1;
+    }
+
+    @Override
+    public void afterLast() throws SQLException {
+        checkOpen();
+        cursor = rows.size();
+    }
+
+    @Override
+    public boolean first() throws SQLException {
+        return absolute(1);
+    }
+
+    @Override
+    public boolean last() throws SQLException {
+        return absolute(-1);
+    }
+
+    @Override
+    public boolean absolute(int row) throws SQLException {
+        checkOpen();
+        return moveTo(row > 0 ? row - 1 : (row < 0 ? rows.size() + row : -1));
+    }
+
+    @Override
+    public boolean relative(int rows) throws SQLException {
+        checkOpen();
+        return moveTo(cursor + rows);
+    }
+
+    private boolean moveTo(int index) {
+        if (index < 0) {
+            cursor = -1;
+        } else if (index >= rows.size()) {
+            cursor = rows.size();
+        } else {
+            cursor = index;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int getRow() throws SQLException {
+        checkOpen();
+        return cursor >= 0 && cursor < rows.size() ? cursor + 1 : 0;
+    }
+
+    @Override
+    public int getType() throws SQLException {
+        checkOpen();
+        return ResultSet.TYPE_SCROLL_INSENSITIVE;
+    }
+
+    @Override
+    public int getConcurrency() throws SQLException {
+        checkOpen();
+        return ResultSet.CONCUR_READ_ONLY;
+    }
+
+    @Override
+    public void updateObject(int columnIndex, Object x) throws SQLException {
+        throw new SQLFeatureNotSupportedException("read only result set");
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Operation not allowed after ResultSet closed");
+        }
+    }
+
+    private Number toNumber(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null || value instanceof Number) {
+            return (Number) value;
+        } else if (value instanceof Boolean) {
+            return ((Boolean) value) ? 1 : 0;
+        }
+        return toBigDecimal(value, columnIndex);
+    }
+
+    private BigDecimal toBigDecimal(Object value, int columnIndex) throws SQLException {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        } else if (value instanceof Boolean) {
+            return ((Boolean) value) ? BigDecimal.ONE : BigDecimal.ZERO;
+        }
+        String s = value instanceof byte[] ? new String((byte[]) value) : value.toString();
+        try {
+            return new BigDecimal(s.trim());
+        } catch (NumberFormatException e) {
+            throw new SQLException("Cannot convert value '" + s + "' to a number, column "
+                                   + columnIndex);
+        }
+    }
+
+    private static void putLabel(Map<String, Integer> labels, String label, int index) {
+        if (label != null) {
+            labels.put(label.toUpperCase(), index);
+        }
+    }
+
+    /**
+     * 可变的值返回副本, 避免调用方修改共享的行数据
+     */
+    private static Object detach(Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        } else if (value instanceof java.util.Date) {
+            return ((java.util.Date) value).clone();
+        }
+        return value;
+    }
+}
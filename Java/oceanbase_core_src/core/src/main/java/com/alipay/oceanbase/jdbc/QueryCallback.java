@@ -0,0 +1,18 @@
+package com.alipay.oceanbase.jdbc;
+
+import java.util.List;
+
+/**
+ * 异步查询完成时的回调, 在执行查询的线程中调用(取消或拒绝时在调用方线程中调用), 不要在其中阻塞
+ */
+public interface QueryCallback<T> {
+
+    void onSuccess(List<T> rows);
+
+    /**
+     *
+     *
+     * @param t 查询的SQLException, 被取消时为CancellationException
+     */
+    void onFailure(Throwable t);
+}
@@ -0,0 +1,123 @@
+package com.alipay.oceanbase.jdbc;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.alipay.oceanbase.util.StripedCounter;
+
+/**
+ * 合并并发的相同弱一致读(single-flight): 同一时刻相同的查询只有一个线程执行, 其他线程等待并共享物化后的结果。<br/>
+ * 1. 第一个到达的线程执行查询, 结束后无论成功失败都唤醒等待者并移除该查询, 之后到达的线程重新执行;<br/>
+ * 2. 执行失败时等待者得到同样的错误;<br/>
+ * 3. 等待者最多等待statement的超时时间, 超时后抛出SQLTimeoutException, 不再自己执行, 避免放大对mergeserver的压力。
+ */
+public class QueryCoalescer {
+
+    private final boolean                           enabled;
+    private final ConcurrentHashMap<QueryKey, Call> calls     = new ConcurrentHashMap<QueryKey, Call>();
+
+    private final StripedCounter                    executed  = new StripedCounter();
+    private final StripedCounter                    coalesced = new StripedCounter();
+
+    public QueryCoalescer(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     *
+     *
+     * @param key
+     * @param loader 执行查询并物化结果
+     * @param timeout 等待其他线程执行的最长时间, ms, 小于等于0时不限制
+     * @return 可能与其他线程共享的结果, 调用方需要copy后使用
+     * @throws SQLException
+     */
+    public MaterializedResultSet execute(QueryKey key, Loader loader, long timeout)
+                                                                                   throws SQLException {
+        Call call = new Call();
+        Call running = calls.putIfAbsent(key, call);
+        if (running != null) {
+            coalesced.increment();
+            return running.await(key, timeout);
+        }
+
+        executed.increment();
+        try {
+            call.result = loader.load();
+            return call.result;
+        } catch (SQLException e) {
+            call.error = e;
+            throw e;
+        } catch (RuntimeException e) {
+            call.error = e;
+            throw e;
+        } catch (Error e) {
+            call.error = e;
+            throw e;
+        } finally {
+            calls.remove(key, call);
+            call.done.countDown();
+        }
+    }
+
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * running;executedCount;coalescedCount
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return calls.size() + ";" + getExecutedCount() + ";" + getCoalescedCount();
+    }
+
+    /**
+     * 执行查询并物化结果
+     */
+    public interface Loader {
+        MaterializedResultSet load() throws SQLException;
+    }
+
+    private static final class Call {
+        final CountDownLatch           done = new CountDownLatch(1);
+        volatile MaterializedResultSet result;
+        volatile Throwable             error;
+
+        MaterializedResultSet await(QueryKey key, long timeout) throws SQLException {
+            try {
+                if (timeout <= 0) {
+                    done.await();
+                } else if (!done.await(timeout, TimeUnit.MILLISECONDS)) {
+                    throw new SQLTimeoutException("wait for coalesced query timeout, " + timeout
+                                                  + "ms, sql:" + key.getSql());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("interrupted while waiting for coalesced query, sql:"
+                                       + key.getSql(), e);
+            }
+
+            if (error instanceof SQLException) {
+                SQLException e = (SQLException) error;
+                throw new SQLException(e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+            } else if (error != null) {
+                throw new SQLException("coalesced query failed, sql:" + key.getSql(), error);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.alipay.oceanbase.jdbc;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.log4j.Logger;
+
+import com.alipay.oceanbase.group.QueryCanceller;
+
+/**
+ * 异步查询的结果。<br/>
+ * 1. 完成、失败或取消时调用QueryCallback, 调用方不需要为等待结果占用线程;<br/>
+ * 2. cancel(true)时若查询已经发出, 在cancelExecutor中对statement调用cancel(), mysql驱动会新建连接执行KILL QUERY,
+ *    之后的重试直接失败;cancel(false)只取消还没有开始执行的查询。
+ */
+public class QueryFuture<T> extends FutureTask<List<T>> {
+
+    private static final Logger    logger = Logger.getLogger(QueryFuture.class);
+
+    private final QueryCanceller   canceller;
+    private final QueryCallback<T> callback;
+    private final Executor         cancelExecutor;
+
+    /**
+     *
+     *
+     * @param callable
+     * @param canceller 执行查询的statement注册在这里
+     * @param callback 可以为null
+     * @param cancelExecutor 执行Statement.cancel()
+     */
+    public QueryFuture(Callable<List<T>> callable, QueryCanceller canceller,
+                       QueryCallback<T> callback, Executor cancelExecutor) {
+        super(callable);
+        this.canceller = canceller;
+        this.callback = callback;
+        this.cancelExecutor = cancelExecutor;
+    }
+
+    /**
+     * 不中断执行线程, 连接池中的连接不响应中断
+     *
+     * @see java.util.concurrent.FutureTask#cancel(boolean)
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!super.cancel(false)) {
+            return false;
+        }
+
+        if (mayInterruptIfRunning) {
+            try {
+                cancelExecutor.execute(new Runnable() {
+                    public void run() {
+                        canceller.cancel();
+                    }
+                });
+            } catch (RejectedExecutionException e) {// 数据源已经关闭
+                logger.warn("cancel query rejected", e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 线程池已满等原因没有执行时, 直接以t失败
+     *
+     * @param t
+     */
+    public void reject(Throwable t) {
+        setException(t);
+    }
+
+    @Override
+    protected void done() {
+        if (callback == null) {
+            return;
+        }
+
+        try {
+            List<T> rows;
+            try {
+                rows = get();
+            } catch (CancellationException e) {
+                callback.onFailure(e);
+                return;
+            } catch (ExecutionException e) {
+                callback.onFailure(e.getCause());
+                return;
+            } catch (InterruptedException e) {// 已经完成, 不会阻塞
+                Thread.currentThread().interrupt();
+                callback.onFailure(e);
+                return;
+            }
+            callback.onSuccess(rows);
+        } catch (RuntimeException e) {
+            logger.error("query callback failed", e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.alipay.oceanbase.jdbc;
+
+import java.util.Arrays;
+import java.util.Calendar;
+
+import com.alipay.oceanbase.jdbc.parameter.ParameterBuffer;
+import com.alipay.oceanbase.jdbc.parameter.ParameterContext;
+import com.alipay.oceanbase.jdbc.parameter.ParameterMethod;
+import com.alipay.oceanbase.util.parse.RouteHint;
+import com.alipay.oceanbase.util.parse.SqlHintType;
+
+/**
+ * 一次查询的标识: sql、绑定参数和影响结果的statement属性。<br/>
+ * 1. OBRouting上下文中的集群和路由(指定的mergeserver、集群、最大复制延迟)不在sql中, 但决定了读哪个副本, 也是标识的一部分;<br/>
+ * 2. 参数中有流、Blob、Clob等不能比较的值时, 查询没有标识, 不参与缓存。
+ */
+public final class QueryKey {
+
+    private static final int HEAD = 6;    // sql, maxRows, 集群hint, 路由的mergeserver、集群和最大复制延迟
+
+    private final Object[]   parts;
+    private final int        hash;
+
+    private QueryKey(Object[] parts) {
+        this.parts = parts;
+        this.hash = Arrays.deepHashCode(parts);
+    }
+
+    /**
+     *
+     *
+     * @param sql
+     * @param maxRows
+     * @return
+     */
+    public static QueryKey valueOf(String sql, int maxRows) {
+        return valueOf(sql, maxRows, SqlHintType.CLUSTER_NONE, RouteHint.NONE);
+    }
+
+    /**
+     *
+     *
+     * @param sql
+     * @param maxRows
+     * @param cluster 生效的集群hint
+     * @param route 生效的路由hint
+     * @return
+     */
+    public static QueryKey valueOf(String sql, int maxRows, SqlHintType cluster, RouteHint route) {
+        return new QueryKey(head(new Object[HEAD], sql, maxRows, cluster, route));
+    }
+
+    /**
+     *
+     *
+     * @param sql
+     * @param maxRows
+     * @param parameters
+     * @return 参数不能比较时返回null
+     */
+    public static QueryKey valueOf(String sql, int maxRows, ParameterBuffer parameters) {
+        return valueOf(sql, maxRows, SqlHintType.CLUSTER_NONE, RouteHint.NONE, parameters);
+    }
+
+    /**
+     *
+     *
+     * @param sql
+     * @param maxRows
+     * @param cluster 生效的集群hint
+     * @param route 生效的路由hint
+     * @param parameters
+     * @return 参数不能比较时返回null
+     */
+    public static QueryKey valueOf(String sql, int maxRows, SqlHintType cluster, RouteHint route,
+                                   ParameterBuffer parameters) {
+        Object[] parts = head(new Object[HEAD + parameters.size() * 2], sql, maxRows, cluster,
+            route);
+
+        int i = HEAD;
+        for (int index = 1; index <= parameters.size(); index++) {
+            ParameterContext context = parameters.getContext(index);// 每次生成新的args
+            if (context == null) {
+                continue;
+            }
+            if (!isComparable(context)) {
+                return null;
+            }
+            parts[i++] = context.getParameterMethod();
+            parts[i++] = context.getArgs();
+        }
+        return new QueryKey(parts);
+    }
+
+    private static Object[] head(Object[] parts, String sql, int maxRows, SqlHintType cluster,
+                                 RouteHint route) {
+        parts[0] = sql;
+        parts[1] = maxRows;
+        parts[2] = cluster;
+        parts[3] = route.getServer();
+        parts[4] = route.getClusterId();
+        parts[5] = route.getMaxLag();
+        return parts;
+    }
+
+    private static boolean isComparable(ParameterContext context) {
+        ParameterMethod method = context.getParameterMethod();
+        switch (method) {
+            case setArray:
+            case setAsciiStream:
+            case setBinaryStream:
+            case setBlob:
+            case setCharacterStream:
+            case setClob:
+            case setRef:
+            case setUnicodeStream:
+                return false;
+            default:
+                break;
+        }
+
+        for (Object arg : context.getArgs()) {
+            if (arg != null && !(arg instanceof String) && !(arg instanceof Number)
+                && !(arg instanceof Boolean) && !(arg instanceof Character)
+                && !(arg instanceof byte[]) && !(arg instanceof java.util.Date)
+                && !(arg instanceof Calendar)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getSql() {
+        return (String) parts[0];
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof QueryKey)) {
+            return false;
+        }
+        QueryKey other = (QueryKey) obj;
+        return hash == other.hash && Arrays.deepEquals(parts, other.parts);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.deepToString(parts);
+    }
+}
@@ -0,0 +1,165 @@
+package com.alipay.oceanbase.jdbc;
+
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alipay.oceanbase.util.StripedCounter;
+
+/**
+ * 弱一致读的查询结果缓存, 缓存的是与连接无关的MaterializedResultSet。<br/>
+ * 1. 只缓存走弱一致读的查询, 弱一致读本身就可能读到旧数据, ttl内重复的查询直接返回缓存的结果;<br/>
+ * 2. 条目在ttl后过期, 读到过期条目时删除; 超过maxSize时与SqlClassificationCache一样按CLOCK淘汰;<br/>
+ * 3. 行数超过maxRows的结果不缓存, 避免大结果集长期占用内存;<br/>
+ * 4. ttl或maxSize小于等于0时关闭缓存。
+ */
+public class ResultCache {
+
+    private final long                               ttl;                                           // ns
+    private final int                                maxSize;
+    private final int                                maxRows;
+    private final ConcurrentHashMap<QueryKey, Entry> entries;
+    private final ConcurrentLinkedQueue<Entry>       clock  = new ConcurrentLinkedQueue<Entry>();
+    private final AtomicInteger                      size   = new AtomicInteger(0);
+    private final AtomicInteger                      queued = new AtomicInteger(0);         // clock的长度, 包括已失效的条目
+
+    private final StripedCounter                     hits   = new StripedCounter();
+    private final StripedCounter                     misses = new StripedCounter();
+
+    /**
+     *
+     *
+     * @param ttl 结果的有效期, ms
+     * @param maxSize 最多缓存的结果数
+     * @param maxRows 单个结果最多的行数
+     */
+    public ResultCache(long ttl, int maxSize, int maxRows) {
+        this.ttl = ttl > 0 ? ttl * 1000000L : 0L;
+        this.maxSize = maxSize;
+        this.maxRows = maxRows;
+        this.entries = new ConcurrentHashMap<QueryKey, Entry>(Math.max(16,
+            Math.max(maxSize, 0) * 4 / 3 + 1));
+    }
+
+    public boolean isEnabled() {
+        return ttl > 0 && maxSize > 0;
+    }
+
+    /**
+     *
+     *
+     * @param key
+     * @param statement 返回的结果集所属的statement
+     * @return 未命中或已过期时返回null
+     */
+    public MaterializedResultSet get(QueryKey key, Statement statement) {
+        Entry e = entries.get(key);
+        if (e == null) {
+            misses.increment();
+            return null;
+        }
+        if (System.nanoTime() - e.createTime >= ttl) {
+            if (entries.remove(key, e)) {
+                size.decrementAndGet();
+            }
+            misses.increment();
+            return null;
+        }
+
+        if (!e.referenced) {
+            e.referenced = true;
+        }
+        hits.increment();
+        return e.value.copy(statement);
+    }
+
+    /**
+     *
+     *
+     * @param key
+     * @param value
+     */
+    public void put(QueryKey key, MaterializedResultSet value) {
+        if (value.getRowCount() > maxRows) {
+            return;
+        }
+
+        Entry e = new Entry(key, value);
+        if (entries.put(key, e) == null) {
+            size.incrementAndGet();
+        }
+        clock.offer(e);
+        queued.incrementAndGet();
+        if (size.get() > maxSize || queued.get() > 2 * maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * 被替换或因过期删除的条目仍在clock中, 扫描时一并清理
+     */
+    private void evict() {
+        for (int i = 0; i < 4 * maxSize + 1; i++) {// 最多扫描两圈
+            boolean overflow = size.get() > maxSize;
+            if (!overflow && queued.get() <= 2 * maxSize) {
+                return;
+            }
+            Entry e = clock.poll();
+            if (e == null) {
+                return;
+            }
+            queued.decrementAndGet();
+
+            if (entries.get(e.key) != e) {
+                continue;
+            }
+            if (!overflow || (e.referenced && System.nanoTime() - e.createTime < ttl)) {
+                if (overflow) {
+                    e.referenced = false;
+                }
+                clock.offer(e);
+                queued.incrementAndGet();
+            } else if (entries.remove(e.key, e)) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * size;maxSize;hitCount;missCount;hitRate
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        long hit = getHitCount(), miss = getMissCount();
+        long total = hit + miss;
+        return size() + ";" + maxSize + ";" + hit + ";" + miss + ";"
+               + (total == 0 ? "0.00" : String.format("%.2f", hit * 100.0D / total));
+    }
+
+    private static final class Entry {
+        final QueryKey              key;
+        final MaterializedResultSet value;
+        final long                  createTime = System.nanoTime();
+        volatile boolean            referenced;
+
+        Entry(QueryKey key, MaterializedResultSet value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
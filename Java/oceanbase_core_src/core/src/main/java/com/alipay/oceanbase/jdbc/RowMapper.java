@@ -0,0 +1,20 @@
+package com.alipay.oceanbase.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 异步查询中把结果集的当前行转为对象, 在执行查询的线程中调用, 不要保存rs
+ */
+public interface RowMapper<T> {
+
+    /**
+     *
+     *
+     * @param rs 已经移动到当前行
+     * @param rowNum 从0开始的行号
+     * @return
+     * @throws SQLException
+     */
+    T mapRow(ResultSet rs, int rowNum) throws SQLException;
+}
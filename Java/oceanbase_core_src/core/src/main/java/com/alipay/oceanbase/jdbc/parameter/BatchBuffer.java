@@ -0,0 +1,367 @@
+package com.alipay.oceanbase.jdbc.parameter;
+
+import static com.alipay.oceanbase.jdbc.parameter.ParameterBuffer.METHODS;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * PreparedStatement.addBatch的参数, 按列存放, 每个参数下标一列。<br/>
+ * 1. 每列按设置方法的需要分配long、double、Object数组, 行数不够时倍增, 不为每行创建对象;<br/>
+ * 2. 一列所有行的设置方法相同时只记录一次, setNull的行记录在null位图中(sqlType相同时);
+ *    设置方法不同、sqlType不同或有的行没有设置时, 退化为逐行记录设置方法;<br/>
+ * 3. 回放时按行、按列直接从数组中取值设置到PreparedStatement上。
+ */
+public class BatchBuffer {
+
+    private static final int   INITIAL_CAPACITY = 16;
+
+    private static final int   LONG             = 1;
+    private static final int   DOUBLE           = 2;
+    private static final int   OBJECT           = 4;
+    private static final int   EXTRA            = 8;
+    private static final int[] SLOTS            = new int[METHODS.length];
+    private static final byte  NULL             = (byte) (ParameterMethod.setNull1.ordinal() + 1);
+
+    static {
+        for (ParameterMethod method : METHODS) {
+            int slots;
+            switch (method) {
+                case setBoolean:
+                case setByte:
+                case setShort:
+                case setInt:
+                case setLong:
+                case setNull1:
+                    slots = LONG;
+                    break;
+                case setFloat:
+                case setDouble:
+                    slots = DOUBLE;
+                    break;
+                case setAsciiStream:
+                case setBinaryStream:
+                case setCharacterStream:
+                case setUnicodeStream:
+                case setNull2:
+                case setObject2:
+                case setObject3:
+                    slots = OBJECT | LONG;
+                    break;
+                case setDate2:
+                case setTime2:
+                case setTimestamp2:
+                    slots = OBJECT | EXTRA;
+                    break;
+                default:
+                    slots = OBJECT;
+                    break;
+            }
+            SLOTS[method.ordinal()] = slots;
+        }
+    }
+
+    private Column[]           columns          = new Column[0];
+    private int                rows             = 0;
+    private int                capacity         = 0;
+    private boolean            sparse           = false;                                    // 有的行缺少参数
+
+    /**
+     * 追加一行, 复制parameters中的值
+     *
+     * @param parameters
+     */
+    public void add(ParameterBuffer parameters) {
+        if (rows == capacity) {
+            grow();
+        }
+        if (parameters.size > columns.length) {
+            columns = Arrays.copyOf(columns, parameters.size);
+        }
+
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == null) {
+                columns[i] = new Column(capacity, rows);
+                sparse |= rows > 0;
+            }
+            if (i < parameters.size && parameters.methods[i] != 0) {
+                columns[i].add(rows, parameters, i);
+            } else {
+                columns[i].addUnset(rows);
+                sparse = true;
+            }
+        }
+        rows++;
+    }
+
+    private void grow() {
+        capacity = capacity == 0 ? INITIAL_CAPACITY : capacity << 1;
+        for (Column column : columns) {
+            column.grow(capacity);
+        }
+    }
+
+    /**
+     * 将第row行的参数设置到ps上
+     *
+     * @param ps
+     * @param row
+     * @throws SQLException
+     */
+    public void setParameters(PreparedStatement ps, int row) throws SQLException {
+        setParameters(ps, row, 0);
+    }
+
+    /**
+     * 将第row行的参数设置到ps上, 参数下标后移offset, 用于多行的insert
+     *
+     * @param ps
+     * @param row
+     * @param offset
+     * @throws SQLException
+     */
+    public void setParameters(PreparedStatement ps, int row, int offset) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].setParameter(ps, offset + i + 1, row);
+        }
+    }
+
+    /**
+     * 估算第row行的参数在sql中占用的字节数, 字符串按utf8计算, 二进制按转义后的长度计算
+     *
+     * @param row
+     * @return
+     */
+    public int estimateBytes(int row) {
+        int bytes = 0;
+        for (Column column : columns) {
+            bytes += column.estimateBytes(row);
+        }
+        return bytes;
+    }
+
+    /**
+     *
+     *
+     * @return 行数
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     *
+     *
+     * @return 参数个数, 即最大的参数下标
+     */
+    public int width() {
+        return columns.length;
+    }
+
+    /**
+     *
+     *
+     * @return 有的行缺少参数时返回true, 这些参数回放时沿用上一行的值
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * 清除所有行并释放数组, 避免大批量导入后statement长期持有内存
+     */
+    public void clear() {
+        columns = new Column[0];
+        rows = 0;
+        capacity = 0;
+        sparse = false;
+    }
+
+    /**
+     * 一个参数下标的所有行
+     */
+    private static final class Column {
+        private int      capacity;
+        private byte     method   = 0;     // 所有行相同的设置方法
+        private byte[]   methods  = null;  // 逐行的设置方法, 0表示该行没有设置
+        private long[]   nulls    = null;  // setNull的行
+        private int      nullType = 0;
+        private boolean  hasNulls = false;
+
+        private long[]   longs    = null;
+        private double[] doubles  = null;
+        private Object[] objects  = null;
+        private Object[] extras   = null;
+
+        Column(int capacity, int rows) {
+            this.capacity = capacity;
+            if (rows > 0) {// 之前的行没有设置这个参数
+                this.methods = new byte[capacity];
+            }
+        }
+
+        void add(int row, ParameterBuffer parameters, int i) {
+            byte m = parameters.methods[i];
+            if (methods == null) {
+                if (m == NULL) {
+                    int sqlType = (int) parameters.longs[i];
+                    if (!hasNulls || nullType == sqlType) {
+                        if (nulls == null) {
+                            nulls = new long[words(capacity)];
+                        }
+                        nulls[row >>> 6] |= 1L << row;
+                        nullType = sqlType;
+                        hasNulls = true;
+                        return;
+                    }
+                } else if (method == 0 || method == m) {
+                    method = m;
+                    store(row, m, parameters, i);
+                    return;
+                }
+                toMixed(row);
+            }
+            methods[row] = m;
+            store(row, m, parameters, i);
+        }
+
+        void addUnset(int row) {
+            if (methods == null) {
+                toMixed(row);
+            }
+            methods[row] = 0;
+        }
+
+        private void store(int row, byte m, ParameterBuffer parameters, int i) {
+            int slots = SLOTS[m - 1];
+            if ((slots & LONG) != 0) {
+                if (longs == null) {
+                    longs = new long[capacity];
+                }
+                longs[row] = parameters.longs[i];
+            }
+            if ((slots & DOUBLE) != 0) {
+                if (doubles == null) {
+                    doubles = new double[capacity];
+                }
+                doubles[row] = parameters.doubles[i];
+            }
+            if ((slots & OBJECT) != 0) {
+                if (objects == null) {
+                    objects = new Object[capacity];
+                }
+                objects[row] = parameters.objects[i];
+            }
+            if ((slots & EXTRA) != 0) {
+                if (extras == null) {
+                    extras = new Object[capacity];
+                }
+                extras[row] = parameters.extras[i];
+            }
+        }
+
+        /**
+         * 改为逐行记录设置方法, null位图中的行转为setNull1
+         *
+         * @param rows 已有的行数
+         */
+        private void toMixed(int rows) {
+            methods = new byte[capacity];
+            for (int row = 0; row < rows; row++) {
+                if (isNull(row)) {
+                    if (longs == null) {
+                        longs = new long[capacity];
+                    }
+                    methods[row] = NULL;
+                    longs[row] = nullType;
+                } else {
+                    methods[row] = method;
+                }
+            }
+            nulls = null;
+            hasNulls = false;
+        }
+
+        private boolean isNull(int row) {
+            return hasNulls && (nulls[row >>> 6] & (1L << row)) != 0;
+        }
+
+        void grow(int newCapacity) {
+            capacity = newCapacity;
+            if (methods != null) {
+                methods = Arrays.copyOf(methods, newCapacity);
+            }
+            if (nulls != null) {
+                nulls = Arrays.copyOf(nulls, words(newCapacity));
+            }
+            if (longs != null) {
+                longs = Arrays.copyOf(longs, newCapacity);
+            }
+            if (doubles != null) {
+                doubles = Arrays.copyOf(doubles, newCapacity);
+            }
+            if (objects != null) {
+                objects = Arrays.copyOf(objects, newCapacity);
+            }
+            if (extras != null) {
+                extras = Arrays.copyOf(extras, newCapacity);
+            }
+        }
+
+        void setParameter(PreparedStatement ps, int index, int row) throws SQLException {
+            int m;
+            if (methods != null) {
+                m = methods[row];
+                if (m == 0) {
+                    return;
+                }
+            } else if (isNull(row)) {
+                ps.setNull(index, nullType);
+                return;
+            } else {
+                m = method;
+            }
+
+            ParameterBuffer.setParameter(ps, index, METHODS[m - 1], longs == null ? 0L
+                : longs[row], doubles == null ? 0D : doubles[row], objects == null ? null
+                : objects[row], extras == null ? null : extras[row]);
+        }
+
+        int estimateBytes(int row) {
+            int m;
+            if (methods != null) {
+                m = methods[row];
+            } else {
+                m = isNull(row) ? NULL : method;
+            }
+            if (m == 0 || m == NULL) {
+                return 4;
+            }
+
+            Object value = (SLOTS[m - 1] & OBJECT) != 0 ? objects[row] : null;
+            if (value == null) {
+                return 24;
+            } else if (value instanceof InputStream || value instanceof Reader) {// 流的长度
+                return (int) Math.min(longs[row] * 2 + 3, Integer.MAX_VALUE >> 4);
+            } else if (value instanceof String) {
+                String s = (String) value;
+                int bytes = 2;
+                for (int i = 0; i < s.length(); i++) {
+                    char c = s.charAt(i);
+                    bytes += c < 0x80 ? (c == '\\' || c == '\'' ? 2 : 1) : (c < 0x800 ? 2 : 3);
+                }
+                return bytes;
+            } else if (value instanceof byte[]) {
+                return ((byte[]) value).length * 2 + 3;
+            }
+            return Math.max(24, value.toString().length() + 2);
+        }
+
+        private static int words(int bits) {
+            return (bits + 63) >>> 6;
+        }
+    }
+}
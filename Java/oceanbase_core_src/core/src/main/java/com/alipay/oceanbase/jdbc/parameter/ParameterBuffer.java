@@ -0,0 +1,436 @@
+package com.alipay.oceanbase.jdbc.parameter;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * PreparedStatement的绑定参数, 按参数下标存放在数组中, 设置参数时不创建对象。<br/>
+ * 1. 整数、布尔值、sqlType和流的长度存放在long数组中, 浮点数存放在double数组中, 其他值存放在Object数组中, Calendar存放在extras中;<br/>
+ * 2. methods记录每个参数的设置方法(ParameterMethod.ordinal() + 1, 0表示未设置), 回放时按下标顺序switch到对应的set方法;<br/>
+ * 3. 数组按需倍增, clear之后复用, 只清掉引用;<br/>
+ * 4. order记录参数下标首次设置的顺序, toString按此顺序输出, 与原LinkedHashMap的遍历顺序一致。
+ */
+public class ParameterBuffer {
+
+    static final ParameterMethod[] METHODS          = ParameterMethod.values();
+    private static final int       INITIAL_CAPACITY = 8;
+
+    // 包内的BatchBuffer直接读取
+    byte[]                         methods          = new byte[INITIAL_CAPACITY];
+    long[]                         longs            = new long[INITIAL_CAPACITY];
+    double[]                       doubles          = new double[INITIAL_CAPACITY];
+    Object[]                       objects          = new Object[INITIAL_CAPACITY];
+    Object[]                       extras           = null;                       // 只有带Calendar的方法使用
+    int                            size             = 0;                          // 最大的参数下标
+    private int[]                  order            = new int[INITIAL_CAPACITY];  // 参数下标, 按首次设置的顺序
+    private int                    count            = 0;                          // 已设置的参数个数
+
+    public ParameterBuffer() {
+    }
+
+    private ParameterBuffer(ParameterBuffer other) {
+        int capacity = Math.max(other.size, 1);
+        this.methods = Arrays.copyOf(other.methods, capacity);
+        this.longs = Arrays.copyOf(other.longs, capacity);
+        this.doubles = Arrays.copyOf(other.doubles, capacity);
+        this.objects = Arrays.copyOf(other.objects, capacity);
+        this.extras = other.extras == null ? null : Arrays.copyOf(other.extras, capacity);
+        this.size = other.size;
+        this.order = Arrays.copyOf(other.order, Math.max(other.count, 1));
+        this.count = other.count;
+    }
+
+    /**
+     * 整数类参数: setBoolean(1/0)、setByte、setShort、setInt、setLong, 以及setNull1的sqlType
+     *
+     * @param parameterIndex
+     * @param method
+     * @param value
+     * @throws SQLException
+     */
+    public void setLong(int parameterIndex, ParameterMethod method, long value)
+                                                                               throws SQLException {
+        int i = slot(parameterIndex, method);
+        longs[i] = value;
+    }
+
+    /**
+     * 浮点数参数: setFloat、setDouble
+     *
+     * @param parameterIndex
+     * @param method
+     * @param value
+     * @throws SQLException
+     */
+    public void setDouble(int parameterIndex, ParameterMethod method, double value)
+                                                                                   throws SQLException {
+        int i = slot(parameterIndex, method);
+        doubles[i] = value;
+    }
+
+    /**
+     *
+     *
+     * @param parameterIndex
+     * @param method
+     * @param value
+     * @throws SQLException
+     */
+    public void setObject(int parameterIndex, ParameterMethod method, Object value)
+                                                                                   throws SQLException {
+        int i = slot(parameterIndex, method);
+        objects[i] = value;
+    }
+
+    /**
+     * 带一个整数的参数: 流的长度、setObject2的targetSqlType、setNull2的sqlType(value为typeName)
+     *
+     * @param parameterIndex
+     * @param method
+     * @param value
+     * @param l
+     * @throws SQLException
+     */
+    public void setObject(int parameterIndex, ParameterMethod method, Object value, long l)
+                                                                                           throws SQLException {
+        int i = slot(parameterIndex, method);
+        objects[i] = value;
+        longs[i] = l;
+    }
+
+    /**
+     * setObject3, targetSqlType和scale合并存放在long中
+     *
+     * @param parameterIndex
+     * @param value
+     * @param targetSqlType
+     * @param scale
+     * @throws SQLException
+     */
+    public void setObject(int parameterIndex, Object value, int targetSqlType, int scale)
+                                                                                         throws SQLException {
+        setObject(parameterIndex, ParameterMethod.setObject3, value, ((long) targetSqlType << 32)
+                                                                     | (scale & 0xFFFFFFFFL));
+    }
+
+    /**
+     * 带Calendar的参数: setDate2、setTime2、setTimestamp2
+     *
+     * @param parameterIndex
+     * @param method
+     * @param value
+     * @param cal
+     * @throws SQLException
+     */
+    public void setObject(int parameterIndex, ParameterMethod method, Object value, Calendar cal)
+                                                                                                 throws SQLException {
+        int i = slot(parameterIndex, method);
+        objects[i] = value;
+        if (extras == null) {
+            extras = new Object[methods.length];
+        }
+        extras[i] = cal;
+    }
+
+    private int slot(int parameterIndex, ParameterMethod method) throws SQLException {
+        if (parameterIndex < 1) {
+            throw new SQLException("parameter index out of range: " + parameterIndex);
+        }
+        int i = parameterIndex - 1;
+        if (i >= methods.length) {
+            grow(parameterIndex);
+        }
+        if (methods[i] == 0) {// 重复设置时保持原来的位置
+            if (count == order.length) {
+                order = Arrays.copyOf(order, count << 1);
+            }
+            order[count++] = parameterIndex;
+        }
+        methods[i] = (byte) (method.ordinal() + 1);
+        objects[i] = null;
+        if (extras != null) {
+            extras[i] = null;
+        }
+        if (parameterIndex > size) {
+            size = parameterIndex;
+        }
+        return i;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(methods.length << 1, minCapacity);
+        methods = Arrays.copyOf(methods, capacity);
+        longs = Arrays.copyOf(longs, capacity);
+        doubles = Arrays.copyOf(doubles, capacity);
+        objects = Arrays.copyOf(objects, capacity);
+        if (extras != null) {
+            extras = Arrays.copyOf(extras, capacity);
+        }
+    }
+
+    /**
+     * 清除所有参数, 保留数组
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(methods, 0, size, (byte) 0);
+        Arrays.fill(objects, 0, size, null);
+        if (extras != null) {
+            Arrays.fill(extras, 0, size, null);
+        }
+        size = 0;
+        count = 0;
+    }
+
+    /**
+     *
+     *
+     * @return 参数的快照, 之后对本对象的修改不影响快照
+     */
+    public ParameterBuffer copy() {
+        return new ParameterBuffer(this);
+    }
+
+    /**
+     *
+     *
+     * @return 最大的参数下标, 没有参数时为0
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     *
+     *
+     * @param parameterIndex
+     * @return 参数的设置方法, 未设置时返回null
+     */
+    public ParameterMethod getMethod(int parameterIndex) {
+        if (parameterIndex < 1 || parameterIndex > size || methods[parameterIndex - 1] == 0) {
+            return null;
+        }
+        return METHODS[methods[parameterIndex - 1] - 1];
+    }
+
+    /**
+     * 将参数设置到ps上
+     *
+     * @param ps
+     * @throws SQLException
+     */
+    public void setParameters(PreparedStatement ps) throws SQLException {
+        for (int i = 0; i < size; i++) {
+            if (methods[i] != 0) {
+                setParameter(ps, i + 1, METHODS[methods[i] - 1], longs[i], doubles[i], objects[i],
+                    extras == null ? null : extras[i]);
+            }
+        }
+    }
+
+    /**
+     * 按设置方法将一个参数设置到ps上, 各参数的含义与ParameterBuffer中的存放方式相同
+     *
+     * @param ps
+     * @param index 参数下标
+     * @param method
+     * @param l 整数值
+     * @param d 浮点数值
+     * @param value 对象值
+     * @param extra Calendar
+     * @throws SQLException
+     */
+    static void setParameter(PreparedStatement ps, int index, ParameterMethod method, long l,
+                             double d, Object value, Object extra) throws SQLException {
+        switch (method) {
+            case setArray:
+                ps.setArray(index, (Array) value);
+                break;
+            case setAsciiStream:
+                ps.setAsciiStream(index, (InputStream) value, (int) l);
+                break;
+            case setBigDecimal:
+                ps.setBigDecimal(index, (BigDecimal) value);
+                break;
+            case setBinaryStream:
+                ps.setBinaryStream(index, (InputStream) value, (int) l);
+                break;
+            case setBlob:
+                ps.setBlob(index, (Blob) value);
+                break;
+            case setBoolean:
+                ps.setBoolean(index, l != 0);
+                break;
+            case setByte:
+                ps.setByte(index, (byte) l);
+                break;
+            case setBytes:
+                ps.setBytes(index, (byte[]) value);
+                break;
+            case setCharacterStream:
+                ps.setCharacterStream(index, (Reader) value, (int) l);
+                break;
+            case setClob:
+                ps.setClob(index, (Clob) value);
+                break;
+            case setDate1:
+                ps.setDate(index, (Date) value);
+                break;
+            case setDate2:
+                ps.setDate(index, (Date) value, (Calendar) extra);
+                break;
+            case setDouble:
+                ps.setDouble(index, d);
+                break;
+            case setFloat:
+                ps.setFloat(index, (float) d);
+                break;
+            case setInt:
+                ps.setInt(index, (int) l);
+                break;
+            case setLong:
+                ps.setLong(index, l);
+                break;
+            case setNull1:
+                ps.setNull(index, (int) l);
+                break;
+            case setNull2:
+                ps.setNull(index, (int) l, (String) value);
+                break;
+            case setObject1:
+                ps.setObject(index, value);
+                break;
+            case setObject2:
+                ps.setObject(index, value, (int) l);
+                break;
+            case setObject3:
+                ps.setObject(index, value, (int) (l >> 32), (int) l);
+                break;
+            case setRef:
+                ps.setRef(index, (Ref) value);
+                break;
+            case setShort:
+                ps.setShort(index, (short) l);
+                break;
+            case setString:
+                ps.setString(index, (String) value);
+                break;
+            case setTime1:
+                ps.setTime(index, (Time) value);
+                break;
+            case setTime2:
+                ps.setTime(index, (Time) value, (Calendar) extra);
+                break;
+            case setTimestamp1:
+                ps.setTimestamp(index, (Timestamp) value);
+                break;
+            case setTimestamp2:
+                ps.setTimestamp(index, (Timestamp) value, (Calendar) extra);
+                break;
+            case setURL:
+                ps.setURL(index, (URL) value);
+                break;
+            case setUnicodeStream:
+                ps.setUnicodeStream(index, (InputStream) value, (int) l);
+                break;
+            default:
+                throw new SQLException("unsupported parameter method: " + method);
+        }
+    }
+
+    /**
+     * 参数的装箱形式, 与原set方法的参数一致, 用于生成缓存的key和日志, 不在执行路径上使用
+     *
+     * @param parameterIndex
+     * @return 未设置时返回null
+     */
+    public ParameterContext getContext(int parameterIndex) {
+        ParameterMethod method = getMethod(parameterIndex);
+        if (method == null) {
+            return null;
+        }
+
+        int i = parameterIndex - 1;
+        Object[] args;
+        switch (method) {
+            case setAsciiStream:
+            case setBinaryStream:
+            case setCharacterStream:
+            case setObject2:
+            case setUnicodeStream:
+                args = new Object[] { parameterIndex, objects[i], (int) longs[i] };
+                break;
+            case setNull2:
+                args = new Object[] { parameterIndex, (int) longs[i], objects[i] };
+                break;
+            case setBoolean:
+                args = new Object[] { parameterIndex, longs[i] != 0 };
+                break;
+            case setByte:
+                args = new Object[] { parameterIndex, (byte) longs[i] };
+                break;
+            case setShort:
+                args = new Object[] { parameterIndex, (short) longs[i] };
+                break;
+            case setInt:
+            case setNull1:
+                args = new Object[] { parameterIndex, (int) longs[i] };
+                break;
+            case setLong:
+                args = new Object[] { parameterIndex, longs[i] };
+                break;
+            case setFloat:
+                args = new Object[] { parameterIndex, (float) doubles[i] };
+                break;
+            case setDouble:
+                args = new Object[] { parameterIndex, doubles[i] };
+                break;
+            case setObject3:
+                args = new Object[] { parameterIndex, objects[i], (int) (longs[i] >> 32),
+                        (int) longs[i] };
+                break;
+            case setDate2:
+            case setTime2:
+            case setTimestamp2:
+                args = new Object[] { parameterIndex, objects[i], extras[i] };
+                break;
+            default:
+                args = new Object[] { parameterIndex, objects[i] };
+                break;
+        }
+        return new ParameterContext(method, args);
+    }
+
+    /**
+     * 与原来的LinkedHashMap&lt;Integer, ParameterContext&gt;格式和顺序相同, 一致性hash策略以此计算sql的hash, 不能修改
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append('{');
+        for (int k = 0; k < count; k++) {
+            if (k > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(order[k]).append('=').append(getContext(order[k]));
+        }
+        return buffer.append('}').toString();
+    }
+}
@@ -1,21 +0,0 @@
-package com.alipay.oceanbase.jdbc.parameter;
-
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
-
-/**
- * 
- * 
- * @author liangjie.li
- * @version $Id: SetBooleanHandler.java, v 0.1 Jun 7, 2013 7:19:39 PM liangjie.li Exp $
- */
-public class SetBooleanHandler implements ParameterHandler {
-
-    /**
-     * 
-     * @see com.alipay.oceanbase.jdbc.parameter.ParameterHandler#setParameter(java.sql.PreparedStatement, java.lang.Object[])
-     */
-    public void setParameter(PreparedStatement stmt, Object[] args) throws SQLException {
-        stmt.setBoolean((Integer) args[0], (Boolean) args[1]);
-    }
-}
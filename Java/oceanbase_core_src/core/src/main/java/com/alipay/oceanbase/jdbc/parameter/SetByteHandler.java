@@ -1,21 +0,0 @@
-package com.alipay.oceanbase.jdbc.parameter;
-
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
-
-/**
- * 
- * 
- * @author liangjie.li
- * @version $Id: SetByteHandler.java, v 0.1 Jun 7, 2013 7:19:33 PM liangjie.li Exp $
- */
-public class SetByteHandler implements ParameterHandler {
-
-    /**
-     * 
-     * @see com.alipay.oceanbase.jdbc.parameter.ParameterHandler#setParameter(java.sql.PreparedStatement, java.lang.Object[])
-     */
-    public void setParameter(PreparedStatement stmt, Object[] args) throws SQLException {
-        stmt.setByte((Integer) args[0], (Byte) args[1]);
-    }
-}
@@ -1,14 +1,18 @@
 package com.alipay.oceanbase.strategy;
 
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HASH_LOAD_FACTOR;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HASH_LOAD_FACTOR_KEY;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.LB_MODULE_LOGGER_NAME;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.RETRY_IN_CLUSTER_TIMES;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentNavigableMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.log4j.Logger;
@@ -17,22 +21,29 @@ import com.alipay.oceanbase.config.MergeServerConfig;
 import com.alipay.oceanbase.exception.OceanBaseRuntimeException;
 import com.alipay.oceanbase.factory.DataSourceFactory;
 import com.alipay.oceanbase.factory.DataSourceHolder;
+import com.alipay.oceanbase.util.Helper;
 import com.alipay.oceanbase.util.MurmurHash3;
 
 /**
- * 
+ * 带负载上限的一致性hash(consistent hashing with bounded loads)。<br/>
+ * 1. 每个mergeserver在环上有VIRTUAL_NODES个虚拟节点, 环是按hash值排序的long[]和holder数组, 增删mergeserver时整体重建后通过volatile发布;<br/>
+ * 2. 沿环顺时针找到的mergeserver如果执行中的请求数超过平均值的(1+hashLoadFactor%), 则顺延到环上下一个mergeserver, 热点key不会压垮单台mergeserver;<br/>
+ * 3. 不可用的mergeserver最多重选RETRY_IN_CLUSTER_TIMES次, 都不满足时返回最后一次选中的。
  * 
  * @author liangjie.li
  * @version $Id: ConsistentHashingStrategy.java, v 0.1 2013-5-24 下午3:37:03 liangjie.li Exp $
  */
 public class ConsistentHashingStrategy extends EquityStrategy {
-    private static final Logger                              logger             = Logger
-                                                                                    .getLogger(LB_MODULE_LOGGER_NAME);
+    private static final Logger      logger             = Logger.getLogger(LB_MODULE_LOGGER_NAME);
+
+    private static final int         VIRTUAL_NODES      = 100;
 
-    protected Map<String, String>                            configParams       = null;
-    protected Set<MergeServerConfig>                         mergeServerConfigs = null;
-    protected List<DataSourceHolder>                         dataSourceHolders  = null;
-    protected ConcurrentNavigableMap<Long, DataSourceHolder> buckets            = null;
+    protected Map<String, String>    configParams       = null;
+    protected Set<MergeServerConfig> mergeServerConfigs = null;
+    protected List<DataSourceHolder> dataSourceHolders  = null;
+    protected volatile Ring          ring               = Ring.EMPTY;
+
+    private final double             loadFactor;                                 // 负数表示不限制负载
 
     /**
      * 
@@ -43,8 +54,9 @@ public class ConsistentHashingStrategy extends EquityStrategy {
                                      Map<String, String> configParams) throws SQLException {
         this.configParams = configParams;
         this.mergeServerConfigs = mergeServerConfigs;
-        this.buckets = new ConcurrentSkipListMap<Long, DataSourceHolder>();
         this.dataSourceHolders = new CopyOnWriteArrayList<DataSourceHolder>();
+        this.loadFactor = Helper.getInt(configParams, HASH_LOAD_FACTOR_KEY, HASH_LOAD_FACTOR)
+                          / 100.0D;
 
         for (MergeServerConfig msc : mergeServerConfigs) {
             DataSourceHolder dsh = null;
@@ -55,11 +67,6 @@ public class ConsistentHashingStrategy extends EquityStrategy {
                 if (logger.isInfoEnabled()) {
                     logger.info("create one druid datasource, mergeserver: " + msc + "succ");
                 }
-
-                for (int j = 0; j < 100; ++j) {
-                    int hashCode = MurmurHash3.murmurhash(dsh.toString() + "-" + j);
-                    buckets.put((long) hashCode, dsh);
-                }
             } catch (Exception e) {
                 logger.error("create one druid datasource, mergeserver: " + msc + "failed", e);
             }
@@ -68,6 +75,7 @@ public class ConsistentHashingStrategy extends EquityStrategy {
         if (dataSourceHolders.isEmpty()) {
             throw new SQLException("all ms is dead: " + mergeServerConfigs);
         }
+        this.rebuildRing();
     }
 
     /**
@@ -76,99 +84,82 @@ public class ConsistentHashingStrategy extends EquityStrategy {
      */
     @Override
     public DataSourceHolder select(List<DataSourceHolder> excludeKeys, Object... args) {
-        if (buckets.isEmpty()) {
+        Ring r = this.ring;
+        if (r.points.length == 0) {
             throw new OceanBaseRuntimeException("no available merge server!");
         }
 
         String sql = this.restorePreparedStatementSQL(args);
         int hashValue = MurmurHash3.murmurhash(sql);
 
-        DataSourceHolder holder = null;
-        for (int i = 0; i < RETRY_IN_CLUSTER_TIMES; i++) {
-            holder = select(hashValue, i);
-            if (!excludeKeys.contains(holder) && !holder.isInvalid()) {
-                return holder;
-            }
-        }
+        int capacity = this.capacity(r);
+        DataSourceHolder holder = null, overloaded = null;
+        int tried = 0;
 
-        return holder;
-    }
-
-    /**
-     * 
-     * 
-     * @param hashCode
-     * @param level
-     * @return
-     */
-    protected DataSourceHolder select(int hashCode, int level) {
-        if (level == 0) {
-            return select(hashCode);
-        }
-
-        DataSourceHolder prev = select(hashCode);
-        DataSourceHolder next = null;
-        int i = level;
-        int totalNum = buckets.size();
-        boolean found = false;
+        int idx = r.indexOf(hashValue);
+        boolean[] visited = new boolean[r.distinct.length];
+        for (int n = 0, found = 0; n < r.points.length && found < visited.length; n++) {
+            int owner = r.owners[(idx + n) % r.points.length];
+            if (visited[owner]) {
+                continue;
+            }
+            visited[owner] = true;
+            found++;
 
-        if (i < mergeServerConfigs.size()) {
-            Long k = findPointFor(hashCode);
-            Long tmpK;
-            while ((i > 0) && --totalNum > 0) {
-                next = select(k + 1L);
+            DataSourceHolder next = r.distinct[owner];
 
-                if (logger.isDebugEnabled()) {
-                    logger.debug("hashCode:" + (k + 1L) + " next:" + next);
+            if (next.getInflight() >= capacity) {// 超过负载上限, 顺延到下一个mergeserver
+                if (overloaded == null) {
+                    overloaded = next;
                 }
+                continue;
+            }
 
-                if (!(next.equals(prev))) {
-                    if ((--i) == 0) {
-                        if (logger.isInfoEnabled()) {
-                            logger.info("find datasource: " + next + ", times: "
-                                        + (buckets.size() - totalNum));
-                        }
-                        found = true;
-                        break;
-                    }
-                }
-                tmpK = findPointFor(k + 1L);
-                k = tmpK;
+            holder = next;
+            if (!excludeKeys.contains(holder) && !holder.isInvalid()
+                && !isWarmupRejected(holder, hashValue)) {
+                return holder;
+            }
+            if (++tried >= RETRY_IN_CLUSTER_TIMES) {
+                break;
             }
         }
 
-        if (!found) {
-            logger.warn("can not find any datasource. level: " + level + ", totalNum: "
-                        + buckets.size() + ", number: " + mergeServerConfigs.size());
-            next = null;
+        if (holder == null) {
+            logger.warn("all merge server is overloaded, capacity: " + capacity);
+            holder = overloaded;
         }
-        return next;
+        return holder;
     }
 
     /**
+     * 单个mergeserver的负载上限: ceil((1+ε) * (当前总负载+1) / mergeserver数)
      * 
-     * 
-     * @param l
+     * @param r
      * @return
      */
-    protected DataSourceHolder select(long l) {
-        Long k = findPointFor(l);
-        return buckets.get(k);
+    private int capacity(Ring r) {
+        if (loadFactor < 0) {
+            return Integer.MAX_VALUE;
+        }
+
+        long total = 1;// 加上本次请求
+        for (DataSourceHolder dsh : r.distinct) {
+            total += dsh.getInflight();
+        }
+        return (int) Math.ceil((1.0D + loadFactor) * total / r.distinct.length);
     }
 
     /**
-     * 
-     * 
-     * @param hashCode
-     * @return
+     * 按当前的mergeserver重建hash环
      */
-    protected Long findPointFor(long hashCode) {
-        Long k = buckets.ceilingKey((long) hashCode);
-        // if none found, it must be at the end, return the lowest in the tree (we go over the end the continuum to the first entry)
-        if (k == null) {
-            k = buckets.firstKey();
+    protected synchronized void rebuildRing() {
+        this.ring = new Ring(dataSourceHolders.toArray(new DataSourceHolder[0]));
+
+        if (logger.isInfoEnabled()) {
+            logger.info("rebuild consistent hashing ring, mergeservers:" + dataSourceHolders
+                        + ", points:" + ring.points.length);
         }
-        return k;
     }
 
     /**
@@ -210,7 +201,7 @@ public class ConsistentHashingStrategy extends EquityStrategy {
     public void destroyDataSource() {
         super.destroyDataSource(dataSourceHolders);
         dataSourceHolders.clear();
-        buckets.clear();
+        this.rebuildRing();
 
         if (logger.isInfoEnabled()) {
             logger.info("destroy all druid datasource, mergeservers:" + this.mergeServerConfigs);
@@ -224,12 +215,20 @@ public class ConsistentHashingStrategy extends EquityStrategy {
     @Override
     public void destroyDataSource(MergeServerConfig msc) {
         DataSourceHolder dsh = null;
-        for (int j = 0; j < 100; ++j) {
-            int hashCode = MurmurHash3.murmurhash(msc.toString() + "-" + j);
-            dsh = this.buckets.remove((long) hashCode);
+        for (DataSourceHolder holder : dataSourceHolders) {
+            if (holder.toString().equals(msc.toString())) {
+                dsh = holder;
+                break;
+            }
+        }
+
+        if (dsh == null) {
+            logger.warn("can not find datasource to destroy, mergeserver:" + msc);
+            return;
         }
 
         dataSourceHolders.remove(dsh);
+        this.rebuildRing();
         dsh.destroy();
     }
 
@@ -241,12 +240,9 @@ public class ConsistentHashingStrategy extends EquityStrategy {
     @Override
     public void addDataSource(MergeServerConfig msc) throws SQLException {
         DataSourceHolder dsh = DataSourceFactory.getHolder(msc, configParams);
+        dsh.startWarmup();
         dataSourceHolders.add(dsh);
-
-        for (int j = 0; j < 100; ++j) {
-            int hashCode = MurmurHash3.murmurhash(dsh.toString() + "-" + j);
-            this.buckets.put((long) hashCode, dsh);
-        }
+        this.rebuildRing();
     }
 
     /**
@@ -258,6 +254,15 @@ public class ConsistentHashingStrategy extends EquityStrategy {
         super.printDSStatus(dataSourceHolders);
     }
 
+    /**
+     * 
+     * @see com.alipay.oceanbase.strategy.EquityStrategy#getDataSourceHolders()
+     */
+    @Override
+    public Collection<DataSourceHolder> getDataSourceHolders() {
+        return Collections.unmodifiableList(dataSourceHolders);
+    }
+
     /**
      * 
      * @see com.alipay.oceanbase.strategy.EquityStrategy#reloadDataSources(int, int, java.lang.String)
@@ -269,4 +274,63 @@ public class ConsistentHashingStrategy extends EquityStrategy {
         }
     }
 
+    /**
+     * 不可变的hash环, points升序, owners[i]为points[i]所属mergeserver在distinct中的下标
+     */
+    protected static final class Ring {
+        static final Ring        EMPTY = new Ring(new DataSourceHolder[0]);
+
+        final long[]             points;
+        final int[]              owners;
+        final DataSourceHolder[] distinct;
+
+        Ring(DataSourceHolder[] holders) {
+            long[][] nodes = new long[holders.length * VIRTUAL_NODES][];
+            int n = 0;
+            for (int i = 0; i < holders.length; i++) {
+                for (int j = 0; j < VIRTUAL_NODES; ++j) {
+                    long hashCode = MurmurHash3.murmurhash(holders[i].toString() + "-" + j);
+                    nodes[n++] = new long[] { hashCode, i };
+                }
+            }
+            Arrays.sort(nodes, new Comparator<long[]>() {
+                @Override
+                public int compare(long[] o1, long[] o2) {
+                    return o1[0] < o2[0] ? -1 : (o1[0] == o2[0] ? 0 : 1);
+                }
+            });
+
+            int size = 0;
+            long[] points = new long[n];
+            int[] owners = new int[n];
+            for (int i = 0; i < n; i++) {
+                if (size > 0 && points[size - 1] == nodes[i][0]) {// hash冲突, 后加入的覆盖先加入的
+                    owners[size - 1] = (int) nodes[i][1];
+                    continue;
+                }
+                points[size] = nodes[i][0];
+                owners[size] = (int) nodes[i][1];
+                size++;
+            }
+
+            this.points = Arrays.copyOf(points, size);
+            this.owners = Arrays.copyOf(owners, size);
+            this.distinct = holders;
+        }
+
+        /**
+         * 顺时针第一个不小于hashCode的节点, 超过末尾时回到第一个
+         * 
+         * @param hashCode
+         * @return
+         */
+        int indexOf(long hashCode) {
+            int i = Arrays.binarySearch(points, hashCode);
+            if (i < 0) {
+                i = -(i + 1);
+            }
+            return i == points.length ? 0 : i;
+        }
+    }
+
 }
@@ -18,6 +18,7 @@ import org.apache.log4j.Logger;
 import com.alibaba.druid.pool.DruidDataSource;
 import com.alipay.oceanbase.config.MergeServerConfig;
 import com.alipay.oceanbase.factory.DataSourceHolder;
+import com.alipay.oceanbase.util.ThreadLocalRandom;
 
 /**
  * 
@@ -106,6 +107,32 @@ public abstract class EquityStrategy {
         return true;
     }
 
+    /**
+     * 慢启动: 预热中的数据源按预热系数随机放行, 被拒绝时应另选一个
+     * 
+     * @param dsh
+     * @return
+     */
+    protected boolean isWarmupRejected(DataSourceHolder dsh) {
+        return dsh.isWarmingUp()
+               && ThreadLocalRandom.current().nextDouble() >= dsh.getWarmupFactor();
+    }
+
+    /**
+     * 慢启动: 按hash值决定是否放行, 同一个key的结果稳定, 预热过程中逐步迁移到新数据源
+     * 
+     * @param dsh
+     * @param hashCode
+     * @return
+     */
+    protected boolean isWarmupRejected(DataSourceHolder dsh, int hashCode) {
+        if (!dsh.isWarmingUp()) {
+            return false;
+        }
+        int h = (hashCode * 0x9E3779B9) >>> 16;// 打散, 与环上位置无关
+        return h >= dsh.getWarmupFactor() * 0x10000;
+    }
+
     /**
      * 
      */
@@ -140,6 +167,34 @@ public abstract class EquityStrategy {
      */
     public abstract void printDSStatus();
 
+    /**
+     * mergeserver权重变化后调用, 不按权重选择的策略忽略
+     */
+    public void refreshWeights() {
+    }
+
+    /**
+     * 当前所有mergeserver的数据源
+     * 
+     * @return
+     */
+    public abstract Collection<DataSourceHolder> getDataSourceHolders();
+
+    /**
+     * ob_route(ms=ip:port) hint指定的mergeserver
+     * 
+     * @param server ip:port
+     * @return 不在当前策略中时返回null
+     */
+    public DataSourceHolder getDataSourceHolder(String server) {
+        for (DataSourceHolder dsh : getDataSourceHolders()) {
+            if (dsh.toString().equals(server)) {
+                return dsh;
+            }
+        }
+        return null;
+    }
+
     protected void printDSStatus(Collection<DataSourceHolder> buckets) {
         for (DataSourceHolder dsh : buckets) {
             this.printDSStatus((DruidDataSource) dsh.getDataSource());
@@ -0,0 +1,73 @@
+package com.alipay.oceanbase.strategy;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.alipay.oceanbase.config.MergeServerConfig;
+import com.alipay.oceanbase.exception.OceanBaseRuntimeException;
+import com.alipay.oceanbase.factory.DataSourceHolder;
+import com.alipay.oceanbase.util.ThreadLocalRandom;
+
+/**
+ * power of two choices: 随机选取两个mergeserver, 将请求发往执行中语句较少的一个
+ */
+public class LeastActiveStrategy extends RandomStrategy {
+
+    public LeastActiveStrategy(Set<MergeServerConfig> mergeServerConfigs,
+                               Map<String, String> configParams) throws SQLException {
+        super(mergeServerConfigs, configParams);
+    }
+
+    /**
+     *
+     * @see com.alipay.oceanbase.strategy.RandomStrategy#select(java.util.List, java.lang.Object[])
+     */
+    @Override
+    public DataSourceHolder select(List<DataSourceHolder> excludeKeys, Object... args) {
+        int size = buckets.size();
+        if (size == 0) {
+            throw new OceanBaseRuntimeException("no available merge server!");
+        }
+        if (size == 1) {
+            return super.select(excludeKeys, args);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(size);
+        int j = random.nextInt(size - 1);
+        if (j >= i) {
+            j++;
+        }
+
+        DataSourceHolder first = buckets.get(i);
+        DataSourceHolder second = buckets.get(j);
+
+        boolean firstAvailable = !excludeKeys.contains(first) && !first.isInvalid()
+                                 && !isWarmupRejected(first);
+        boolean secondAvailable = !excludeKeys.contains(second) && !second.isInvalid()
+                                  && !isWarmupRejected(second);
+
+        if (firstAvailable && secondAvailable) {
+            return load(first) <= load(second) ? first : second;
+        } else if (firstAvailable) {
+            return first;
+        } else if (secondAvailable) {
+            return second;
+        }
+
+        return super.select(excludeKeys, args);// 两个都不可用, 退化为随机选择
+    }
+
+    /**
+     * 
+     * 
+     * @param dsh
+     * @return
+     */
+    protected double load(DataSourceHolder dsh) {
+        return dsh.getInflight();
+    }
+
+}
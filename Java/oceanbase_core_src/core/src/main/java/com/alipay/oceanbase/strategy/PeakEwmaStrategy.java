@@ -0,0 +1,30 @@
+package com.alipay.oceanbase.strategy;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Set;
+
+import com.alipay.oceanbase.config.MergeServerConfig;
+import com.alipay.oceanbase.factory.DataSourceHolder;
+
+/**
+ * 按响应时间加权的power of two choices: 负载 = 响应时间的peak ewma * (执行中语句数 + 1)。<br/>
+ * 响应时间突增的mergeserver会立刻被避开, 其惩罚随时间衰减后再逐步恢复流量。
+ */
+public class PeakEwmaStrategy extends LeastActiveStrategy {
+
+    public PeakEwmaStrategy(Set<MergeServerConfig> mergeServerConfigs,
+                            Map<String, String> configParams) throws SQLException {
+        super(mergeServerConfigs, configParams);
+    }
+
+    /**
+     *
+     * @see com.alipay.oceanbase.strategy.LeastActiveStrategy#load(com.alipay.oceanbase.factory.DataSourceHolder)
+     */
+    @Override
+    protected double load(DataSourceHolder dsh) {
+        return (dsh.getResponseTime() + 1.0D) * (dsh.getInflight() + 1);
+    }
+
+}
@@ -3,6 +3,8 @@ package com.alipay.oceanbase.strategy;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.LB_MODULE_LOGGER_NAME;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -65,10 +67,12 @@ public class RandomStrategy extends EquityStrategy {
         DataSourceHolder holder = buckets.get(ThreadLocalRandom.current().nextInt(buckets.size()));
 
         int i = 1;
-        while ((excludeKeys.contains(holder) || holder.isInvalid()) && i < buckets.size()
-               && buckets.size() != excludeKeys.size()) {
-
-            logger.warn("retry to choose another one ms, this holder is fail, " + holder);
+        while (i < buckets.size() && buckets.size() != excludeKeys.size()) {
+            if (excludeKeys.contains(holder) || holder.isInvalid()) {
+                logger.warn("retry to choose another one ms, this holder is fail, " + holder);
+            } else if (!isWarmupRejected(holder)) {
+                break;
+            }
             holder = buckets.get(ThreadLocalRandom.current().nextInt(buckets.size()));
 
             i++;
@@ -121,6 +125,7 @@ public class RandomStrategy extends EquityStrategy {
     @Override
     public void addDataSource(MergeServerConfig msc) throws SQLException {
         DataSourceHolder dsh = DataSourceFactory.getHolder(msc, this.configParams);
+        dsh.startWarmup();
         buckets.add(dsh);
     }
 
@@ -133,6 +138,15 @@ public class RandomStrategy extends EquityStrategy {
         super.printDSStatus(buckets);
     }
 
+    /**
+     * 
+     * @see com.alipay.oceanbase.strategy.EquityStrategy#getDataSourceHolders()
+     */
+    @Override
+    public Collection<DataSourceHolder> getDataSourceHolders() {
+        return Collections.unmodifiableList(buckets);
+    }
+
     @Override
     protected void reloadDataSources(Integer maxActive, Integer minIdle, String connectionProperties) {
         for (DataSourceHolder dsh : buckets) {
@@ -44,10 +44,12 @@ public class RoundRobinStrategy extends RandomStrategy {
                                               % buckets.size());
 
         int i = 1;
-        while ((excludeKeys.contains(holder) || holder.isInvalid()) && i < buckets.size()
-               && buckets.size() != excludeKeys.size()) {
-
-            logger.warn("retry to choose another one ms, this holder is fail, " + holder);
+        while (i < buckets.size() && buckets.size() != excludeKeys.size()) {
+            if (excludeKeys.contains(holder) || holder.isInvalid()) {
+                logger.warn("retry to choose another one ms, this holder is fail, " + holder);
+            } else if (!isWarmupRejected(holder)) {
+                break;
+            }
             holder = buckets.get(sequenceNumber.getSequenceNumber() % buckets.size());
 
             i++;
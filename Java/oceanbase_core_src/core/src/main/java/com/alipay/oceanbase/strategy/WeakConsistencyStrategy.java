@@ -8,7 +8,7 @@ package com.alipay.oceanbase.strategy;
  */
 public enum WeakConsistencyStrategy {
 
-    RANDOM_STRATEGY(2), CONSISTENT_HASHING_STRATEGY(1), ROUNDROBIN_STRATEGY(0);
+    RANDOM_STRATEGY(2), CONSISTENT_HASHING_STRATEGY(1), ROUNDROBIN_STRATEGY(0), LEAST_ACTIVE_STRATEGY(3), PEAK_EWMA_STRATEGY(4), WEIGHTED_RANDOM_STRATEGY(5);
 
     private final long code;
 
@@ -29,6 +29,12 @@ public enum WeakConsistencyStrategy {
             return CONSISTENT_HASHING_STRATEGY;
         } else if (code == ROUNDROBIN_STRATEGY.code) {
             return ROUNDROBIN_STRATEGY;
+        } else if (code == LEAST_ACTIVE_STRATEGY.code) {
+            return LEAST_ACTIVE_STRATEGY;
+        } else if (code == PEAK_EWMA_STRATEGY.code) {
+            return PEAK_EWMA_STRATEGY;
+        } else if (code == WEIGHTED_RANDOM_STRATEGY.code) {
+            return WEIGHTED_RANDOM_STRATEGY;
         } else {
             return ROUNDROBIN_STRATEGY;
         }
@@ -0,0 +1,192 @@
+package com.alipay.oceanbase.strategy;
+
+import static com.alipay.oceanbase.util.OBDataSourceConstants.DEFAULT_SERVER_WEIGHT;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.LB_MODULE_LOGGER_NAME;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.alipay.oceanbase.config.MergeServerConfig;
+import com.alipay.oceanbase.exception.OceanBaseRuntimeException;
+import com.alipay.oceanbase.factory.DataSourceHolder;
+import com.alipay.oceanbase.util.ThreadLocalRandom;
+
+/**
+ * 按mergeserver权重随机选择, 使用alias method(Vose)做到O(1)选择。<br/>
+ * 1. alias表是不可变快照, 增删mergeserver或权重变化时整体重建后通过volatile发布, select不加锁;<br/>
+ * 2. 选中的mergeserver不可用时重新抽样, 重试次数与RandomStrategy一致;<br/>
+ * 3. 所有权重均为0时退化为等概率随机。
+ */
+public class WeightedRandomStrategy extends RandomStrategy {
+
+    private static final Logger logger = Logger.getLogger(LB_MODULE_LOGGER_NAME);
+
+    private volatile AliasTable table  = null;
+
+    public WeightedRandomStrategy(Set<MergeServerConfig> mergeServerConfigs,
+                                  Map<String, String> configParams) throws SQLException {
+        super(mergeServerConfigs, configParams);
+        this.refreshWeights();
+    }
+
+    /**
+     *
+     * @see com.alipay.oceanbase.strategy.RandomStrategy#select(java.util.List, java.lang.Object[])
+     */
+    @Override
+    public DataSourceHolder select(List<DataSourceHolder> excludeKeys, Object... args) {
+        AliasTable t = this.table;
+        if (t == null || t.holders.length == 0) {
+            throw new OceanBaseRuntimeException("no available merge server!");
+        }
+
+        int size = t.holders.length;
+        DataSourceHolder holder = t.next();
+
+        int i = 1;
+        while (i < size && size != excludeKeys.size()) {
+            if (excludeKeys.contains(holder) || holder.isInvalid()) {
+                logger.warn("retry to choose another one ms, this holder is fail, " + holder);
+            } else if (!isWarmupRejected(holder)) {
+                break;
+            }
+            holder = t.next();
+
+            i++;
+        }
+        return holder;
+    }
+
+    /**
+     *
+     * @see com.alipay.oceanbase.strategy.RandomStrategy#addDataSource(com.alipay.oceanbase.config.MergeServerConfig)
+     */
+    @Override
+    public void addDataSource(MergeServerConfig msc) throws SQLException {
+        super.addDataSource(msc);
+        this.refreshWeights();
+    }
+
+    /**
+     *
+     * @see com.alipay.oceanbase.strategy.RandomStrategy#destroyDataSource(com.alipay.oceanbase.config.MergeServerConfig)
+     */
+    @Override
+    public void destroyDataSource(MergeServerConfig msc) {
+        super.destroyDataSource(msc);
+        this.refreshWeights();
+    }
+
+    /**
+     *
+     * @see com.alipay.oceanbase.strategy.RandomStrategy#destroyDataSource()
+     */
+    @Override
+    public void destroyDataSource() {
+        super.destroyDataSource();
+        this.refreshWeights();
+    }
+
+    /**
+     * 按当前的mergeserver和权重重建alias表
+     *
+     * @see com.alipay.oceanbase.strategy.EquityStrategy#refreshWeights()
+     */
+    @Override
+    public synchronized void refreshWeights() {
+        DataSourceHolder[] holders = buckets.toArray(new DataSourceHolder[0]);
+        double[] weights = new double[holders.length];
+        for (int i = 0; i < holders.length; i++) {
+            MergeServerConfig msc = holders[i].getMergeServerConfig();
+            weights[i] = msc == null ? DEFAULT_SERVER_WEIGHT : msc.getWeight();
+        }
+
+        this.table = new AliasTable(holders, weights);
+        if (logger.isInfoEnabled()) {
+            logger.info("rebuild weighted alias table, mergeservers:" + this.table);
+        }
+    }
+
+    /**
+     * Vose's alias method, 构造O(n), 抽样O(1)
+     */
+    static final class AliasTable {
+        final DataSourceHolder[] holders;
+        final double[]           prob;
+        final int[]              alias;
+        final double[]           weights;
+
+        AliasTable(DataSourceHolder[] holders, double[] weights) {
+            int n = holders.length;
+            this.holders = holders;
+            this.weights = weights;
+            this.prob = new double[n];
+            this.alias = new int[n];
+
+            double sum = 0;
+            for (double w : weights) {
+                sum += w;
+            }
+
+            int[] small = new int[n];
+            int[] large = new int[n];
+            int s = 0, l = 0;
+            double[] scaled = new double[n];
+            for (int i = 0; i < n; i++) {
+                scaled[i] = sum > 0 ? weights[i] * n / sum : 1.0D;// 权重全为0时等概率
+                if (scaled[i] < 1.0D) {
+                    small[s++] = i;
+                } else {
+                    large[l++] = i;
+                }
+            }
+
+            while (s > 0 && l > 0) {
+                int less = small[--s];
+                int more = large[--l];
+                prob[less] = scaled[less];
+                alias[less] = more;
+
+                scaled[more] = (scaled[more] + scaled[less]) - 1.0D;
+                if (scaled[more] < 1.0D) {
+                    small[s++] = more;
+                } else {
+                    large[l++] = more;
+                }
+            }
+            while (l > 0) {
+                prob[large[--l]] = 1.0D;
+            }
+            while (s > 0) {// 浮点误差
+                prob[small[--s]] = 1.0D;
+            }
+        }
+
+        DataSourceHolder next() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int i = random.nextInt(holders.length);
+            return random.nextDouble() < prob[i] ? holders[i] : holders[alias[i]];
+        }
+
+        /**
+         *
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < holders.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(holders[i]).append('=').append((long) weights[i]);
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+}
@@ -1,9 +1,14 @@
 package com.alipay.oceanbase.task;
 
+import static com.alipay.oceanbase.util.OBDataSourceConstants.DS_STATUS_MODULE_LOGGER_NAME;
+
 import java.util.Set;
 
+import org.apache.log4j.Logger;
+
 import com.alipay.oceanbase.OBGroupDataSource;
 import com.alipay.oceanbase.config.ClusterConfig;
+import com.alipay.oceanbase.group.MergeServerSelector;
 
 /**
  * 
@@ -13,7 +18,9 @@ import com.alipay.oceanbase.config.ClusterConfig;
  */
 public class DSStatusPrintOutTask implements Runnable {
 
-    private OBGroupDataSource obGroupDataSource;
+    private static final Logger logger = Logger.getLogger(DS_STATUS_MODULE_LOGGER_NAME);
+
+    private OBGroupDataSource   obGroupDataSource;
 
     public DSStatusPrintOutTask(OBGroupDataSource obGroupDataSource) {
         this.obGroupDataSource = obGroupDataSource;
@@ -30,6 +37,33 @@ public class DSStatusPrintOutTask implements Runnable {
         for (ClusterConfig cc : clusterConfigs) {
             cc.getEquityStrategy().printDSStatus();
         }
+
+        MergeServerSelector selector = obGroupDataSource.getDBSelector();
+        if (selector != null) {
+            selector.printClusterStatus();
+        }
+
+        if (obGroupDataSource.getSqlCache().isEnabled() && logger.isInfoEnabled()) {
+            logger.info("sqlCache;" + obGroupDataSource.getSqlCache());// size;maxSize;hitCount;missCount;hitRate
+        }
+        if (obGroupDataSource.getResultCache().isEnabled() && logger.isInfoEnabled()) {
+            logger.info("resultCache;" + obGroupDataSource.getResultCache());// size;maxSize;hitCount;missCount;hitRate
+        }
+        if (obGroupDataSource.getQueryCoalescer().isEnabled() && logger.isInfoEnabled()) {
+            logger.info("queryCoalescer;" + obGroupDataSource.getQueryCoalescer());// running;executedCount;coalescedCount
+        }
+        if (obGroupDataSource.getHedger().isEnabled() && logger.isInfoEnabled()) {
+            logger.info("hedger;" + obGroupDataSource.getHedger());// hedgedCount;wonCount;credits
+        }
+        if (obGroupDataSource.getBatchRewriter().isEnabled() && logger.isInfoEnabled()) {
+            logger.info("batchRewriter;" + obGroupDataSource.getBatchRewriter());// statementCount;rowCount
+        }
+        if (obGroupDataSource.getParallelBatch().isEnabled() && logger.isInfoEnabled()) {
+            logger.info("parallelBatch;" + obGroupDataSource.getParallelBatch());// batchCount;chunkCount;activeThreads
+        }
+        if (obGroupDataSource.getAsyncQuery().isEnabled() && logger.isInfoEnabled()) {
+            logger.info("asyncQuery;" + obGroupDataSource.getAsyncQuery());// submittedCount;rejectedCount;activeThreads;queued
+        }
     }
 
 }
@@ -0,0 +1,295 @@
+package com.alipay.oceanbase.task;
+
+import static com.alipay.oceanbase.util.OBDataSourceConstants.CHECK_VALID_CONNECTION_SQL;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.DAEMON_TASK_MODULE_LOGGER_NAME;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEALTH_CHECK_FALL;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEALTH_CHECK_FALL_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEALTH_CHECK_RISE;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEALTH_CHECK_RISE_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEALTH_CHECK_TIMEOUT;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.HEALTH_CHECK_TIMEOUT_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.PASSWORD;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.USER_NAME;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.log4j.Logger;
+
+import com.alipay.oceanbase.OBGroupDataSource;
+import com.alipay.oceanbase.config.ClusterConfig;
+import com.alipay.oceanbase.config.MergeServerConfig;
+import com.alipay.oceanbase.factory.DataSourceHolder;
+import com.alipay.oceanbase.util.Helper;
+import com.alipay.oceanbase.util.thread.CustomerThreadFactory;
+
+/**
+ * mergeserver主动健康检查。<br/>
+ * 1. 每个mergeserver使用一条独立的探测连接执行CHECK_VALID_CONNECTION_SQL, 探测连接不占用druid连接池,
+ *    与连接池使用相同的url、connectionProperties和filter;<br/>
+ * 2. 连续失败fall次标记为不可用, 连续成功rise次恢复可用;<br/>
+ * 3. 探测连接的建连和读超时均为timeout, 一次失败后关闭连接, 下次探测重新建连;<br/>
+ * 4. 各mergeserver并行探测, 一轮最多等待2 * timeout, 未返回的按失败计, 仍在执行时下一轮不再发起。
+ */
+public class HealthCheckTask implements Runnable {
+
+    private static final Logger           logger = Logger
+                                                     .getLogger(DAEMON_TASK_MODULE_LOGGER_NAME);
+
+    private final OBGroupDataSource       obGroupDataSource;
+    private final String                  userName;
+    private final String                  password;
+    private final int                     timeout;
+    private final int                     rise;
+    private final int                     fall;
+
+    private final Map<String, ProbeState> states = new HashMap<String, ProbeState>();
+    private final ExecutorService         executor;
+
+    public HealthCheckTask(OBGroupDataSource obGroupDataSource, Map<String, String> configParams) {
+        this.obGroupDataSource = obGroupDataSource;
+        this.userName = configParams.get(USER_NAME);
+        this.password = configParams.get(PASSWORD);
+        this.timeout = Math.max(1, Helper.getInt(configParams, HEALTH_CHECK_TIMEOUT_KEY,
+            HEALTH_CHECK_TIMEOUT));
+        this.rise = Math.max(1, Helper.getInt(configParams, HEALTH_CHECK_RISE_KEY,
+            HEALTH_CHECK_RISE));
+        this.fall = Math.max(1, Helper.getInt(configParams, HEALTH_CHECK_FALL_KEY,
+            HEALTH_CHECK_FALL));
+        this.executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(), new CustomerThreadFactory());
+    }
+
+    /**
+     *
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+        try {
+            Set<String> alive = new HashSet<String>();
+            Map<DataSourceHolder, Future<Boolean>> probes = new LinkedHashMap<DataSourceHolder, Future<Boolean>>();
+            for (ClusterConfig cc : obGroupDataSource.getConfig().getClusterConfigs()) {
+                for (DataSourceHolder dsh : cc.getEquityStrategy().getDataSourceHolders()) {
+                    if (alive.add(dsh.toString())) {
+                        probes.put(dsh, submit(dsh));
+                    }
+                }
+            }
+
+            // 每个探测的建连和读各自最多timeout
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(2L * timeout);
+            for (Entry<DataSourceHolder, Future<Boolean>> entry : probes.entrySet()) {
+                update(entry.getKey(), states.get(entry.getKey().toString()),
+                    await(entry.getKey(), entry.getValue(), deadline));
+            }
+
+            // 下线的mergeserver关闭探测连接
+            Iterator<Entry<String, ProbeState>> it = states.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry<String, ProbeState> entry = it.next();
+                if (!alive.contains(entry.getKey())) {
+                    closeQuietly(entry.getValue());
+                    it.remove();
+                }
+            }
+        } catch (Exception e) {
+            logger.error("health check error", e);
+        }
+    }
+
+    /**
+     *
+     */
+    public void destroy() {
+        executor.shutdownNow();
+        for (ProbeState state : states.values()) {
+            closeQuietly(state);
+        }
+        states.clear();
+    }
+
+    /**
+     * 探测一次, 按rise/fall更新数据源状态
+     *
+     * @param dsh
+     */
+    void check(DataSourceHolder dsh) {
+        ProbeState state = state(dsh);
+        update(dsh, state, probe(dsh, state));
+    }
+
+    /**
+     * 在探测线程中探测一次, 上一次探测仍在执行时直接按失败计
+     *
+     * @param dsh
+     * @return 探测结果, 为null时按失败计
+     */
+    private Future<Boolean> submit(final DataSourceHolder dsh) {
+        final ProbeState state = state(dsh);
+        if (state.running) {
+            return null;
+        }
+        state.running = true;
+        try {
+            return executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    try {
+                        return probe(dsh, state);
+                    } finally {
+                        state.running = false;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {// 已经destroy
+            state.running = false;
+            return null;
+        }
+    }
+
+    /**
+     *
+     *
+     * @param dsh
+     * @param future
+     * @param deadline 本轮探测的截止时间, System.nanoTime()
+     * @return 截止时间前没有返回时为false
+     */
+    private boolean await(DataSourceHolder dsh, Future<Boolean> future, long deadline) {
+        if (future == null) {
+            return false;
+        }
+        try {
+            return future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("health check timeout, mergeserver:" + dsh);
+        } catch (ExecutionException e) {
+            logger.warn("health check error, mergeserver:" + dsh, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private ProbeState state(DataSourceHolder dsh) {
+        ProbeState state = states.get(dsh.toString());
+        if (state == null) {
+            state = new ProbeState();
+            states.put(dsh.toString(), state);
+        }
+        return state;
+    }
+
+    /**
+     * 按rise/fall更新数据源状态
+     *
+     * @param dsh
+     * @param state
+     * @param success
+     */
+    private void update(DataSourceHolder dsh, ProbeState state, boolean success) {
+        if (success) {
+            state.failures = 0;
+            if (++state.successes >= rise) {
+                dsh.markUp();
+            }
+        } else {
+            state.successes = 0;
+            if (++state.failures >= fall) {
+                dsh.markDown();
+            }
+        }
+    }
+
+    /**
+     *
+     *
+     * @param dsh
+     * @param state
+     * @return
+     */
+    protected boolean probe(DataSourceHolder dsh, ProbeState state) {
+        Statement stmt = null;
+        try {
+            if (state.conn == null || state.conn.isClosed()) {
+                state.conn = connect(dsh);
+            }
+
+            stmt = state.conn.createStatement();
+            stmt.execute(CHECK_VALID_CONNECTION_SQL);
+            return true;
+        } catch (SQLException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("health check failed, mergeserver:" + dsh, e);
+            }
+            closeQuietly(state);
+            return false;
+        } finally {
+            if (stmt != null) {
+                try {
+                    stmt.close();
+                } catch (SQLException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private Connection connect(DataSourceHolder dsh) throws SQLException {
+        Connection conn = dsh.createPhysicalConnection(timeout);
+        if (conn != null) {
+            return conn;
+        }
+
+        Properties props = new Properties();
+        MergeServerConfig msc = dsh.getMergeServerConfig();
+        props.put("user", userName);
+        props.put("password", password);
+        props.put("connectTimeout", String.valueOf(timeout));
+        props.put("socketTimeout", String.valueOf(timeout));
+        return DriverManager.getConnection(Helper.getMySqlConURL(msc.getIp(), msc.getPort()),
+            props);
+    }
+
+    private void closeQuietly(ProbeState state) {
+        if (state.conn != null) {
+            try {
+                state.conn.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+            state.conn = null;
+        }
+    }
+
+    /**
+     * 单个mergeserver的探测状态, 计数只在调度线程中访问, 连接只在执行探测的线程中访问
+     */
+    static class ProbeState {
+        Connection       conn;
+        int              successes;
+        int              failures;
+        volatile boolean running;
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.alipay.oceanbase.task;
+
+import static com.alipay.oceanbase.util.OBDataSourceConstants.DAEMON_TASK_MODULE_LOGGER_NAME;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.alipay.oceanbase.OBGroupDataSource;
+import com.alipay.oceanbase.config.ClusterConfig;
+import com.alipay.oceanbase.factory.DataSourceHolder;
+
+/**
+ * 采样各备集群的复制延迟, 供EquityMSManager跳过延迟过大的备集群。<br/>
+ * 1. dsConfig中的replicaLagSql返回一行一列, 为该集群的复制延迟(ms), 例如按心跳表中最新的时间戳计算,
+ *    sql应带read_consistency(weak), 在备集群的mergeserver上读本地副本;<br/>
+ * 2. 每次从备集群可用的mergeserver中轮流选一个执行, 失败时再换一个, 不经过集群的负载均衡策略(一致性哈希需要sql参数);<br/>
+ * 3. 采样失败时保留上次的延迟并加上距上次采样的时间, 延迟随时间增长, 过载或落后太多而无法响应的备集群最终会被跳过;
+ *    从未采样成功的备集群延迟未知, 限制了延迟的读不会使用它;<br/>
+ * 4. 主集群的延迟固定为0;<br/>
+ * 5. 连接池默认关闭enableQueryTimeouts, queryTimeout不生效, 采样使用不属于连接池的物理连接, 由socketTimeout限制执行时间。
+ */
+public class ReplicaLagTask implements Runnable {
+
+    private static final Logger     logger        = Logger
+                                                      .getLogger(DAEMON_TASK_MODULE_LOGGER_NAME);
+
+    private static final int        QUERY_TIMEOUT = 1000;                                     // ms
+    private static final int        MAX_ATTEMPTS  = 2;                                        // 每次最多尝试的mergeserver数
+
+    private final OBGroupDataSource obGroupDataSource;
+    private final String            sql;
+    private long                    rounds        = 0;                                        // 只在调度线程中访问
+
+    public ReplicaLagTask(OBGroupDataSource obGroupDataSource, String sql) {
+        this.obGroupDataSource = obGroupDataSource;
+        this.sql = sql;
+    }
+
+    /**
+     *
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+        try {
+            for (ClusterConfig cc : obGroupDataSource.getConfig().getClusterConfigs()) {
+                if (cc.isMaster()) {
+                    cc.setReplicaLag(0L);
+                } else {
+                    refresh(cc, cc.getEquityStrategy().getDataSourceHolders());
+                }
+            }
+        } catch (Exception e) {
+            logger.error("sample replica lag error", e);
+        }
+    }
+
+    /**
+     * 采样一个备集群的复制延迟
+     *
+     * @param cc
+     * @param holders 该集群的mergeserver
+     */
+    void refresh(ClusterConfig cc, Collection<DataSourceHolder> holders) {
+        long lag = -1L;
+        List<DataSourceHolder> valid = new ArrayList<DataSourceHolder>(holders.size());
+        for (DataSourceHolder dsh : holders) {
+            if (!dsh.isInvalid()) {
+                valid.add(dsh);
+            }
+        }
+        for (int i = 0; i < Math.min(valid.size(), MAX_ATTEMPTS) && lag < 0; i++) {
+            lag = sample(cc, valid.get((int) (rounds++ % valid.size())));
+        }
+
+        if (lag >= 0) {
+            cc.setReplicaLag(lag);
+        } else if (cc.getReplicaLag() >= 0) {// 采样失败, 延迟至少增加了距上次采样的时间
+            lag = cc.getReplicaLag()
+                  + Math.max(0L, System.currentTimeMillis() - cc.getReplicaLagTime());
+            cc.setReplicaLag(lag);
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("cluster " + cc.getClusterid() + " replica lag " + lag + "ms");
+        }
+    }
+
+    /**
+     *
+     *
+     * @param cc
+     * @param dsh
+     * @return 复制延迟, ms, 采样失败时返回-1
+     */
+    private long sample(ClusterConfig cc, DataSourceHolder dsh) {
+        Connection conn = null;
+        Statement stmt = null;
+        try {
+            conn = dsh.createPhysicalConnection(QUERY_TIMEOUT);
+            if (conn == null) {// 不是druid数据源
+                conn = dsh.getDataSource().getConnection();
+            }
+            stmt = conn.createStatement();
+            stmt.setQueryTimeout(QUERY_TIMEOUT / 1000);
+
+            ResultSet rs = stmt.executeQuery(sql);
+            if (rs.next()) {
+                long lag = rs.getLong(1);
+                return rs.wasNull() || lag < 0 ? -1L : lag;
+            }
+            logger.warn("replica lag sql return nothing, cluster:" + cc.getClusterid());
+        } catch (Exception e) {
+            logger.warn("sample replica lag failed, cluster:" + cc.getClusterid()
+                        + ", mergeserver:" + dsh, e);
+        } finally {
+            if (stmt != null) {
+                try {
+                    stmt.close();
+                } catch (SQLException e) {
+                    // ignore
+                }
+            }
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    // ignore
+                }
+            }
+        }
+        return -1L;
+    }
+
+}
@@ -101,9 +101,17 @@ public class UpdateConfigTask implements Runnable {
             if (isClusterChange) {// reinit all config
                 OBDataSourceConfig newDSConfig = new OBDataSourceConfig(userName, password,
                     clusterAddress, configParams);
+                for (ClusterConfig cc : newDSConfig.getClusterConfigs()) {// 沿用未变化集群的复制延迟, 重新采样前不跳过
+                    for (ClusterConfig _cc : preDSConfig.getClusterConfigs()) {
+                        if (cc.equals(_cc)) {
+                            cc.inheritReplicaLag(_cc);
+                        }
+                    }
+                }
 
                 try {
                     EquityMSManager equityMSManager = new EquityMSManager(newDSConfig, this);
+                    equityMSManager.setHedger(this.obGroupDataSource.getHedger());
                     this.obGroupDataSource.setDBSelector(equityMSManager);
                     this.obGroupDataSource.setConfig(newDSConfig);
 
@@ -242,5 +250,20 @@ public class UpdateConfigTask implements Runnable {
             cc.getServers().add(msc);
             cc.getEquityStrategy().addDataSource(msc);
         }
+
+        boolean isWeightChange = false;
+        for (MergeServerConfig msc : currSets) {
+            for (MergeServerConfig _msc : preSets) {
+                if (msc.equals(_msc) && msc.getWeight() != _msc.getWeight()) {
+                    logger.warn("mergeserver weight has changed, mergeserver: " + msc + ", "
+                                + _msc.getWeight() + " -> " + msc.getWeight());
+                    _msc.setWeight(msc.getWeight());
+                    isWeightChange = true;
+                }
+            }
+        }
+        if (isWeightChange) {
+            cc.getEquityStrategy().refreshWeights();
+        }
     }
 }
@@ -8,6 +8,7 @@ import static com.alipay.oceanbase.util.OBDataSourceConstants.MIN_IDLE_KEY;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.MYSQL_URL_FORMAT;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.READ_DIST_TABLE_SIZE;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.REPORT_VERSION_SQL;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SPLIT_CHAR;
 
 import java.sql.Driver;
 import java.sql.DriverManager;
@@ -93,6 +94,58 @@ public class Helper {
         return parameters;
     }
 
+    /**
+     * 解析serverWeights配置: ip_port=weight;ip_port=weight, 格式错误的项忽略
+     * 
+     * @param serverWeights
+     * @return
+     */
+    public static Map<String, Integer> loadServerWeights(String serverWeights) {
+        Map<String, Integer> weights = new HashMap<String, Integer>();
+
+        if (StringUtils.isNotBlank(serverWeights)) {
+            for (String s : serverWeights.split(String.valueOf(SPLIT_CHAR))) {
+                String[] kv = s.split("=");
+                if (kv.length == 2) {
+                    try {
+                        int weight = Integer.parseInt(kv[1].trim());
+                        if (weight >= 0) {
+                            weights.put(kv[0].trim(), weight);
+                        }
+                    } catch (NumberFormatException e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+
+        return weights;
+    }
+
+    /**
+     * 读取dsConfig中的整数配置, 未配置或格式错误时返回默认值
+     * 
+     * @param configParams
+     * @param key
+     * @param defaultValue
+     * @return
+     */
+    public static int getInt(Map<String, String> configParams, String key, int defaultValue) {
+        if (configParams == null) {
+            return defaultValue;
+        }
+
+        String val = configParams.get(key);
+        if (StringUtils.isNotBlank(val)) {
+            try {
+                return Integer.parseInt(val.trim());
+            } catch (NumberFormatException e) {
+                // ignore
+            }
+        }
+        return defaultValue;
+    }
+
     /**
      * decrement by 1 if old value positive
      * 
@@ -0,0 +1,92 @@
+package com.alipay.oceanbase.util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 响应时间的近似分布, 用于估算分位数。<br/>
+ * 1. 按对数分桶, 第i个桶的上界为2^(i/4)微秒, 相邻桶相差约19%, 覆盖1us到16s, 超过的计入最后一个桶;<br/>
+ * 2. 样本数达到DECAY_SAMPLES时所有桶减半, 近期的样本权重更高;<br/>
+ * 3. 并发记录和衰减之间不加锁, 分位数是近似值。
+ */
+public class LatencyHistogram {
+
+    private static final int      BUCKETS       = 97;
+    private static final int      DECAY_SAMPLES = 2048;
+    private static final double   LOG2          = Math.log(2.0D);
+
+    private final AtomicLongArray counts        = new AtomicLongArray(BUCKETS);
+    private final AtomicLong      total         = new AtomicLong(0);
+    private final AtomicBoolean   decaying      = new AtomicBoolean(false);
+
+    /**
+     *
+     *
+     * @param nanos
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(nanos));
+        if (total.incrementAndGet() >= DECAY_SAMPLES && decaying.compareAndSet(false, true)) {
+            try {
+                long sum = 0;
+                for (int i = 0; i < BUCKETS; i++) {
+                    long c = counts.get(i);
+                    counts.addAndGet(i, -(c - c / 2));
+                    sum += c / 2;
+                }
+                total.set(sum);
+            } finally {
+                decaying.set(false);
+            }
+        }
+    }
+
+    /**
+     *
+     *
+     * @return 当前的(衰减后的)样本数
+     */
+    public long getCount() {
+        return total.get();
+    }
+
+    /**
+     *
+     *
+     * @param percentile 0到100之间
+     * @return 分位数所在桶的上界, ns, 没有样本时返回0
+     */
+    public long getPercentile(double percentile) {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        if (count <= 0) {
+            return 0L;
+        }
+
+        long rank = (long) Math.ceil(count * percentile / 100.0D);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    static int bucket(long nanos) {
+        double micros = nanos / 1000.0D;
+        if (micros <= 1.0D) {
+            return 0;
+        }
+        int i = (int) Math.ceil(4.0D * Math.log(micros) / LOG2);
+        return i < BUCKETS ? i : BUCKETS - 1;
+    }
+
+    static long upperBound(int bucket) {
+        return (long) (Math.pow(2.0D, bucket / 4.0D) * 1000.0D);
+    }
+}
@@ -15,8 +15,45 @@ public class OBDataSourceConstants {
 
     public static final int           RETRY_IN_CLUSTER_TIMES         = 2;
     public static final int           READ_DIST_TABLE_SIZE           = 100;
+    public static final int           CLUSTER_DEFICIT_LIMIT          = 10000;                                                                                                                                                              //单个备集群最多积累的欠账
     public static final int           CLUSTER_INVALID_TIME           = 60000;                                                                                                                                                              //60s
     public static final int           MURMURHASH_M                   = 0x9747b28c;
+    public static final int           EWMA_DECAY_TIME                = 5000;                                                                                                                                                               //5s
+    public static final int           BREAKER_WINDOW                 = 10000;                                                                                                                                                              //10s
+    public static final int           BREAKER_BUCKETS                = 10;
+    public static final int           BREAKER_MIN_CALLS              = 20;
+    public static final int           BREAKER_ERROR_RATE             = 50;                                                                                                                                                                 //50%
+    public static final int           BREAKER_SLOW_CALL_RATE         = 100;                                                                                                                                                                //100%
+    public static final int           BREAKER_OPEN_TIME              = 5000;                                                                                                                                                               //5s
+    public static final int           BREAKER_PROBES                 = 3;
+    public static final int           HASH_LOAD_FACTOR               = 25;                                                                                                                                                                 //25%, 负数表示不限制
+    public static final int           HEALTH_CHECK_INTERVAL          = 0;                                                                                                                                                                  //ms, 小于等于0时关闭主动健康检查
+    public static final int           HEALTH_CHECK_TIMEOUT           = 1000;                                                                                                                                                               //1s
+    public static final int           HEALTH_CHECK_RISE              = 2;
+    public static final int           HEALTH_CHECK_FALL              = 3;
+    public static final int           SLOW_START_WINDOW              = 30000;                                                                                                                                                              //30s
+    public static final int           DEFAULT_SERVER_WEIGHT          = 100;
+    public static final int           SQL_CACHE_SIZE                 = 1024;                                                                                                                                                               //小于等于0时关闭sql分类缓存
+    public static final int           SQL_CACHE_MAX_LENGTH           = 4096;                                                                                                                                                               //超过该长度的sql不缓存
+    public static final int           SESSION_CONSISTENCY_WINDOW     = 0;                                                                                                                                                                  //ms, 小于等于0时关闭读己之写
+    public static final int           SESSION_TOKEN_LIMIT            = 10000;
+    public static final int           REPLICA_LAG_INTERVAL           = 5000;                                                                                                                                                               //5s
+    public static final int           MAX_REPLICA_LAG                = -1;                                                                                                                                                                 //ms, 负数表示不限制
+    public static final int           RESULT_CACHE_TTL               = 0;                                                                                                                                                                  //ms, 小于等于0时关闭结果缓存
+    public static final int           RESULT_CACHE_SIZE              = 1024;
+    public static final int           RESULT_CACHE_MAX_ROWS          = 1000;                                                                                                                                                               //超过该行数的结果不缓存
+    public static final int           HEDGE_PERCENT                  = 0;                                                                                                                                                                  //对冲请求占弱一致读的最大百分比, 小于等于0时关闭
+    public static final int           HEDGE_PERCENTILE               = 95;                                                                                                                                                                 //延迟阈值取响应时间的p95
+    public static final int           HEDGE_MIN_DELAY                = 2;                                                                                                                                                                  //ms
+    public static final int           HEDGE_MIN_SAMPLES              = 100;                                                                                                                                                                //响应时间样本不足时不对冲
+    public static final int           HEDGE_THREADS                  = 4;
+    public static final int           BATCH_REWRITE_ROWS             = 0;                                                                                                                                                                  //批量insert改写为多行VALUES时每条语句的行数, 小于等于1时关闭
+    public static final int           BATCH_REWRITE_BYTES            = 512 * 1024;                                                                                                                                                         //每条改写语句的估算长度上限, 小于max_allowed_packet
+    public static final int           BATCH_PARALLELISM              = 0;                                                                                                                                                                  //自动提交的batch分块并发执行时一次batch的最大并发数, 小于等于1时关闭
+    public static final int           BATCH_CHUNK_ROWS               = 1000;                                                                                                                                                               //每块的行数
+    public static final int           BATCH_THREADS                  = 8;
+    public static final int           ASYNC_THREADS                  = 8;                                                                                                                                                                  //异步查询的线程数, 小于等于0时关闭
+    public static final int           ASYNC_QUEUE_SIZE               = 1000;                                                                                                                                                               //等待执行的异步查询数上限, 超过时直接失败
 
     public static final char          SPLIT_CHAR                     = ';';
 
@@ -25,6 +62,7 @@ public class OBDataSourceConstants {
 
     public static final double        AUDIT_FACTOR                   = 0.9999;
     public static final double        AUDIT_THRESHOLD                = 47.63;
+    public static final double        AUDIT_PRECISION                = 0.001;
     public static final double        AUDIT_SUCCESS                  = 0.0;
     public static final double        AUDIT_FAILURE                  = 1.0;
 
@@ -40,6 +78,43 @@ public class OBDataSourceConstants {
     public static final String        MAX_ACTIVE_KEY                 = "maxActive";
     public static final String        MIN_IDLE_KEY                   = "minIdle";
     public static final String        CONNECTION_PROPERTIES_KEY      = "connectionProperties";
+    public static final String        BREAKER_WINDOW_KEY             = "breakerWindow";
+    public static final String        BREAKER_MIN_CALLS_KEY          = "breakerMinCalls";
+    public static final String        BREAKER_ERROR_RATE_KEY         = "breakerErrorRate";
+    public static final String        BREAKER_SLOW_CALL_TIME_KEY     = "breakerSlowCallTime";
+    public static final String        BREAKER_SLOW_CALL_RATE_KEY     = "breakerSlowCallRate";
+    public static final String        BREAKER_OPEN_TIME_KEY          = "breakerOpenTime";
+    public static final String        BREAKER_PROBES_KEY             = "breakerProbes";
+    public static final String        HASH_LOAD_FACTOR_KEY           = "hashLoadFactor";
+    public static final String        HEALTH_CHECK_INTERVAL_KEY      = "healthCheckInterval";
+    public static final String        HEALTH_CHECK_TIMEOUT_KEY       = "healthCheckTimeout";
+    public static final String        HEALTH_CHECK_RISE_KEY          = "healthCheckRise";
+    public static final String        HEALTH_CHECK_FALL_KEY          = "healthCheckFall";
+    public static final String        SLOW_START_WINDOW_KEY          = "slowStartWindow";
+    public static final String        SLOW_START_MODE_KEY            = "slowStartMode";
+    public static final String        SERVER_WEIGHT_COLUMN_KEY       = "serverWeightColumn";
+    public static final String        SERVER_WEIGHTS_KEY             = "serverWeights";
+    public static final String        SQL_CACHE_SIZE_KEY             = "sqlCacheSize";
+    public static final String        SESSION_CONSISTENCY_WINDOW_KEY = "sessionConsistencyWindow";
+    public static final String        SESSION_TOKEN_LIMIT_KEY        = "sessionTokenLimit";
+    public static final String        REPLICA_LAG_SQL_KEY            = "replicaLagSql";
+    public static final String        REPLICA_LAG_INTERVAL_KEY       = "replicaLagInterval";
+    public static final String        MAX_REPLICA_LAG_KEY            = "maxReplicaLag";
+    public static final String        RESULT_CACHE_TTL_KEY           = "resultCacheTtl";
+    public static final String        RESULT_CACHE_SIZE_KEY          = "resultCacheSize";
+    public static final String        RESULT_CACHE_MAX_ROWS_KEY      = "resultCacheMaxRows";
+    public static final String        QUERY_COALESCING_KEY           = "queryCoalescing";                                                                                                                                                  //true时合并并发的相同弱一致读
+    public static final String        HEDGE_PERCENT_KEY              = "hedgePercent";
+    public static final String        HEDGE_PERCENTILE_KEY           = "hedgePercentile";
+    public static final String        HEDGE_MIN_DELAY_KEY            = "hedgeMinDelay";
+    public static final String        HEDGE_THREADS_KEY              = "hedgeThreads";
+    public static final String        BATCH_REWRITE_ROWS_KEY         = "batchRewriteRows";
+    public static final String        BATCH_REWRITE_BYTES_KEY        = "batchRewriteBytes";
+    public static final String        BATCH_PARALLELISM_KEY          = "batchParallelism";
+    public static final String        BATCH_CHUNK_ROWS_KEY           = "batchChunkRows";
+    public static final String        BATCH_THREADS_KEY              = "batchThreads";
+    public static final String        ASYNC_THREADS_KEY              = "asyncThreads";
+    public static final String        ASYNC_QUEUE_SIZE_KEY           = "asyncQueueSize";
 
     public static final String        DEFAULT_MYSQL_DRIVER_CLASS     = "com.mysql.jdbc.Driver";
     public static final String        LB_MODULE_LOGGER_NAME          = "lbModuleLogger";
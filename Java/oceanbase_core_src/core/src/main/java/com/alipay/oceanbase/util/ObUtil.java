@@ -1,5 +1,8 @@
 package com.alipay.oceanbase.util;
 
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SERVER_WEIGHTS_KEY;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SERVER_WEIGHT_COLUMN_KEY;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
@@ -33,6 +36,7 @@ public class ObUtil {
     static final String         CLUSTER_INFO           = "select /*+read_consistency(weak)*/ cluster_id,cluster_role,cluster_flow_percent,cluster_vip,cluster_port,read_strategy from __all_cluster";
     static final String         MASTER_CLUSTER_INFO    = "select /*+read_consistency(weak)*/ cluster_vip, cluster_port from __all_cluster where cluster_role = 1";
     static final String         SERVER_INFO_BY_ID      = "select /*+read_consistency(weak)*/ svr_ip, svr_port from __all_server where svr_type = 'mergeserver' and cluster_id=";
+    static final String         SERVER_WEIGHT_BY_ID    = "select /*+read_consistency(weak)*/ svr_ip, svr_port, %s as weight from __all_server where svr_type = 'mergeserver' and cluster_id=";
     static final String         READ_CONSISTENCY_LEVEL = "show variables like 'ob_read_consistency'";
 
     static String               LMS_ADDRESS            = null;
@@ -56,7 +60,7 @@ public class ObUtil {
         for (ClusterConfig cc : clusterConfigs) {
             // 1. get all mergeserver per cluster
             Set<MergeServerConfig> mergeServerConfigs = ObUtil.getServerList(conn,
-                cc.getClusterid());
+                cc.getClusterid(), configParams);
             cc.setServers(mergeServerConfigs);
 
             if (logger.isInfoEnabled()) {
@@ -151,6 +155,63 @@ public class ObUtil {
         return mergeServerSet;
     }
 
+    /**
+     * get MergeServer list with weight.<br/>
+     * 1. dsConfig中配置了serverWeightColumn时, 从__all_server的该列读取权重, 查询失败时退化为不带权重的查询;<br/>
+     * 2. dsConfig中的serverWeights(ip_port=weight;ip_port=weight)覆盖查询到的权重。
+     * 
+     * @param conn
+     * @param clusterId
+     * @param configParams
+     * @return
+     * @throws SQLException
+     */
+    public static Set<MergeServerConfig> getServerList(Connection conn, long clusterId,
+                                                       Map<String, String> configParams)
+                                                                                        throws SQLException {
+        String column = configParams == null ? null : configParams.get(SERVER_WEIGHT_COLUMN_KEY);
+        Set<MergeServerConfig> mergeServerSet = null;
+
+        if (StringUtils.isNotBlank(column) && column.trim().matches("\\w+")) {
+            column = column.trim();
+            try {
+                mergeServerSet = new LinkedHashSet<MergeServerConfig>();
+                List<Map<String, Object>> servers = ObUtil.executeSQL(conn,
+                    String.format(SERVER_WEIGHT_BY_ID, column) + clusterId);
+                for (Map<String, Object> map : servers) {
+                    MergeServerConfig ms = new MergeServerConfig((String) map.get("svr_ip"),
+                        (Long) map.get("svr_port"));
+                    Object weight = map.get("weight");
+                    if (weight instanceof Number && ((Number) weight).intValue() >= 0) {
+                        ms.setWeight(((Number) weight).intValue());
+                    }
+
+                    mergeServerSet.add(ms);
+                }
+            } catch (SQLException e) {
+                logger.warn("get mergeserver weight failed, column: " + column, e);
+                mergeServerSet = null;
+            }
+        }
+
+        if (mergeServerSet == null) {
+            mergeServerSet = getServerList(conn, clusterId);
+        }
+
+        String weights = configParams == null ? null : configParams.get(SERVER_WEIGHTS_KEY);
+        if (StringUtils.isNotBlank(weights)) {
+            Map<String, Integer> overrides = Helper.loadServerWeights(weights);
+            for (MergeServerConfig ms : mergeServerSet) {
+                Integer weight = overrides.get(ms.getIp() + "_" + ms.getPort());
+                if (weight != null) {
+                    ms.setWeight(weight);
+                }
+            }
+        }
+
+        return mergeServerSet;
+    }
+
     /**
      * consistency level
      * 
@@ -234,7 +295,7 @@ public class ObUtil {
             while (rs.next()) {
                 Map<String, Object> map = new LinkedHashMap<String, Object>();
                 for (int i = 1; i <= medaData.getColumnCount(); i++) {
-                    map.put(medaData.getColumnName(i), rs.getObject(i));
+                    map.put(medaData.getColumnLabel(i), rs.getObject(i));// 有别名时为别名
                 }
                 list.add(map);
             }
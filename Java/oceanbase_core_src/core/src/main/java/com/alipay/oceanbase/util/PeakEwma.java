@@ -0,0 +1,63 @@
+package com.alipay.oceanbase.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 带峰值的指数加权移动平均(peak ewma)。<br/>
+ * 1. 新的采样值大于当前值时直接取采样值, 一次抖动立即生效;<br/>
+ * 2. 否则按距上次采样的时间指数衰减, 衰减窗口为decayTime;<br/>
+ * 3. 读取时同样按时间衰减, 被冷落的节点会逐步恢复流量。
+ */
+public class PeakEwma {
+
+    private final double     decayNanos;
+
+    private final AtomicLong valueBits = new AtomicLong(Double.doubleToRawLongBits(0.0D));
+    private volatile long    stamp     = System.nanoTime();
+
+    public PeakEwma(long decayTime, TimeUnit unit) {
+        if (decayTime <= 0) {
+            throw new IllegalArgumentException("decay time must be positive");
+        }
+        this.decayNanos = unit.toNanos(decayTime);
+    }
+
+    /**
+     *
+     *
+     * @param sample
+     */
+    public void observe(double sample) {
+        long now = System.nanoTime();
+        double w = weight(now);
+
+        for (;;) {
+            long bits = valueBits.get();
+            double old = Double.longBitsToDouble(bits);
+            double next = sample > old ? sample : old * w + sample * (1.0D - w);
+            if (valueBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+                break;
+            }
+        }
+        stamp = now;
+    }
+
+    /**
+     *
+     *
+     * @return
+     */
+    public double get() {
+        return Double.longBitsToDouble(valueBits.get()) * weight(System.nanoTime());
+    }
+
+    private double weight(long now) {
+        long elapsed = now - stamp;
+        if (elapsed <= 0) {
+            return 1.0D;
+        }
+        return Math.exp(-elapsed / decayNanos);
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.alipay.oceanbase.util;
+
+import static com.alipay.oceanbase.util.OBDataSourceConstants.LB_MODULE_LOGGER_NAME;
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SESSION_TOKEN_LIMIT;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * 读己之写(read-your-writes)的会话一致性: 会话写入后的一段时间内, 弱一致读也发往主集群。<br/>
+ * 1. 会话默认是一个TGroupConnection, 由连接自己记录最近一次写的时间;<br/>
+ * 2. 跨连接的会话(如同一个用户请求使用连接池中的多个连接)通过OBRouting指定session token, 写入时间记录在这里;<br/>
+ * 3. token按首次写入的顺序排队, 每次访问从队头清理过期的token, 均摊O(1);<br/>
+ * 4. 窗口内的token达到limit个时不丢弃其他会话的token, 新的写入无法记录, 在一个窗口内未记录的token都读主集群。
+ */
+public class SessionConsistency {
+
+    private static final Logger               logger       = Logger
+                                                               .getLogger(LB_MODULE_LOGGER_NAME);
+
+    private final long                        window;                                                 // ns, 小于等于0时关闭
+    private final int                         limit;
+    private final ConcurrentMap<String, Long> tokens       = new ConcurrentHashMap<String, Long>();
+    private final Queue<Write>                writes       = new ConcurrentLinkedQueue<Write>();      // 按写入时间排序
+    private volatile long                     overflowTime = 0L;                                      // 最近一次token数量达到上限的时间
+
+    /**
+     *
+     *
+     * @param window 写入后读主集群的时间, ms
+     */
+    public SessionConsistency(long window) {
+        this(window, SESSION_TOKEN_LIMIT);
+    }
+
+    /**
+     *
+     *
+     * @param window 写入后读主集群的时间, ms
+     * @param limit 窗口内最多记录的token数
+     */
+    public SessionConsistency(long window, int limit) {
+        this.window = window > 0 ? window * 1000000L : 0L;
+        this.limit = limit > 0 ? limit : SESSION_TOKEN_LIMIT;
+    }
+
+    public boolean isEnabled() {
+        return window > 0;
+    }
+
+    /**
+     *
+     *
+     * @param writeTime 最近一次写的时间, System.nanoTime()
+     * @return 是否仍在一致性窗口内
+     */
+    public boolean isWithinWindow(long writeTime) {
+        return writeTime != 0L && System.nanoTime() - writeTime < window;
+    }
+
+    /**
+     *
+     *
+     * @param token
+     */
+    public void markWrite(String token) {
+        long now = System.nanoTime();
+        this.expire(now);
+        if (tokens.replace(token, now) != null) {// 已经在队列中
+            return;
+        }
+
+        if (tokens.size() >= limit) {
+            if (!isWithinWindow(overflowTime)) {
+                logger.warn("too many session tokens(" + limit
+                            + "), reads of unrecorded tokens go to master");
+            }
+            overflowTime = now;
+            return;
+        }
+        if (tokens.putIfAbsent(token, now) == null) {
+            writes.offer(new Write(token, now));
+        } else {
+            tokens.replace(token, now);
+        }
+    }
+
+    /**
+     *
+     *
+     * @param token
+     * @return 该会话是否在一致性窗口内
+     */
+    public boolean isRecentWrite(String token) {
+        long now = System.nanoTime();
+        this.expire(now);
+        Long writeTime = tokens.get(token);
+        if (writeTime != null) {
+            return now - writeTime < window;
+        }
+        return isWithinWindow(overflowTime);// 期间的写入可能没有记录
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    /**
+     * 从队头清理过期的token
+     *
+     * @param now
+     */
+    private void expire(long now) {
+        Write head;
+        while ((head = writes.peek()) != null && now - head.time >= window) {
+            Write w = writes.poll();
+            if (w == null) {
+                return;
+            }
+            if (now - w.time < window) {// 并发时取到了其他元素
+                writes.offer(w);
+                return;
+            }
+
+            Long writeTime = tokens.get(w.token);
+            if (writeTime == null) {
+                continue;
+            }
+            if (now - writeTime < window) {// 期间又写入, 按新的时间重新排队
+                writes.offer(new Write(w.token, writeTime));
+            } else if (!tokens.remove(w.token, writeTime)) {// 并发写入, 重新检查
+                writes.offer(w);
+            }
+        }
+    }
+
+    /**
+     * 一次首次写入
+     */
+    private static final class Write {
+        final String token;
+        final long   time;  // System.nanoTime()
+
+        Write(String token, long time) {
+            this.token = token;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.alipay.oceanbase.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 高并发下累加的计数器, 按线程id分段计数, 读取时求和, 各段独占一个cache line
+ */
+public class StripedCounter {
+
+    private static final int      STRIPES = 16;                                  // 2的幂
+    private static final int      PADDING = 8;
+
+    private final AtomicLongArray cells   = new AtomicLongArray(STRIPES * PADDING);
+
+    /**
+     * 
+     */
+    public void increment() {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        cells.getAndIncrement(stripe * PADDING);
+    }
+
+    /**
+     * 
+     * 
+     * @param delta
+     */
+    public void add(long delta) {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        cells.getAndAdd(stripe * PADDING, delta);
+    }
+
+    /**
+     * 
+     * 
+     * @return 各段之和, 并发累加时不是精确的快照
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+}
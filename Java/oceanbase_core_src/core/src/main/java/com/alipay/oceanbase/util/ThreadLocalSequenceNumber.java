@@ -3,27 +3,27 @@ package com.alipay.oceanbase.util;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * 
+ * 线程私有的递增序列, 各线程的起始值不同, 调用时不存在共享写
  * 
  * @author liangjie.li
  * @version $Id: ThreadLocalSequenceNumber.java, v 0.1 Jun 27, 2013 5:18:30 PM liangjie.li Exp $
  */
 public class ThreadLocalSequenceNumber {
-    private final AtomicInteger  uniqueId  = new AtomicInteger(0);
-    private ThreadLocal<Integer> uniqueNum = new ThreadLocal<Integer>() {
-                                                      @Override
-                                                      protected Integer initialValue() {
-                                                          return uniqueId.getAndIncrement();
-                                                      }
-                                                  };
+    private final AtomicInteger uniqueId  = new AtomicInteger(0);
+    private ThreadLocal<int[]>  uniqueNum = new ThreadLocal<int[]>() {
+                                              @Override
+                                              protected int[] initialValue() {
+                                                  return new int[] { uniqueId.getAndIncrement() };
+                                              }
+                                          };
 
     /**
      * 
      * 
-     * @return
+     * @return 非负数
      */
     public int getSequenceNumber() {
-        uniqueNum.set(uniqueNum.get() + 1);
-        return uniqueNum.get();
+        int[] num = uniqueNum.get();
+        return ++num[0] & Integer.MAX_VALUE;
     }
 }
@@ -0,0 +1,176 @@
+package com.alipay.oceanbase.util.parse;
+
+import static com.alipay.oceanbase.util.parse.SQLClassifier.isIdentifierPart;
+import static com.alipay.oceanbase.util.parse.SQLClassifier.matches;
+import static com.alipay.oceanbase.util.parse.SQLClassifier.skipQuoted;
+
+/**
+ * 单行的INSERT ... VALUES (...)语句, 用于把批量执行改写为多行的VALUES (...),(...)。<br/>
+ * 1. 第一个关键字是insert, 顶层的values/value之后紧跟一个括号元组, 元组之后只有空白、注释和分号;<br/>
+ * 2. 所有的?都在元组内, 元组重复n次时第k行的参数下标依次后移;<br/>
+ * 3. insert ... select、多个元组、on duplicate key update等其他形式不改写;<br/>
+ * 4. 不可变, 并发执行的分块可以共享, 最近一次生成的sql与行数一起缓存。
+ */
+public final class InsertValues {
+
+    private final String    head;          // 元组之前的部分, 包括hint
+    private final String    tuple;
+    private final int       placeholders;
+
+    private volatile Sql    cached = null;
+
+    private InsertValues(String head, String tuple, int placeholders) {
+        this.head = head;
+        this.tuple = tuple;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     *
+     *
+     * @param sql
+     * @return 不能改写时返回null
+     */
+    public static InsertValues parse(String sql) {
+        final int len = sql.length();
+
+        boolean insert = false, expectTuple = false;
+        int depth = 0, tupleStart = -1, tupleEnd = -1, placeholders = 0;
+
+        int i = 0;
+        while (i < len) {
+            char c = sql.charAt(i);
+
+            if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                if (end < 0) {
+                    return null;
+                }
+                i = end + 2;
+            } else if (c == '#' || (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-')) {
+                while (i < len && sql.charAt(i) != '\n' && sql.charAt(i) != '\r') {
+                    i++;
+                }
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else if (tupleEnd >= 0) {// 元组之后只能有分号
+                if (c != ';') {
+                    return null;
+                }
+                i++;
+            } else if (c == '\'' || c == '"' || c == '`') {
+                if (!insert) {
+                    return null;
+                }
+                i = skipQuoted(sql, i, c);
+                expectTuple = false;
+            } else if (isIdentifierPart(c)) {
+                int start = i;
+                while (i < len && isIdentifierPart(sql.charAt(i))) {
+                    i++;
+                }
+
+                if (!insert) {
+                    if (!matches(sql, start, i, "insert")) {
+                        return null;
+                    }
+                    insert = true;
+                } else {
+                    expectTuple = depth == 0 && tupleStart < 0
+                                  && (matches(sql, start, i, "values") || matches(sql, start, i,
+                                      "value"));
+                }
+            } else {
+                if (!insert) {
+                    return null;
+                }
+                if (c == '(') {
+                    if (expectTuple) {
+                        tupleStart = i;
+                    }
+                    depth++;
+                } else if (c == ')') {
+                    if (--depth < 0) {
+                        return null;
+                    }
+                    if (depth == 0 && tupleStart >= 0) {
+                        tupleEnd = i + 1;
+                    }
+                } else if (c == '?') {
+                    if (tupleStart < 0) {
+                        return null;
+                    }
+                    placeholders++;
+                }
+                expectTuple = false;
+                i++;
+            }
+        }
+
+        if (tupleEnd < 0 || placeholders == 0) {
+            return null;
+        }
+        return new InsertValues(sql.substring(0, tupleStart), sql.substring(tupleStart, tupleEnd),
+            placeholders);
+    }
+
+    /**
+     *
+     *
+     * @param rows
+     * @return 元组重复rows次的sql
+     */
+    public String toSql(int rows) {
+        Sql sql = cached;
+        if (sql == null || sql.rows != rows) {
+            StringBuilder sb = new StringBuilder(head.length() + (tuple.length() + 1) * rows);
+            sb.append(head).append(tuple);
+            for (int i = 1; i < rows; i++) {
+                sb.append(',').append(tuple);
+            }
+            sql = new Sql(rows, sb.toString());
+            cached = sql;
+        }
+        return sql.sql;
+    }
+
+    /**
+     *
+     *
+     * @return 一行的参数个数
+     */
+    public int getPlaceholders() {
+        return placeholders;
+    }
+
+    /**
+     *
+     *
+     * @return 一行时sql的长度, 即toSql(1).length()
+     */
+    public int getRowLength() {
+        return head.length() + tuple.length();
+    }
+
+    /**
+     *
+     *
+     * @return 每增加一行sql增加的长度
+     */
+    public int getTupleLength() {
+        return tuple.length() + 1;
+    }
+
+    /**
+     * 行数和对应的sql, 一起发布
+     */
+    private static final class Sql {
+        final int    rows;
+        final String sql;
+
+        Sql(int rows, String sql) {
+            this.rows = rows;
+            this.sql = sql;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.alipay.oceanbase.util.parse;
+
+/**
+ * sql中的路由hint, 可以写在同一个注释中:<br/>
+ *    /*+ ob_route(ms=10.0.0.1:2828) ob_timeout(50ms) ob_retry(0) * /<br/>
+ * 1. ob_route(ms=ip:port)指定mergeserver, ob_route(cluster=id)指定集群;<br/>
+ * 2. ob_timeout客户端的重试预算, 单位ms或s, 不带单位时为ms, 到期后不再重试; 客户端不会中断已经发出的sql,
+ *    只按秒向上取整设置为statement的queryTimeout, 需要在connectionProperties中开启enableQueryTimeouts才生效;<br/>
+ * 3. ob_retry失败后的重试次数, 0表示不重试;<br/>
+ * 4. ob_max_lag备集群允许的最大复制延迟, 单位同ob_timeout, 超过时不读该备集群。
+ */
+public final class RouteHint {
+
+    public static final RouteHint NONE = new RouteHint(null, -1L, -1L, -1, -1L);
+
+    private final String          server;                                   // ip:port, null表示不指定
+    private final long            clusterId;                                // -1表示不指定
+    private final long            timeout;                                  // ms, -1表示不限制
+    private final int             retryTimes;                               // -1表示使用默认重试次数
+    private final long            maxLag;                                   // ms, -1表示使用数据源的配置
+
+    private RouteHint(String server, long clusterId, long timeout, int retryTimes, long maxLag) {
+        this.server = server;
+        this.clusterId = clusterId;
+        this.timeout = timeout;
+        this.retryTimes = retryTimes;
+        this.maxLag = maxLag;
+    }
+
+    /**
+     *
+     *
+     * @param server
+     * @param clusterId
+     * @param timeout
+     * @param retryTimes
+     * @param maxLag
+     * @return 都未指定时返回NONE
+     */
+    public static RouteHint valueOf(String server, long clusterId, long timeout, int retryTimes,
+                                    long maxLag) {
+        if (server == null && clusterId < 0 && timeout < 0 && retryTimes < 0 && maxLag < 0) {
+            return NONE;
+        }
+        return new RouteHint(server, clusterId, timeout, retryTimes, maxLag);
+    }
+
+    public String getServer() {
+        return server;
+    }
+
+    public long getClusterId() {
+        return clusterId;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public int getRetryTimes() {
+        return retryTimes;
+    }
+
+    public long getMaxLag() {
+        return maxLag;
+    }
+
+    /**
+     *
+     *
+     * @param defaultTimes 未指定ob_retry时的执行次数
+     * @return 最多执行的次数, 包括第一次
+     */
+    public int getExecuteTimes(int defaultTimes) {
+        return retryTimes < 0 ? defaultTimes : retryTimes + 1;
+    }
+
+    /**
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ms=" + server + ", cluster=" + clusterId + ", timeout=" + timeout + "ms, retry="
+               + retryTimes + ", maxLag=" + maxLag + "ms";
+    }
+}
@@ -0,0 +1,334 @@
+package com.alipay.oceanbase.util.parse;
+
+/**
+ * 单遍扫描sql, 同时得到语句类型、read_consistency hint和read_cluster hint。<br/>
+ * 1. 直接按下标读取String中的字符, 不做注释剥离、toLowerCase和正则匹配, 正常情况下不分配对象;<br/>
+ * 2. 跳过字符串('...', "...", `...`)以及/* * /, #, --注释, 注释以/*+开头且整体是若干name(value)时按hint解析, 每种hint只取第一个;<br/>
+ * 3. 第一个关键字决定语句类型(前缀匹配, 与SQLParser一致), 开头的括号只对select有效;<br/>
+ * 4. select语句中出现for update为SELECT_FOR_UPDATE, 出现when为SELECT_WHEN。
+ */
+public class SQLClassifier {
+
+    private static final String    CONSISTENCY_HINT = "read_consistency";
+    private static final String    CLUSTER_HINT     = "read_cluster";
+    private static final String    ROUTE_HINT       = "ob_route";
+    private static final String    TIMEOUT_HINT     = "ob_timeout";
+    private static final String    RETRY_HINT       = "ob_retry";
+    private static final String    MAX_LAG_HINT     = "ob_max_lag";
+
+    private static final SqlType[] KEYWORDS         = { SqlType.SHOW, SqlType.INSERT,
+            SqlType.UPDATE, SqlType.DELETE, SqlType.REPLACE, SqlType.TRUNCATE, SqlType.CREATE,
+            SqlType.DROP, SqlType.LOAD, SqlType.MERGE, SqlType.ALTER, SqlType.EXPLAIN,
+            SqlType.DESC, SqlType.SET, SqlType.RENAME };
+
+    /**
+     *
+     *
+     * @param sql
+     * @return
+     */
+    public static SqlClassification classify(String sql) {
+        final int len = sql.length();
+
+        SqlType type = null;
+        boolean parenthesized = false, select = false, afterFor = false;
+        boolean forUpdate = false, when = false;
+
+        SqlHintType consistency = SqlHintType.CONSISTENCY_NONE;
+        SqlHintType cluster = SqlHintType.CLUSTER_NONE;
+        boolean consistencyFound = false, clusterFound = false;
+        String consistencyError = null, clusterError = null;
+
+        String server = null, routeError = null;
+        long clusterId = -1L, timeout = -1L, maxLag = -1L;
+        int retryTimes = -1;
+
+        int i = 0;
+        while (i < len) {
+            char c = sql.charAt(i);
+
+            if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                if (end < 0) {
+                    break;
+                }
+
+                if (i + 2 < end && sql.charAt(i + 2) == '+' && isHintList(sql, i + 3, end)) {// hint
+                    int p = skipHintSeparator(sql, i + 3, end);
+                    while (p < end) {
+                        int nameEnd = p;
+                        while (isIdentifierPart(sql.charAt(nameEnd))) {
+                            nameEnd++;
+                        }
+                        int open = skipWhitespace(sql, nameEnd, end);
+                        int close = sql.indexOf(')', open);
+                        int from = skipWhitespace(sql, open + 1, close);
+                        int to = close;
+                        while (to > from && Character.isWhitespace(sql.charAt(to - 1))) {
+                            to--;
+                        }
+
+                        if (from == to) {
+                            // 空的hint忽略
+                        } else if (!consistencyFound && matches(sql, p, nameEnd, CONSISTENCY_HINT)) {
+                            consistencyFound = true;
+                            consistency = consistencyHint(sql, from, to);
+                            if (consistency == null) {
+                                consistency = SqlHintType.CONSISTENCY_NONE;
+                                consistencyError = String
+                                    .format(
+                                        "consistency hint syntax error, only frozen, static, strong or weak support, your hint: [%s], SQL: [%s]",
+                                        sql.substring(from, to), sql);
+                            }
+                        } else if (!clusterFound && matches(sql, p, nameEnd, CLUSTER_HINT)) {
+                            clusterFound = true;
+                            cluster = clusterHint(sql, from, to);
+                            if (cluster == null) {
+                                cluster = SqlHintType.CLUSTER_NONE;
+                                clusterError = String
+                                    .format(
+                                        "cluster hint syntax error, only master or slave support, your hint: [%s], SQL: [%s]",
+                                        sql.substring(from, to), sql);
+                            }
+                        } else if (server == null && clusterId < 0
+                                   && matches(sql, p, nameEnd, ROUTE_HINT)) {
+                            int eq = sql.indexOf('=', from);
+                            int keyEnd = eq < 0 || eq > to ? to : eq;
+                            while (keyEnd > from && Character.isWhitespace(sql.charAt(keyEnd - 1))) {
+                                keyEnd--;
+                            }
+                            int value = eq < 0 || eq > to ? to : skipWhitespace(sql, eq + 1, to);
+
+                            if (matches(sql, from, keyEnd, "ms") && isServer(sql, value, to)) {
+                                server = sql.substring(value, to);
+                            } else if (matches(sql, from, keyEnd, "cluster")) {
+                                clusterId = parseNumber(sql, value, to);
+                            }
+                            if (server == null && clusterId < 0 && routeError == null) {
+                                routeError = String
+                                    .format(
+                                        "route hint syntax error, only ms=ip:port or cluster=id support, your hint: [%s], SQL: [%s]",
+                                        sql.substring(from, to), sql);
+                            }
+                        } else if (timeout < 0 && matches(sql, p, nameEnd, TIMEOUT_HINT)) {
+                            timeout = timeoutHint(sql, from, to);
+                            if (timeout <= 0 && routeError == null) {
+                                routeError = String
+                                    .format(
+                                        "timeout hint syntax error, only positive number with ms or s support, your hint: [%s], SQL: [%s]",
+                                        sql.substring(from, to), sql);
+                            }
+                        } else if (maxLag < 0 && matches(sql, p, nameEnd, MAX_LAG_HINT)) {
+                            maxLag = timeoutHint(sql, from, to);
+                            if (maxLag < 0 && routeError == null) {
+                                routeError = String
+                                    .format(
+                                        "max lag hint syntax error, only non-negative number with ms or s support, your hint: [%s], SQL: [%s]",
+                                        sql.substring(from, to), sql);
+                            }
+                        } else if (retryTimes < 0 && matches(sql, p, nameEnd, RETRY_HINT)) {
+                            long n = parseNumber(sql, from, to);
+                            retryTimes = n > Integer.MAX_VALUE ? -1 : (int) n;
+                            if (retryTimes < 0 && routeError == null) {
+                                routeError = String
+                                    .format(
+                                        "retry hint syntax error, only non-negative number support, your hint: [%s], SQL: [%s]",
+                                        sql.substring(from, to), sql);
+                            }
+                        }
+                        p = skipHintSeparator(sql, close + 1, end);
+                    }
+                }
+                i = end + 2;
+            } else if (c == '#' || (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-')) {
+                while (i < len && sql.charAt(i) != '\n' && sql.charAt(i) != '\r') {
+                    i++;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                i = skipQuoted(sql, i, c);
+                afterFor = false;
+            } else if (isIdentifierPart(c)) {
+                int start = i;
+                while (i < len && isIdentifierPart(sql.charAt(i))) {
+                    i++;
+                }
+
+                if (type == null) {
+                    type = keyword(sql, start, parenthesized);
+                    select = (type == SqlType.SELECT);
+                } else if (select) {
+                    forUpdate |= afterFor && matches(sql, start, i, "update");
+                    afterFor = matches(sql, start, i, "for");
+                    when |= matches(sql, start, i, "when");
+                }
+            } else {
+                if (type == null) {
+                    if (c == '(') {
+                        parenthesized = true;
+                    } else if (!Character.isWhitespace(c)) {
+                        type = SqlType.DEFAULT;
+                    }
+                } else if (!Character.isWhitespace(c)) {
+                    afterFor = false;
+                }
+                i++;
+            }
+        }
+
+        if (type == null) {
+            type = SqlType.DEFAULT;
+        } else if (select && forUpdate) {
+            type = SqlType.SELECT_FOR_UPDATE;
+        } else if (select && when) {
+            type = SqlType.SELECT_WHEN;
+        }
+
+        return SqlClassification.valueOf(type, consistency, cluster, consistencyError,
+            clusterError, RouteHint.valueOf(server, clusterId, timeout, retryTimes, maxLag),
+            routeError);
+    }
+
+    /**
+     * 语句第一个关键字, 忽略大小写的前缀匹配
+     */
+    private static SqlType keyword(String sql, int start, boolean parenthesized) {
+        if (sql.regionMatches(true, start, "select", 0, 6)) {
+            return SqlType.SELECT;
+        }
+        if (!parenthesized) {
+            for (SqlType type : KEYWORDS) {
+                String name = type.name();
+                if (sql.regionMatches(true, start, name, 0, name.length())) {
+                    return type;
+                }
+            }
+        }
+        return SqlType.DEFAULT;
+    }
+
+    private static SqlHintType consistencyHint(String sql, int from, int to) {
+        if (matches(sql, from, to, "strong")) {
+            return SqlHintType.CONSISTENCY_STRONG;
+        } else if (matches(sql, from, to, "weak")
+                   || matches(sql, from, to, "frozen")
+                   || matches(sql, from, to, "static")) {
+            return SqlHintType.CONSISTENCY_WEAK;
+        }
+        return null;
+    }
+
+    private static SqlHintType clusterHint(String sql, int from, int to) {
+        if (matches(sql, from, to, "master")) {
+            return SqlHintType.CLUSTER_MASTER;
+        } else if (matches(sql, from, to, "slave")) {
+            return SqlHintType.CLUSTER_SLAVE;
+        }
+        return null;
+    }
+
+    private static long timeoutHint(String sql, int from, int to) {
+        if (to - from > 2 && sql.regionMatches(true, to - 2, "ms", 0, 2)) {
+            return parseNumber(sql, from, to - 2);
+        } else if (to - from > 1 && Character.toLowerCase(sql.charAt(to - 1)) == 's') {
+            long n = parseNumber(sql, from, to - 1);
+            return n < 0 || n > Long.MAX_VALUE / 1000 ? -1L : n * 1000;
+        }
+        return parseNumber(sql, from, to);
+    }
+
+    /**
+     * [from, to)是ip:port的形式
+     */
+    private static boolean isServer(String sql, int from, int to) {
+        int colon = sql.lastIndexOf(':', to - 1);
+        return colon > from && parseNumber(sql, colon + 1, to) > 0;
+    }
+
+    /**
+     * [from, to)是非负整数时返回该数, 否则返回-1
+     */
+    private static long parseNumber(String sql, int from, int to) {
+        if (from >= to || to - from > 18) {
+            return -1L;
+        }
+        long n = 0;
+        for (int i = from; i < to; i++) {
+            char c = sql.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1L;
+            }
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    /**
+     * [from, to)由一个或多个name(value)组成, 以空白或逗号分隔
+     */
+    private static boolean isHintList(String sql, int from, int to) {
+        int p = skipHintSeparator(sql, from, to);
+        if (p >= to) {
+            return false;
+        }
+        while (p < to) {
+            int nameEnd = p;
+            while (nameEnd < to && isIdentifierPart(sql.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            int open = skipWhitespace(sql, nameEnd, to);
+            if (nameEnd == p || open >= to || sql.charAt(open) != '(') {
+                return false;
+            }
+            int close = sql.indexOf(')', open + 1);
+            if (close < 0 || close >= to) {
+                return false;
+            }
+            p = skipHintSeparator(sql, close + 1, to);
+        }
+        return true;
+    }
+
+    private static int skipHintSeparator(String sql, int from, int to) {
+        while (from < to && (Character.isWhitespace(sql.charAt(from)) || sql.charAt(from) == ',')) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * [from, to)与word相同, 忽略大小写
+     */
+    static boolean matches(String sql, int from, int to, String word) {
+        return to - from == word.length() && sql.regionMatches(true, from, word, 0, to - from);
+    }
+
+    static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static int skipWhitespace(String sql, int from, int to) {
+        while (from < to && Character.isWhitespace(sql.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * 跳过以quote开头的字符串, 返回结束引号之后的下标
+     */
+    static int skipQuoted(String sql, int i, char quote) {
+        int len = sql.length();
+        for (i++; i < len; i++) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i++;
+            } else if (c == quote) {
+                return i + 1;
+            }
+        }
+        return len;
+    }
+
+    private SQLClassifier() {
+    }
+}
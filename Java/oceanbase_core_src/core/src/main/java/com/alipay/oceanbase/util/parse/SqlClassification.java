@@ -0,0 +1,128 @@
+package com.alipay.oceanbase.util.parse;
+
+/**
+ * sql的分类结果: 语句类型, 一致性hint, 集群hint, 路由hint。<br/>
+ * 不带路由hint的合法组合都预先创建好, 分类时不分配对象; 其他结果单独创建, hint语法错误时读取对应hint抛出IllegalArgumentException。
+ */
+public final class SqlClassification {
+
+    private static final SqlClassification[][][] CACHE;
+
+    static {
+        int types = SqlType.values().length, hints = SqlHintType.values().length;
+        CACHE = new SqlClassification[types][hints][hints];
+        for (SqlType type : SqlType.values()) {
+            for (SqlHintType consistency : SqlHintType.values()) {
+                for (SqlHintType cluster : SqlHintType.values()) {
+                    CACHE[type.ordinal()][consistency.ordinal()][cluster.ordinal()] = new SqlClassification(
+                        type, consistency, cluster, null, null, RouteHint.NONE, null);
+                }
+            }
+        }
+    }
+
+    private final SqlType                        sqlType;
+    private final SqlHintType                    consistencyHint;
+    private final SqlHintType                    clusterHint;
+    private final String                         consistencyError;
+    private final String                         clusterError;
+    private final RouteHint                      routeHint;
+    private final String                         routeError;
+
+    private SqlClassification(SqlType sqlType, SqlHintType consistencyHint,
+                              SqlHintType clusterHint, String consistencyError,
+                              String clusterError, RouteHint routeHint, String routeError) {
+        this.sqlType = sqlType;
+        this.consistencyHint = consistencyHint;
+        this.clusterHint = clusterHint;
+        this.consistencyError = consistencyError;
+        this.clusterError = clusterError;
+        this.routeHint = routeHint;
+        this.routeError = routeError;
+    }
+
+    /**
+     *
+     *
+     * @param sqlType
+     * @param consistencyHint
+     * @param clusterHint
+     * @param consistencyError 一致性hint语法错误信息, 没有错误时为null
+     * @param clusterError 集群hint语法错误信息, 没有错误时为null
+     * @param routeHint
+     * @param routeError 路由hint语法错误信息, 没有错误时为null
+     * @return
+     */
+    static SqlClassification valueOf(SqlType sqlType, SqlHintType consistencyHint,
+                                      SqlHintType clusterHint, String consistencyError,
+                                      String clusterError, RouteHint routeHint,
+                                      String routeError) {
+        if (consistencyError == null && clusterError == null && routeHint == RouteHint.NONE
+            && routeError == null) {
+            return CACHE[sqlType.ordinal()][consistencyHint.ordinal()][clusterHint.ordinal()];
+        }
+        return new SqlClassification(sqlType, consistencyHint, clusterHint, consistencyError,
+            clusterError, routeHint, routeError);
+    }
+
+    public SqlType getSqlType() {
+        return sqlType;
+    }
+
+    /**
+     * 普通select, 可以走读连接
+     *
+     * @return
+     */
+    public boolean isSelect() {
+        return sqlType == SqlType.SELECT;
+    }
+
+    /**
+     *
+     *
+     * @return
+     * @throws IllegalArgumentException hint语法错误
+     */
+    public SqlHintType getConsistencyHint() {
+        if (consistencyError != null) {
+            throw new IllegalArgumentException(consistencyError);
+        }
+        return consistencyHint;
+    }
+
+    /**
+     *
+     *
+     * @return
+     * @throws IllegalArgumentException hint语法错误
+     */
+    public SqlHintType getClusterHint() {
+        if (clusterError != null) {
+            throw new IllegalArgumentException(clusterError);
+        }
+        return clusterHint;
+    }
+
+    /**
+     * ob_route, ob_timeout, ob_retry
+     *
+     * @return 没有路由hint时返回RouteHint.NONE
+     * @throws IllegalArgumentException hint语法错误
+     */
+    public RouteHint getRouteHint() {
+        if (routeError != null) {
+            throw new IllegalArgumentException(routeError);
+        }
+        return routeHint;
+    }
+
+    /**
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return sqlType + ", " + consistencyHint + ", " + clusterHint + ", " + routeHint;
+    }
+}
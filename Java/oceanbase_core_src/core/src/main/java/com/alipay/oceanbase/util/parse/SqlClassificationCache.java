@@ -0,0 +1,121 @@
+package com.alipay.oceanbase.util.parse;
+
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SQL_CACHE_MAX_LENGTH;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alipay.oceanbase.util.StripedCounter;
+
+/**
+ * sql文本到分类结果的缓存, 每条不同的sql只解析一次。<br/>
+ * 1. 读取只访问ConcurrentHashMap并设置访问标记, 不加锁;<br/>
+ * 2. 超过maxSize时按CLOCK(second chance)淘汰, 近似LRU: 队首条目被访问过则清除标记放回队尾, 否则淘汰;<br/>
+ * 3. maxSize小于等于0时关闭缓存, 超过SQL_CACHE_MAX_LENGTH的sql(一般是拼接了常量的sql)不缓存。
+ */
+public class SqlClassificationCache {
+
+    private final int                              maxSize;
+    private final ConcurrentHashMap<String, Entry> entries;
+    private final ConcurrentLinkedQueue<Entry>     clock  = new ConcurrentLinkedQueue<Entry>();
+    private final AtomicInteger                    size   = new AtomicInteger(0);
+
+    private final StripedCounter                   hits   = new StripedCounter();
+    private final StripedCounter                   misses = new StripedCounter();
+
+    public SqlClassificationCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new ConcurrentHashMap<String, Entry>(Math.max(16, maxSize * 4 / 3 + 1));
+    }
+
+    /**
+     * 
+     * 
+     * @param sql
+     * @return
+     * @see SQLClassifier#classify(String)
+     */
+    public SqlClassification classify(String sql) {
+        if (maxSize <= 0 || sql.length() > SQL_CACHE_MAX_LENGTH) {
+            misses.increment();
+            return SQLClassifier.classify(sql);
+        }
+
+        Entry e = entries.get(sql);
+        if (e != null) {
+            if (!e.referenced) {// 避免每次命中都写共享的cache line
+                e.referenced = true;
+            }
+            hits.increment();
+            return e.value;
+        }
+
+        misses.increment();
+        SqlClassification sc = SQLClassifier.classify(sql);
+        e = new Entry(sql, sc);
+        if (entries.putIfAbsent(sql, e) == null) {
+            clock.offer(e);
+            if (size.incrementAndGet() > maxSize) {
+                evict();
+            }
+        }
+        return sc;
+    }
+
+    private void evict() {
+        for (int i = 0; i < 2 * maxSize + 1 && size.get() > maxSize; i++) {// 最多扫描两圈
+            Entry e = clock.poll();
+            if (e == null) {
+                return;
+            }
+
+            if (e.referenced) {
+                e.referenced = false;
+                clock.offer(e);
+            } else if (entries.remove(e.sql, e)) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * size;maxSize;hitCount;missCount;hitRate
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        long hit = getHitCount(), miss = getMissCount();
+        long total = hit + miss;
+        return size() + ";" + maxSize + ";" + hit + ";" + miss + ";"
+               + (total == 0 ? "0.00" : String.format("%.2f", hit * 100.0D / total));
+    }
+
+    private static final class Entry {
+        final String            sql;
+        final SqlClassification value;
+        volatile boolean        referenced;
+
+        Entry(String sql, SqlClassification value) {
+            this.sql = sql;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.alipay.oceanbase;
+
+import static com.alipay.oceanbase.util.parse.SQLClassifier.classify;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.alipay.oceanbase.util.parse.RouteHint;
+import com.alipay.oceanbase.util.parse.SqlClassification;
+import com.alipay.oceanbase.util.parse.SqlHintType;
+
+public class OBRoutingTest {
+
+    /**
+     * 上下文优先, 未设置的项使用sql中的hint
+     */
+    @Test
+    public void testOverride() {
+        SqlClassification sc = classify("select /*+read_consistency(strong) read_cluster(master) "
+                                        + "ob_retry(3)*/ 1");
+
+        OBRouting.Scope scope = OBRouting.weak().deadline(50);
+        try {
+            assertEquals(SqlHintType.CONSISTENCY_WEAK, OBRouting.getConsistencyHint(sc));
+            assertEquals(SqlHintType.CLUSTER_MASTER, OBRouting.getClusterHint(sc, true));
+
+            RouteHint hint = OBRouting.getRouteHint(sc.getRouteHint());
+            assertEquals(50L, hint.getTimeout());
+            assertEquals(3, hint.getRetryTimes());
+        } finally {
+            scope.close();
+        }
+
+        assertNull(OBRouting.current());
+        assertEquals(SqlHintType.CONSISTENCY_STRONG, OBRouting.getConsistencyHint(sc));
+        assertSame(sc.getRouteHint(), OBRouting.getRouteHint(sc.getRouteHint()));
+    }
+
+    /**
+     * 集群只对读生效
+     */
+    @Test
+    public void testCluster() {
+        SqlClassification sc = classify("insert into tab values(1)");
+
+        OBRouting.Scope scope = OBRouting.slave();
+        try {
+            assertEquals(SqlHintType.CLUSTER_SLAVE, OBRouting.getClusterHint(sc, true));
+            assertEquals(SqlHintType.CLUSTER_NONE, OBRouting.getClusterHint(sc, false));
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * 内层继承外层, close后恢复外层
+     */
+    @Test
+    public void testNested() {
+        OBRouting.Scope outer = OBRouting.weak().retry(0);
+        OBRouting.Scope inner = OBRouting.master().server("10.0.0.1:2828");
+        assertSame(inner, OBRouting.current());
+
+        RouteHint hint = OBRouting.getRouteHint(RouteHint.NONE);
+        assertEquals("10.0.0.1:2828", hint.getServer());
+        assertEquals(0, hint.getRetryTimes());
+        assertEquals(SqlHintType.CONSISTENCY_WEAK,
+            OBRouting.getConsistencyHint(classify("select 1")));
+
+        inner.close();
+        inner.close();
+        assertSame(outer, OBRouting.current());
+        assertNull(OBRouting.getRouteHint(RouteHint.NONE).getServer());
+
+        outer.close();
+        assertSame(RouteHint.NONE, OBRouting.getRouteHint(RouteHint.NONE));
+    }
+
+    @After
+    public void tearDown() {
+        while (OBRouting.current() != null) {
+            OBRouting.current().close();
+        }
+    }
+}
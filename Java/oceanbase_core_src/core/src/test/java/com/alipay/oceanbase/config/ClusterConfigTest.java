@@ -1,5 +1,6 @@
 package com.alipay.oceanbase.config;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -68,6 +69,35 @@ public class ClusterConfigTest {
         assertFalse(mockData1.isInvalid());
     }
 
+    /**
+     * 主集群不算过期, 延迟未知的备集群在限制延迟时算过期
+     */
+    @Test
+    public void testIsStale() {
+        assertTrue(mockData3.isStale(100L));
+        assertFalse(mockData3.isStale(-1L));
+
+        mockData3.setReplicaLag(200L);
+        assertTrue(mockData3.isStale(100L));
+        assertFalse(mockData3.isStale(200L));
+        assertFalse(mockData3.isStale(-1L));
+
+        mockData1.setReplicaLag(200L);
+        assertFalse(mockData1.isStale(100L));
+    }
+
+    /**
+     * 重建配置时沿用延迟和采样时间, 不重置为未知
+     */
+    @Test
+    public void testInheritReplicaLag() {
+        mockData3.setReplicaLag(200L);
+        mockData7.inheritReplicaLag(mockData3);
+        assertEquals(200L, mockData7.getReplicaLag());
+        assertEquals(mockData3.getReplicaLagTime(), mockData7.getReplicaLagTime());
+        assertFalse(mockData7.isStale(200L));
+    }
+
     @Before
     public void setUp() {
         mockIp1 = "10.1.1.1";
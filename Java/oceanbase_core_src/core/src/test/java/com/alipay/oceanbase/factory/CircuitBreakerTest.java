@@ -0,0 +1,210 @@
+package com.alipay.oceanbase.factory;
+
+import static com.alipay.oceanbase.factory.CircuitBreaker.CLOSED;
+import static com.alipay.oceanbase.factory.CircuitBreaker.HALF_OPEN;
+import static com.alipay.oceanbase.factory.CircuitBreaker.OPEN;
+import static com.alipay.oceanbase.factory.CircuitBreaker.PASS;
+import static com.alipay.oceanbase.factory.CircuitBreaker.REJECTED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    CircuitBreaker breaker;
+
+    /**
+     * 调用数不足minCalls时不熔断
+     */
+    @Test
+    public void testMinCalls() {
+        for (int i = 0; i < 9; i++) {
+            breaker.onResult(true, 0);
+        }
+        assertFalse(breaker.isOpen());
+        assertEquals(CLOSED, breaker.getState());
+    }
+
+    /**
+     * 异常率达到阈值时熔断
+     */
+    @Test
+    public void testErrorRate() {
+        for (int i = 0; i < 5; i++) {
+            breaker.onResult(false, 0);
+        }
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(true, 0);
+        }
+        assertFalse(breaker.isOpen());
+
+        breaker.onResult(true, 0);// 5/10
+        assertTrue(breaker.isOpen());
+        assertEquals(OPEN, breaker.getState());
+    }
+
+    /**
+     * 慢调用率达到阈值时熔断
+     */
+    @Test
+    public void testSlowCallRate() {
+        for (int i = 0; i < 10; i++) {
+            breaker.onResult(false, TimeUnit.MILLISECONDS.toNanos(200));
+        }
+        assertTrue(breaker.isOpen());
+    }
+
+    /**
+     * 熔断时间到达后放行探测请求, 探测全部成功后恢复
+     */
+    @Test
+    public void testHalfOpen() throws InterruptedException {
+        breaker.trip();
+        assertTrue(breaker.isOpen());
+
+        TimeUnit.MILLISECONDS.sleep(150);
+        assertFalse(breaker.isOpen());
+        assertEquals(HALF_OPEN, breaker.getState());
+
+        long p1 = breaker.tryAcquire();
+        long p2 = breaker.tryAcquire();
+        assertTrue(p1 > PASS);
+        assertEquals(p1, p2);
+        assertTrue(breaker.isOpen());// 探测名额用完
+        assertEquals(REJECTED, breaker.tryAcquire());
+
+        breaker.onResult(false, 0, p1);
+        breaker.onResult(false, 0, p2);
+        assertEquals(CLOSED, breaker.getState());
+        assertFalse(breaker.isOpen());
+        assertEquals(PASS, breaker.tryAcquire());
+    }
+
+    /**
+     * 探测失败时重新熔断, 熔断时间翻倍
+     */
+    @Test
+    public void testHalfOpenFailure() throws InterruptedException {
+        breaker.trip();
+        TimeUnit.MILLISECONDS.sleep(150);
+        assertFalse(breaker.isOpen());
+
+        breaker.onResult(true, 0, breaker.tryAcquire());
+        assertEquals(OPEN, breaker.getState());
+        assertEquals(REJECTED, breaker.tryAcquire());
+
+        TimeUnit.MILLISECONDS.sleep(150);
+        assertTrue(breaker.isOpen());
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertFalse(breaker.isOpen());
+    }
+
+    /**
+     * 没有结果的探测归还名额, 不会一直熔断
+     */
+    @Test
+    public void testAbortedProbe() throws InterruptedException {
+        breaker.trip();
+        TimeUnit.MILLISECONDS.sleep(150);
+        assertFalse(breaker.isOpen());
+
+        long p1 = breaker.tryAcquire();
+        long p2 = breaker.tryAcquire();
+        assertTrue(breaker.isOpen());
+
+        breaker.onAbort(PASS);// 不是探测请求, 没有占用名额
+        assertTrue(breaker.isOpen());
+
+        breaker.onAbort(p1);// 例如被取消的对冲请求
+        assertFalse(breaker.isOpen());
+        assertEquals(HALF_OPEN, breaker.getState());
+
+        long p3 = breaker.tryAcquire();
+        breaker.onResult(false, 0, p2);
+        breaker.onResult(false, 0, p3);
+        assertEquals(CLOSED, breaker.getState());
+
+        breaker.onAbort(p1);// 关闭后不影响
+        assertFalse(breaker.isOpen());
+    }
+
+    /**
+     * 熔断前发出、半开期间才结束的请求不计入探测, 也不归还名额
+     */
+    @Test
+    public void testStaleResult() throws InterruptedException {
+        breaker.trip();
+        TimeUnit.MILLISECONDS.sleep(150);
+        long p1 = breaker.tryAcquire();
+        long p2 = breaker.tryAcquire();
+
+        breaker.onResult(false, 0);
+        breaker.onResult(false, 0, PASS);
+        breaker.onAbort(PASS);
+        assertEquals(HALF_OPEN, breaker.getState());
+        assertTrue(breaker.isOpen());
+
+        breaker.onResult(true, 0, p1);// 重新熔断, 再次半开后上一次的permit失效
+        TimeUnit.MILLISECONDS.sleep(250);
+        long p3 = breaker.tryAcquire();
+        assertTrue(p3 > p1);
+
+        breaker.onAbort(p2);
+        breaker.onResult(false, 0, p2);
+        assertFalse(breaker.isOpen());
+        assertEquals(HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire() > PASS);
+        assertEquals(REJECTED, breaker.tryAcquire());
+    }
+
+    /**
+     * 并发选中时只放行probes个探测请求
+     */
+    @Test
+    public void testConcurrentAcquire() throws InterruptedException {
+        breaker.trip();
+        TimeUnit.MILLISECONDS.sleep(150);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger granted = new AtomicInteger(0);
+        Thread[] threads = new Thread[16];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < 100; j++) {
+                        if (breaker.tryAcquire() > PASS) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(2, granted.get());
+        assertEquals(HALF_OPEN, breaker.getState());
+    }
+
+    @Before
+    public void setUp() {
+        // window 10s, minCalls 10, errorRate 50%, slowCall 100ms, slowCallRate 80%, open 100ms, probes 2
+        breaker = new CircuitBreaker("10.1.1.1:2828", 10000, 10, 50, 100, 80, 100, 2);
+    }
+}
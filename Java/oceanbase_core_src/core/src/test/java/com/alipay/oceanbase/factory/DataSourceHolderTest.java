@@ -11,6 +11,7 @@ import static org.powermock.api.mockito.PowerMockito.spy;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
@@ -71,6 +72,68 @@ public class DataSourceHolderTest {
         assertFalse(mockDataSourceHolder.isInvalid());
     }
 
+    /**
+     * 多线程并发审计时异常不会丢失
+     */
+    @Test
+    public void testAuditConcurrently() throws InterruptedException {
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 6; i++) {// 8 * 6 = 48次异常
+                            mockDataSourceHolder.audit(1.0D);
+                        }
+                    } catch (InterruptedException e) {
+                        // ignore
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        start.countDown();
+        done.await();
+        assertTrue(mockDataSourceHolder.isInvalid());
+    }
+
+    @Test
+    public void testAuditSuccess() {
+        for (int i = 0; i < 100000; i++) {
+            mockDataSourceHolder.audit(0.0D);
+        }
+        assertFalse(mockDataSourceHolder.isInvalid());
+    }
+
+    /**
+     * 慢启动窗口内权重逐步增长, 窗口结束后恢复正常
+     */
+    @Test
+    public void testWarmup() throws Exception {
+        mockMap.put("slowStartWindow", "1000");
+        DataSourceHolder dsh = DataSourceFactory.getHolder(mockMergeServerConfig2, mockMap);
+        assertFalse(dsh.isWarmingUp());
+        assertEquals(1.0D, dsh.getWarmupFactor(), 0.0D);
+
+        dsh.startWarmup();
+        assertTrue(dsh.isWarmingUp());
+        double factor1 = dsh.getWarmupFactor();
+        assertTrue(factor1 < 0.5D);
+
+        TimeUnit.MILLISECONDS.sleep(500L);
+        double factor2 = dsh.getWarmupFactor();
+        assertTrue(factor1 < factor2 && factor2 < 1.0D);
+
+        TimeUnit.MILLISECONDS.sleep(600L);
+        assertFalse(dsh.isWarmingUp());
+        assertEquals(1.0D, dsh.getWarmupFactor(), 0.0D);
+    }
+
     @Test
     public void testEquals() throws SQLException {
         assertTrue(mockDataSourceHolder.equals(mockDataSourceHolder));
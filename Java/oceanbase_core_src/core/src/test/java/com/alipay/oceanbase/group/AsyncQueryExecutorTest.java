@@ -0,0 +1,155 @@
+package com.alipay.oceanbase.group;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.alipay.oceanbase.config.ClusterConfig;
+import com.alipay.oceanbase.jdbc.QueryCallback;
+import com.alipay.oceanbase.jdbc.QueryFuture;
+import com.alipay.oceanbase.jdbc.RowMapper;
+import com.alipay.oceanbase.util.parse.RouteHint;
+import com.alipay.oceanbase.util.parse.SqlHintType;
+
+public class AsyncQueryExecutorTest {
+
+    private static final RowMapper<String> MAPPER   = new RowMapper<String>() {
+                                                        public String mapRow(ResultSet rs,
+                                                                             int rowNum)
+                                                                                        throws SQLException {
+                                                            return rs.getString(1);
+                                                        }
+                                                    };
+
+    private final CountDownLatch           release  = new CountDownLatch(1);
+    private final AsyncQueryExecutor       executor = new AsyncQueryExecutor(1, 1);
+
+    /**
+     * 返回args的选择器, sql为block时等待release
+     */
+    private final MergeServerSelector      selector = new MergeServerSelector() {
+                                                        public <T> T tryExecute(DataSourceTryer<T> tryer,
+                                                                                boolean isConsistency,
+                                                                                SqlHintType isMasterCluster,
+                                                                                Object... args)
+                                                                                               throws SQLException {
+                                                            return tryExecute(tryer,
+                                                                isConsistency, isMasterCluster,
+                                                                RouteHint.NONE, args);
+                                                        }
+
+                                                        @SuppressWarnings("unchecked")
+                                                        public <T> T tryExecute(DataSourceTryer<T> tryer,
+                                                                                boolean isConsistency,
+                                                                                SqlHintType isMasterCluster,
+                                                                                RouteHint routeHint,
+                                                                                Object... args)
+                                                                                               throws SQLException {
+                                                            if ("block".equals(args[0])) {
+                                                                try {
+                                                                    release.await();
+                                                                } catch (InterruptedException e) {
+                                                                    throw new SQLException(e);
+                                                                }
+                                                            } else if ("fail".equals(args[0])) {
+                                                                throw new SQLException("fail");
+                                                            }
+                                                            return (T) args[1];
+                                                        }
+
+                                                        public void setReadDistTable(ClusterConfig[] readDistTable) {
+                                                        }
+
+                                                        public void printClusterStatus() {
+                                                        }
+                                                    };
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.destroy();
+    }
+
+    /**
+     * 成功和失败时都回调
+     */
+    @Test
+    public void testCallback() throws Exception {
+        final AtomicReference<Object> result = new AtomicReference<Object>();
+        final CountDownLatch done = new CountDownLatch(2);
+        QueryCallback<String> callback = new QueryCallback<String>() {
+            public void onSuccess(List<String> rows) {
+                result.set(rows);
+                done.countDown();
+            }
+
+            public void onFailure(Throwable t) {
+                result.set(t);
+                done.countDown();
+            }
+        };
+
+        QueryFuture<String> future = submit("select", callback, "a", "b");
+        assertEquals(Arrays.asList("a", "b"), future.get(1, TimeUnit.SECONDS));
+
+        future = submit("fail", callback);
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(result.get() instanceof SQLException);
+    }
+
+    /**
+     * 队列满时直接失败, 排队中的查询可以取消
+     */
+    @Test
+    public void testRejectAndCancel() throws Exception {
+        QueryFuture<String> running = submit("block", null);
+        QueryFuture<String> queued = submit("select", null);
+        QueryFuture<String> rejected = submit("select", null);
+
+        try {
+            rejected.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+
+        assertTrue(queued.cancel(true));
+        try {
+            queued.get();
+            fail();
+        } catch (CancellationException e) {
+            // expected
+        }
+
+        release.countDown();
+        running.get(1, TimeUnit.SECONDS);
+        assertFalse(running.cancel(true));
+        assertTrue(executor.toString().startsWith("3;1;"));
+    }
+
+    private QueryFuture<String> submit(String sql, QueryCallback<String> callback,
+                                       Object... params) throws SQLException {
+        return executor.submit(selector, false, SqlHintType.CLUSTER_NONE, RouteHint.NONE, sql,
+            params, MAPPER, callback);
+    }
+}
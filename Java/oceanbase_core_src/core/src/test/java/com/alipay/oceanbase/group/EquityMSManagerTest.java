@@ -8,6 +8,8 @@ import static org.powermock.api.mockito.PowerMockito.spy;
 import static org.powermock.api.mockito.PowerMockito.when;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -27,6 +29,8 @@ import com.alipay.oceanbase.factory.DataSourceHolder;
 import com.alipay.oceanbase.group.MergeServerSelector.DataSourceTryer;
 import com.alipay.oceanbase.task.UpdateConfigTask;
 import com.alipay.oceanbase.util.ObUtil;
+import com.alipay.oceanbase.util.parse.RouteHint;
+import com.alipay.oceanbase.util.parse.SQLHintParser;
 import com.alipay.oceanbase.util.parse.SqlHintType;
 
 /**
@@ -169,6 +173,37 @@ public class EquityMSManagerTest {
         assertTrue(count3 > 9990);
     }
 
+    /**
+     * 三个集群, 读写操作同时进行, 实际读流量分布与目标一致
+     */
+    @Test
+    public void testSelectCluster4_1() {
+        ClusterConfig slaveClusterConfig2 = Mockito.spy(new ClusterConfig("10.1.1.3", 2828L, 3L,
+            2L, 20, 1L));
+        doReturn(false).when(slaveClusterConfig2).isInvalid();
+
+        ClusterConfig[] table = new ClusterConfig[100];
+        for (int i = 0; i < 100; i++) {// 主60%, 备各20%
+            table[i] = i < 60 ? mockMasterClusterConfig : (i < 80 ? mockSlaveClusterConfig
+                : slaveClusterConfig2);
+        }
+        Collections.shuffle(Arrays.asList(table));
+        mockEquityMSManager.setReadDistTable(table);
+
+        for (int i = 0; i < 10000; i++) {
+            mockEquityMSManager.selectCluster(true, SqlHintType.CLUSTER_NONE);
+            mockEquityMSManager.selectCluster(false, SqlHintType.CLUSTER_NONE);
+        }
+
+        long master = mockEquityMSManager.getServedCount(mockMasterClusterConfig);
+        long slave1 = mockEquityMSManager.getServedCount(mockSlaveClusterConfig);
+        long slave2 = mockEquityMSManager.getServedCount(slaveClusterConfig2);
+        assertEquals(20000, master + slave1 + slave2);
+        assertTrue(master > 11900 && master < 12100);
+        assertTrue(slave1 > 3900 && slave1 < 4100);
+        assertTrue(slave2 > 3900 && slave2 < 4100);
+    }
+
     @Test
     public void testTryExecute1_1() throws SQLException {
         when(mockDataSourceTryer.tryOnDataSource(mockdsh1, mockSQL)).thenReturn(100);
@@ -227,6 +262,35 @@ public class EquityMSManagerTest {
             SqlHintType.CLUSTER_NONE, mockSQL).compareTo(100) == 0);
     }
 
+    /**
+     * ob_route(cluster=id)指定备集群, 强一致读也发往备集群
+     */
+    @Test
+    public void testTryExecute3_1() throws SQLException {
+        when(mockDataSourceTryer.tryOnDataSource(mockdsh1, mockSQL)).thenThrow(new SQLException());
+        when(mockDataSourceTryer.tryOnDataSource(mockdsh2, mockSQL)).thenThrow(new SQLException());
+        when(mockDataSourceTryer.tryOnDataSource(mockdsh3, mockSQL)).thenThrow(new SQLException());
+        when(mockDataSourceTryer.tryOnDataSource(mockdsh4, mockSQL)).thenReturn(100);
+        when(mockDataSourceTryer.tryOnDataSource(mockdsh5, mockSQL)).thenReturn(100);
+        when(mockDataSourceTryer.tryOnDataSource(mockdsh6, mockSQL)).thenReturn(100);
+        when(mockDataSourceTryer.tryOnDataSource(mockdsh7, mockSQL)).thenReturn(100);
+
+        RouteHint routeHint = SQLHintParser.getRouteHint("/*+ob_route(cluster=2) ob_retry(0)*/"
+                                                         + mockSQL);
+        assertTrue(mockEquityMSManager.tryExecute(mockDataSourceTryer, true,
+            SqlHintType.CLUSTER_NONE, routeHint, mockSQL).compareTo(100) == 0);
+    }
+
+    /**
+     * ob_route指定的集群不存在
+     */
+    @Test(expected = SQLException.class)
+    public void testTryExecute3_2() throws SQLException {
+        RouteHint routeHint = SQLHintParser.getRouteHint("/*+ob_route(cluster=9)*/" + mockSQL);
+        mockEquityMSManager.tryExecute(mockDataSourceTryer, false, SqlHintType.CLUSTER_NONE,
+            routeHint, mockSQL);
+    }
+
     String                   mockUserName, mockPassword, mockClusterAddress, mockSQL;
     long                     mockClusterId1, mockClusterId2;
     ClusterConfig            mockMasterClusterConfig, mockSlaveClusterConfig;
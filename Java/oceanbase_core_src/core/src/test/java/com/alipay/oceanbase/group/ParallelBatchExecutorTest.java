@@ -0,0 +1,135 @@
+package com.alipay.oceanbase.group;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ParallelBatchExecutorTest {
+
+    private ParallelBatchExecutor executor = new ParallelBatchExecutor(4, 10, 4);
+
+    @After
+    public void tearDown() {
+        executor.destroy();
+    }
+
+    /**
+     * 各块的结果按原来的顺序拼接
+     */
+    @Test
+    public void testExecute() throws SQLException {
+        assertFalse(ParallelBatchExecutor.NONE.isParallel(100));
+        assertFalse(executor.isParallel(10));
+        assertTrue(executor.isParallel(11));
+
+        int[] result = executor.execute(95, new ParallelBatchExecutor.Chunk() {
+            public int[] execute(int from, int to) {
+                int[] counts = new int[to - from];
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = from + i;
+                }
+                return counts;
+            }
+        });
+        assertEquals(95, result.length);
+        for (int i = 0; i < result.length; i++) {
+            assertEquals(i, result[i]);
+        }
+    }
+
+    /**
+     * 某块失败后, 失败和未执行的行为EXECUTE_FAILED
+     */
+    @Test
+    public void testFailure() throws SQLException {
+        executor.destroy();
+        executor = new ParallelBatchExecutor(2, 10, 1);
+        try {
+            executor.execute(100, new ParallelBatchExecutor.Chunk() {
+                public int[] execute(int from, int to) throws SQLException {
+                    if (from == 20) {
+                        throw new SQLException("duplicate", "23000", 1062);
+                    }
+                    int[] counts = new int[to - from];
+                    Arrays.fill(counts, 1);
+                    return counts;
+                }
+            });
+            fail();
+        } catch (BatchUpdateException e) {
+            assertEquals(1062, e.getErrorCode());
+            int[] counts = e.getUpdateCounts();
+            assertEquals(100, counts.length);
+            for (int i = 20; i < 30; i++) {
+                assertEquals(Statement.EXECUTE_FAILED, counts[i]);
+            }
+            for (int count : counts) {
+                assertTrue(count == 1 || count == Statement.EXECUTE_FAILED);
+            }
+        }
+    }
+
+    /**
+     * 执行中关闭线程池: 排队的任务被丢弃, 调用线程执行剩余的分块后返回, 之后的batch直接失败
+     */
+    @Test
+    public void testShutdownDuringBatch() throws Exception {
+        executor.destroy();
+        executor = new ParallelBatchExecutor(3, 10, 1);
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<int[]> result = new AtomicReference<int[]>();
+
+        Thread caller = new Thread() {
+            public void run() {
+                try {
+                    result.set(executor.execute(100, new ParallelBatchExecutor.Chunk() {
+                        public int[] execute(int from, int to) throws SQLException {
+                            started.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                // shutdownNow中断线程池中的分块, 继续执行
+                            }
+                            int[] counts = new int[to - from];
+                            Arrays.fill(counts, 1);
+                            return counts;
+                        }
+                    }));
+                } catch (SQLException e) {
+                    // ignore
+                }
+            }
+        };
+        caller.start();
+        assertTrue(started.await(1, TimeUnit.SECONDS));// 调用线程和线程池各执行一块, 一个任务在排队
+
+        executor.destroy();
+        release.countDown();
+        caller.join(2000);
+        assertFalse(caller.isAlive());
+        assertEquals(100, result.get().length);
+        for (int count : result.get()) {
+            assertEquals(1, count);
+        }
+
+        try {
+            executor.execute(100, null);
+            fail();
+        } catch (SQLException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.alipay.oceanbase.group;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 取消执行中的查询
+ */
+public class QueryCancellerTest {
+
+    QueryCanceller canceller;
+    Statement      statement;
+    int            cancels;
+
+    /**
+     * 已注册的statement被cancel
+     */
+    @Test
+    public void testCancelRegistered() throws SQLException {
+        canceller.register(statement);
+        assertFalse(canceller.isCancelled());
+
+        canceller.cancel();
+        assertTrue(canceller.isCancelled());
+        assertEquals(1, cancels);
+    }
+
+    /**
+     * 注销后取消不影响statement
+     */
+    @Test
+    public void testCancelAfterUnregister() throws SQLException {
+        canceller.register(statement);
+        canceller.unregister();
+
+        canceller.cancel();
+        assertTrue(canceller.isCancelled());
+        assertEquals(0, cancels);
+    }
+
+    /**
+     * 取消之后注册直接失败, 不再发往mergeserver
+     */
+    @Test
+    public void testRegisterAfterCancel() {
+        canceller.cancel();
+        try {
+            canceller.register(statement);
+            fail();
+        } catch (SQLException e) {
+            assertEquals("query cancelled", e.getMessage());
+        }
+        assertEquals(0, cancels);
+    }
+
+    @Before
+    public void setUp() {
+        canceller = new QueryCanceller();
+        cancels = 0;
+        statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { Statement.class }, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if ("cancel".equals(method.getName())) {
+                        cancels++;
+                    }
+                    return null;
+                }
+            });
+    }
+}
@@ -0,0 +1,310 @@
+package com.alipay.oceanbase.group;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alipay.oceanbase.config.MergeServerConfig;
+import com.alipay.oceanbase.factory.DataSourceHolder;
+import com.alipay.oceanbase.group.MergeServerSelector.HedgeableTryer;
+import com.alipay.oceanbase.group.RequestHedger.Outcome;
+import com.alipay.oceanbase.strategy.EquityStrategy;
+import com.alipay.oceanbase.util.OBDataSourceConstants;
+
+/**
+ * 对冲请求: 令牌桶、第一个请求胜出、对冲请求胜出、都失败
+ */
+public class RequestHedgerTest {
+
+    RequestHedger hedger;
+    Server        primary;
+    Server        secondary;
+    volatile long selectDelay;
+
+    /**
+     * 每次可对冲的请求积累percent%个额度, 最多积累10次对冲
+     */
+    @Test
+    public void testTokenBucket() throws SQLException {
+        RequestHedger bucket = new RequestHedger(10, 0.95D, 10L, 1);
+        try {
+            for (int i = 0; i < 9; i++) {
+                execute(bucket);
+            }
+            assertFalse(bucket.tryAcquire());
+            execute(bucket);
+            assertTrue(bucket.tryAcquire());
+            assertFalse(bucket.tryAcquire());
+
+            for (int i = 0; i < 200; i++) {
+                execute(bucket);
+            }
+            for (int i = 0; i < 10; i++) {
+                assertTrue(bucket.tryAcquire());
+            }
+            assertFalse(bucket.tryAcquire());
+        } finally {
+            bucket.destroy();
+        }
+    }
+
+    /**
+     * 样本不足时不对冲
+     */
+    @Test
+    public void testNoSamples() throws SQLException {
+        primary = new Server("primary", 50L, false);
+        Outcome<String> outcome = execute(hedger);
+        assertEquals("primary", outcome.getResult());
+        assertSame(primary.holder, outcome.getWinner());
+        assertEquals(0, hedger.getHedgedCount());
+    }
+
+    /**
+     * 第一个请求在延迟阈值内返回
+     */
+    @Test
+    public void testPrimaryWins() throws SQLException {
+        warmup();
+        Outcome<String> outcome = execute(hedger);
+        assertEquals("primary", outcome.getResult());
+        assertSame(primary.holder, outcome.getWinner());
+        assertNull(outcome.getPrimaryError());
+        assertEquals(0, hedger.getHedgedCount());
+    }
+
+    /**
+     * 对冲请求先返回, 第一个请求被取消, 响应时间只计入对冲的mergeserver
+     */
+    @Test
+    public void testSecondaryWins() throws SQLException {
+        warmup();
+        primary.delay = 5000L;
+        Outcome<String> outcome = execute(hedger);
+        assertEquals("secondary", outcome.getResult());
+        assertSame(secondary.holder, outcome.getWinner());
+        assertNull(outcome.getPrimaryError());
+        assertEquals(1, hedger.getHedgedCount());
+        assertEquals(1, hedger.getWonCount());
+        assertEquals(0, primary.cancelled.getCount());
+
+        assertEquals(OBDataSourceConstants.HEDGE_MIN_SAMPLES, primary.holder
+            .getLatencyHistogram().getCount());
+        assertEquals(1, secondary.holder.getLatencyHistogram().getCount());
+    }
+
+    /**
+     * 第一个请求失败后等待已经发出的对冲请求
+     */
+    @Test
+    public void testPrimaryFailsSecondaryWins() throws SQLException {
+        warmup();
+        primary.delay = 50L;
+        primary.fail = true;
+        secondary.delay = 200L;
+        Outcome<String> outcome = execute(hedger);
+        assertEquals("secondary", outcome.getResult());
+        assertSame(secondary.holder, outcome.getWinner());
+        assertNotNull(outcome.getPrimaryError());
+        assertEquals("primary", outcome.getPrimaryError().getMessage());
+    }
+
+    /**
+     * 都失败时抛出第一个请求的异常
+     */
+    @Test
+    public void testBothFail() {
+        warmup();
+        primary.delay = 100L;
+        primary.fail = true;
+        secondary.fail = true;
+        try {
+            execute(hedger);
+            fail();
+        } catch (SQLException e) {
+            assertEquals("primary", e.getMessage());
+        }
+        assertEquals(1, hedger.getHedgedCount());
+        assertEquals(0, hedger.getWonCount());
+        assertEquals(1, secondary.holder.getLatencyHistogram().getCount());
+    }
+
+    /**
+     * 对冲任务选择mergeserver期间第一个请求返回, 对冲请求不再发往mergeserver
+     */
+    @Test
+    public void testPrimaryDoneWhileSelecting() throws InterruptedException, SQLException {
+        warmup();
+        primary.delay = 30L;
+        secondary.delay = 5000L;
+        selectDelay = 100L;
+        Outcome<String> outcome = execute(hedger);
+        assertEquals("primary", outcome.getResult());
+        assertSame(primary.holder, outcome.getWinner());
+        assertEquals(0, hedger.getWonCount());
+
+        Thread.sleep(300L);
+        assertEquals(0, secondary.holder.getInflight());
+        assertEquals(0, secondary.holder.getLatencyHistogram().getCount());
+    }
+
+    @Before
+    public void setUp() {
+        hedger = new RequestHedger(100, 0.95D, 10L, 1);
+        primary = new Server("primary", 0L, false);
+        secondary = new Server("secondary", 0L, false);
+    }
+
+    @After
+    public void tearDown() {
+        hedger.destroy();
+    }
+
+    /**
+     * 积累足够的响应时间样本, 延迟阈值为minDelay
+     */
+    private void warmup() {
+        for (int i = 0; i < OBDataSourceConstants.HEDGE_MIN_SAMPLES; i++) {
+            primary.holder.recordResponseTime(TimeUnit.MILLISECONDS.toNanos(1L));
+        }
+    }
+
+    private Outcome<String> execute(RequestHedger hedger) throws SQLException {
+        HedgeableTryer<String> tryer = new HedgeableTryer<String>() {
+            public String tryOnDataSource(DataSourceHolder dsw, Object... args)
+                                                                               throws SQLException {
+                return tryOnDataSource(dsw, new QueryCanceller(), args);
+            }
+
+            public String tryOnDataSource(DataSourceHolder dsw, QueryCanceller canceller,
+                                          Object... args) throws SQLException {
+                return (dsw == primary.holder ? primary : secondary).query(canceller);
+            }
+        };
+        return hedger.execute(tryer, primary.holder, strategy(),
+            new ArrayList<DataSourceHolder>(), "select 1");
+    }
+
+    private EquityStrategy strategy() {
+        return new EquityStrategy() {
+            @Override
+            public DataSourceHolder select(List<DataSourceHolder> excludeKeys, Object... objs) {
+                if (selectDelay > 0) {
+                    try {
+                        Thread.sleep(selectDelay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return excludeKeys.contains(secondary.holder) ? null : secondary.holder;
+            }
+
+            @Override
+            protected void reloadDataSources(Integer maxActive, Integer minIdle,
+                                             String connectionProperties) {
+            }
+
+            @Override
+            public boolean isInvalid() {
+                return false;
+            }
+
+            @Override
+            public void destroyDataSource() {
+            }
+
+            @Override
+            public void destroyDataSource(MergeServerConfig msc) {
+            }
+
+            @Override
+            public void addDataSource(MergeServerConfig msc) throws SQLException {
+            }
+
+            @Override
+            public void printDSStatus() {
+            }
+
+            @Override
+            public Collection<DataSourceHolder> getDataSourceHolders() {
+                return Collections.singletonList(secondary.holder);
+            }
+        };
+    }
+
+    /**
+     * 延迟delay后返回name或失败, 执行中可以被取消
+     */
+    static class Server {
+        final String           name;
+        final CountDownLatch   cancelled = new CountDownLatch(1);
+        final DataSourceHolder holder;
+        final Statement        statement;
+        volatile long          delay;
+        volatile boolean       fail;
+
+        Server(String name, long delay, boolean fail) {
+            this.name = name;
+            this.delay = delay;
+            this.fail = fail;
+            this.holder = new DataSourceHolder(new MergeServerConfig(name, 2828L)) {
+                @Override
+                public DataSource getDataSource() {
+                    return null;
+                }
+
+                @Override
+                public void destroy() {
+                }
+            };
+            this.statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Statement.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("cancel".equals(method.getName())) {
+                            cancelled.countDown();
+                        }
+                        return null;
+                    }
+                });
+        }
+
+        String query(QueryCanceller canceller) throws SQLException {
+            canceller.register(statement);
+            try {
+                if (cancelled.await(delay, TimeUnit.MILLISECONDS)) {
+                    throw new SQLException("cancelled");
+                }
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            } finally {
+                canceller.unregister();
+            }
+            if (fail) {
+                throw new SQLException(name);
+            }
+            return name;
+        }
+    }
+}
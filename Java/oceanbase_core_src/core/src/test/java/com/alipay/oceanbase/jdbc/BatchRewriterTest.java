@@ -0,0 +1,131 @@
+package com.alipay.oceanbase.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alipay.oceanbase.jdbc.parameter.BatchBuffer;
+import com.alipay.oceanbase.jdbc.parameter.ParameterBuffer;
+import com.alipay.oceanbase.jdbc.parameter.ParameterMethod;
+import com.alipay.oceanbase.util.parse.InsertValues;
+
+/**
+ * 批量insert改写的分块和结果
+ */
+public class BatchRewriterTest {
+
+    InsertValues insert;
+    BatchBuffer  batch;
+
+    /**
+     * 每块不超过maxRows行, 不超过limit
+     */
+    @Test
+    public void testRowLimit() {
+        BatchRewriter rewriter = new BatchRewriter(3, 1 << 20);
+        assertEquals(3, rewriter.nextChunk(batch, insert, 0));
+        assertEquals(9, rewriter.nextChunk(batch, insert, 6));
+        assertEquals(10, rewriter.nextChunk(batch, insert, 9));
+        assertEquals(5, rewriter.nextChunk(batch, insert, 4, 5));
+        assertEquals(4, rewriter.getStatementCount());
+        assertEquals(8, rewriter.getRowCount());
+    }
+
+    /**
+     * 估算的sql长度不超过maxBytes, 至少一行
+     */
+    @Test
+    public void testByteLimit() {
+        // 一行24 + 参数24, 之后每行4 + 24
+        assertEquals(48, insert.getRowLength() + batch.estimateBytes(0));
+        assertEquals(3, new BatchRewriter(100, 104).nextChunk(batch, insert, 0));
+        assertEquals(2, new BatchRewriter(100, 103).nextChunk(batch, insert, 0));
+        assertEquals(1, new BatchRewriter(100, 10).nextChunk(batch, insert, 0));
+    }
+
+    /**
+     * 每块的参数个数不超过65535
+     */
+    @Test
+    public void testPlaceholderLimit() {
+        BatchRewriter rewriter = new BatchRewriter(100, Integer.MAX_VALUE);
+        assertEquals(2, rewriter.nextChunk(batch, wide(30000), 0));
+        assertEquals(10, rewriter.nextChunk(batch, wide(30000), 8));
+        assertEquals(5, rewriter.nextChunk(batch, wide(13107), 0));
+        assertEquals(1, rewriter.nextChunk(batch, wide(70000), 0));// 单行超过上限时仍然每块一行
+    }
+
+    /**
+     * 影响行数等于块的行数时每行为1, 否则为SUCCESS_NO_INFO
+     */
+    @Test
+    public void testUpdateCounts() throws SQLException {
+        final List<String> sqls = new ArrayList<String>();
+        int[] result = new BatchRewriter(4, 1 << 20).execute(batch, insert, 0, 10,
+            new BatchRewriter.Chunk() {
+                public int execute(String sql, int from, int to) {
+                    sqls.add(sql);
+                    return from == 4 ? 1 : to - from;// insert ignore忽略了部分行
+                }
+            });
+
+        int N = Statement.SUCCESS_NO_INFO;
+        assertArrayEquals(new int[] { 1, 1, 1, 1, N, N, N, N, 1, 1 }, result);
+        assertEquals(Arrays.asList(insert.toSql(4), insert.toSql(4), insert.toSql(2)), sqls);
+    }
+
+    /**
+     * 某块失败时BatchUpdateException中包含之前各块的结果
+     */
+    @Test
+    public void testPartialFailure() {
+        try {
+            new BatchRewriter(3, 1 << 20).execute(batch, insert, 2, 10, new BatchRewriter.Chunk() {
+                public int execute(String sql, int from, int to) throws SQLException {
+                    if (from == 8) {
+                        throw new SQLException("duplicate", "23000", 1062);
+                    }
+                    return to - from;
+                }
+            });
+            fail();
+        } catch (BatchUpdateException e) {
+            assertArrayEquals(new int[] { 1, 1, 1, 1, 1, 1 }, e.getUpdateCounts());
+            assertEquals("23000", e.getSQLState());
+            assertEquals(1062, e.getErrorCode());
+            assertEquals("duplicate", e.getCause().getMessage());
+        } catch (SQLException e) {
+            fail(e.toString());
+        }
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        insert = InsertValues.parse("insert into t values (?)");
+        batch = new BatchBuffer();
+        ParameterBuffer parameters = new ParameterBuffer();
+        for (int i = 0; i < 10; i++) {
+            parameters.setLong(1, ParameterMethod.setLong, i);
+            batch.add(parameters);
+            parameters.clear();
+        }
+    }
+
+    private static InsertValues wide(int placeholders) {
+        StringBuilder sql = new StringBuilder("insert into t values (?");
+        for (int i = 1; i < placeholders; i++) {
+            sql.append(", ?");
+        }
+        return InsertValues.parse(sql.append(")").toString());
+    }
+}
@@ -0,0 +1,119 @@
+package com.alipay.oceanbase.jdbc;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.fail;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.alibaba.druid.mock.MockResultSet;
+
+public class QueryCoalescerTest {
+
+    private final QueryCoalescer coalescer = new QueryCoalescer(true);
+    private final QueryKey       key       = QueryKey.valueOf("select 1", 0);
+
+    /**
+     * 并发的相同查询只执行一次
+     */
+    @Test
+    public void testCoalesce() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger(0);
+        final QueryCoalescer.Loader loader = new QueryCoalescer.Loader() {
+            public MaterializedResultSet load() throws SQLException {
+                loads.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new SQLException(e);
+                }
+                return MaterializedResultSet.materialize(new MockResultSet(null), null);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<MaterializedResultSet> leader = executor.submit(new Caller(loader));
+            started.await();
+            Future<MaterializedResultSet> follower = executor.submit(new Caller(loader));
+            while (coalescer.getCoalescedCount() == 0) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertSame(leader.get(1, TimeUnit.SECONDS), follower.get(1, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+            assertEquals(1, coalescer.getExecutedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        coalescer.execute(key, loader, 0);
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * 等待者超时
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread leader = new Thread() {
+            public void run() {
+                try {
+                    coalescer.execute(key, new QueryCoalescer.Loader() {
+                        public MaterializedResultSet load() throws SQLException {
+                            started.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                throw new SQLException(e);
+                            }
+                            throw new SQLException("leader failed");
+                        }
+                    }, 0);
+                } catch (SQLException e) {
+                    // expected
+                }
+            }
+        };
+        leader.start();
+        started.await();
+
+        try {
+            coalescer.execute(key, null, 10);
+            fail();
+        } catch (SQLException e) {
+            assertEquals(SQLTimeoutException.class, e.getClass());
+        } finally {
+            release.countDown();
+            leader.join();
+        }
+    }
+
+    private class Caller implements Callable<MaterializedResultSet> {
+        private final QueryCoalescer.Loader loader;
+
+        Caller(QueryCoalescer.Loader loader) {
+            this.loader = loader;
+        }
+
+        public MaterializedResultSet call() throws Exception {
+            return coalescer.execute(key, loader, 0);
+        }
+    }
+}
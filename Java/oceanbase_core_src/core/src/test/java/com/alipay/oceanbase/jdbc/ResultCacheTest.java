@@ -0,0 +1,143 @@
+package com.alipay.oceanbase.jdbc;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import org.junit.Test;
+
+import com.alibaba.druid.mock.MockResultSet;
+import com.alibaba.druid.util.jdbc.ResultSetMetaDataBase.ColumnMetaData;
+import com.alipay.oceanbase.jdbc.parameter.ParameterBuffer;
+import com.alipay.oceanbase.jdbc.parameter.ParameterMethod;
+import com.alipay.oceanbase.util.parse.RouteHint;
+import com.alipay.oceanbase.util.parse.SqlHintType;
+
+public class ResultCacheTest {
+
+    private MaterializedResultSet mockResult(int rows) throws SQLException {
+        MockResultSet rs = new MockResultSet(null);
+        addColumn(rs, "id", Types.BIGINT);
+        addColumn(rs, "name", Types.VARCHAR);
+        addColumn(rs, "gmt_create", Types.TIMESTAMP);
+        for (int i = 1; i <= rows; i++) {
+            rs.getRows().add(
+                new Object[] { (long) i, String.valueOf(i * 10), new Timestamp(i * 1000L) });
+        }
+        return MaterializedResultSet.materialize(rs, null);
+    }
+
+    private void addColumn(MockResultSet rs, String name, int type) throws SQLException {
+        ColumnMetaData column = new ColumnMetaData();
+        column.setColumnName(name);
+        column.setColumnLabel(name);
+        column.setColumnType(type);
+        rs.getMockMetaData().getColumns().add(column);
+    }
+
+    /**
+     * 取值时做类型转换, 副本各自维护游标
+     */
+    @Test
+    public void testMaterialize() throws SQLException {
+        MaterializedResultSet rs = mockResult(2);
+        assertEquals(2, rs.getRowCount());
+        assertEquals(3, rs.getMetaData().getColumnCount());
+
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt("ID"));
+        assertEquals("1", rs.getString(1));
+        assertEquals(10L, rs.getLong("name"));
+        assertEquals(new BigDecimal("10"), rs.getBigDecimal(2));
+        assertEquals(1000L, rs.getTimestamp(3).getTime());
+        rs.getTimestamp(3).setTime(0L);
+        assertEquals(1000L, rs.getTimestamp(3).getTime());
+
+        MaterializedResultSet copy = rs.copy(null);
+        assertTrue(copy.isBeforeFirst());
+        assertTrue(copy.last());
+        assertEquals(2, copy.getRow());
+        assertEquals(1, rs.getRow());
+
+        assertTrue(rs.next());
+        assertFalse(rs.next());
+        assertTrue(rs.isAfterLast());
+        assertTrue(rs.relative(-2));
+        assertTrue(rs.isFirst());
+    }
+
+    /**
+     * 过期、超过行数限制和容量限制
+     */
+    @Test
+    public void testCache() throws Exception {
+        ResultCache cache = new ResultCache(50, 2, 10);
+        assertTrue(cache.isEnabled());
+        assertFalse(new ResultCache(0, 2, 10).isEnabled());
+
+        QueryKey k1 = QueryKey.valueOf("select 1", 0);
+        assertNull(cache.get(k1, null));
+        cache.put(k1, mockResult(1));
+        assertNotNull(cache.get(k1, null));
+        assertEquals(1, cache.getHitCount());
+
+        cache.put(QueryKey.valueOf("select 2", 0), mockResult(11));
+        assertEquals(1, cache.size());
+
+        cache.put(QueryKey.valueOf("select 2", 0), mockResult(2));
+        cache.put(QueryKey.valueOf("select 3", 0), mockResult(3));
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(k1, null));// 被访问过的条目保留
+
+        Thread.sleep(60);
+        assertNull(cache.get(k1, null));
+    }
+
+    /**
+     * 参数相同的查询共用缓存, 流等不能比较的参数不缓存
+     */
+    @Test
+    public void testQueryKey() throws SQLException {
+        ParameterBuffer p1 = new ParameterBuffer();
+        p1.setLong(1, ParameterMethod.setLong, 100L);
+        p1.setObject(2, ParameterMethod.setBytes, new byte[] { 1, 2 });
+        ParameterBuffer p2 = new ParameterBuffer();
+        p2.setLong(1, ParameterMethod.setLong, 100L);
+        p2.setObject(2, ParameterMethod.setBytes, new byte[] { 1, 2 });
+
+        QueryKey k1 = QueryKey.valueOf("select ?", 0, p1);
+        assertEquals(k1, QueryKey.valueOf("select ?", 0, p2));
+        assertFalse(k1.equals(QueryKey.valueOf("select ?", 10, p2)));
+
+        p2.setLong(1, ParameterMethod.setLong, 101L);
+        assertFalse(k1.equals(QueryKey.valueOf("select ?", 0, p2)));
+
+        p2.setObject(3, ParameterMethod.setBinaryStream, null, 0);
+        assertNull(QueryKey.valueOf("select ?", 0, p2));
+    }
+
+    /**
+     * 读不同集群或mergeserver的查询不共用缓存, 超时和重试次数不影响
+     */
+    @Test
+    public void testQueryKeyRouting() {
+        QueryKey k1 = QueryKey.valueOf("select 1", 0);
+        assertEquals(k1, QueryKey.valueOf("select 1", 0, SqlHintType.CLUSTER_NONE, RouteHint
+            .valueOf(null, -1L, 50L, 0, -1L)));
+        assertFalse(k1.equals(QueryKey.valueOf("select 1", 0, SqlHintType.CLUSTER_SLAVE,
+            RouteHint.NONE)));
+        assertFalse(k1.equals(QueryKey.valueOf("select 1", 0, SqlHintType.CLUSTER_NONE,
+            RouteHint.valueOf("10.1.1.1:2828", -1L, -1L, -1, -1L))));
+        assertFalse(k1.equals(QueryKey.valueOf("select 1", 0, SqlHintType.CLUSTER_NONE,
+            RouteHint.valueOf(null, 2L, -1L, -1, -1L))));
+        assertFalse(k1.equals(QueryKey.valueOf("select 1", 0, SqlHintType.CLUSTER_NONE,
+            RouteHint.valueOf(null, -1L, -1L, -1, 100L))));
+    }
+}
@@ -0,0 +1,103 @@
+package com.alipay.oceanbase.jdbc.parameter;
+
+import static junit.framework.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BatchBufferTest {
+
+    private final List<String> calls = new ArrayList<String>();
+
+    private PreparedStatement recorder() {
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    calls.add(method.getName()
+                              + (args == null ? "" : Arrays.asList(args).toString()));
+                    return null;
+                }
+            });
+    }
+
+    private List<String> replay(BatchBuffer batch) throws SQLException {
+        calls.clear();
+        PreparedStatement ps = recorder();
+        for (int row = 0; row < batch.size(); row++) {
+            batch.setParameters(ps, row);
+            ps.addBatch();
+        }
+        return new ArrayList<String>(calls);
+    }
+
+    /**
+     * 每列设置方法相同, 有null的行
+     */
+    @Test
+    public void testUniform() throws SQLException {
+        BatchBuffer batch = new BatchBuffer();
+        ParameterBuffer parameters = new ParameterBuffer();
+        for (int i = 0; i < 100; i++) {
+            parameters.setLong(1, ParameterMethod.setLong, i);
+            if (i % 2 == 0) {
+                parameters.setObject(2, ParameterMethod.setString, "s" + i);
+            } else {
+                parameters.setLong(2, ParameterMethod.setNull1, Types.VARCHAR);
+            }
+            parameters.setDouble(3, ParameterMethod.setFloat, 0.5D);
+            batch.add(parameters);
+            parameters.clear();
+        }
+        assertEquals(100, batch.size());
+
+        List<String> calls = replay(batch);
+        assertEquals(400, calls.size());
+        assertEquals(Arrays.asList("setLong[1, 0]", "setString[2, s0]", "setFloat[3, 0.5]",
+            "addBatch"), calls.subList(0, 4));
+        assertEquals(Arrays.asList("setLong[1, 99]", "setNull[2, 12]", "setFloat[3, 0.5]",
+            "addBatch"), calls.subList(396, 400));
+
+        batch.clear();
+        assertEquals(0, batch.size());
+    }
+
+    /**
+     * 设置方法不同、sqlType不同、有的行没有设置时逐行记录
+     */
+    @Test
+    public void testMixed() throws SQLException {
+        Calendar cal = Calendar.getInstance();
+        BatchBuffer batch = new BatchBuffer();
+        ParameterBuffer parameters = new ParameterBuffer();
+
+        parameters.setLong(1, ParameterMethod.setNull1, Types.INTEGER);
+        batch.add(parameters);
+        parameters.clear();
+
+        parameters.setLong(1, ParameterMethod.setInt, 7);
+        parameters.setObject(2, ParameterMethod.setTimestamp2, new Timestamp(0L), cal);
+        batch.add(parameters);
+        parameters.clear();
+
+        parameters.setLong(1, ParameterMethod.setNull1, Types.BIGINT);
+        parameters.setObject(2, ParameterMethod.setObject2, "x", Types.VARCHAR);
+        batch.add(parameters);
+        parameters.clear();
+
+        List<String> calls = replay(batch);
+        assertEquals(Arrays.asList("setNull[1, 4]", "addBatch", "setInt[1, 7]",
+            "setTimestamp[2, " + new Timestamp(0L) + ", " + cal + "]", "addBatch",
+            "setNull[1, -5]", "setObject[2, x, 12]", "addBatch"), calls);
+    }
+}
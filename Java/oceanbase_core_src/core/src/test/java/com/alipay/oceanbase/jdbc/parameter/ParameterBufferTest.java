@@ -0,0 +1,99 @@
+package com.alipay.oceanbase.jdbc.parameter;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.alibaba.druid.mock.MockPreparedStatement;
+
+public class ParameterBufferTest {
+
+    /**
+     * 按下标回放, 超过初始容量时扩容
+     */
+    @Test
+    public void testSetParameters() throws SQLException {
+        ParameterBuffer buffer = new ParameterBuffer();
+        buffer.setLong(1, ParameterMethod.setInt, 10);
+        buffer.setLong(2, ParameterMethod.setBoolean, 1);
+        buffer.setDouble(3, ParameterMethod.setDouble, 1.5D);
+        buffer.setObject(4, ParameterMethod.setBigDecimal, new BigDecimal("2.5"));
+        buffer.setObject(5, ParameterMethod.setString, "a");
+        buffer.setLong(6, ParameterMethod.setNull1, Types.VARCHAR);
+        buffer.setObject(20, ParameterMethod.setString, "z");
+        assertNull(buffer.getMethod(7));
+        for (int i = 7; i < 20; i++) {
+            buffer.setLong(i, ParameterMethod.setLong, i);
+        }
+        buffer.setObject(5, ParameterMethod.setString, "b");
+        assertEquals(20, buffer.size());
+
+        MockPreparedStatement ps = new MockPreparedStatement(null, "insert");
+        buffer.setParameters(ps);
+        List<Object> parameters = ps.getParameters();
+        assertEquals(10, parameters.get(0));
+        assertEquals(Boolean.TRUE, parameters.get(1));
+        assertEquals(1.5D, parameters.get(2));
+        assertEquals(new BigDecimal("2.5"), parameters.get(3));
+        assertEquals("b", parameters.get(4));
+        assertNull(parameters.get(5));
+        assertEquals(19L, parameters.get(18));
+        assertEquals("z", parameters.get(19));
+
+        ParameterBuffer copy = buffer.copy();
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertEquals(20, copy.size());
+        assertEquals(ParameterMethod.setString, copy.getMethod(20));
+
+        try {
+            buffer.setLong(0, ParameterMethod.setInt, 1);
+            fail();
+        } catch (SQLException e) {
+            // expected
+        }
+    }
+
+    /**
+     * 与原LinkedHashMap&lt;Integer, ParameterContext&gt;的格式相同
+     */
+    @Test
+    public void testToString() throws SQLException {
+        ParameterBuffer buffer = new ParameterBuffer();
+        assertEquals("{}", buffer.toString());
+
+        buffer.setLong(1, ParameterMethod.setInt, 1);
+        buffer.setObject(3, "x", Types.DECIMAL, 2);
+        buffer.setObject(4, ParameterMethod.setNull2, "T", Types.STRUCT);
+        assertEquals("{1=setInt(1, 1), 3=setObject3(3, x, 3, 2), 4=setNull2(4, 2002, T)}",
+            buffer.toString());
+    }
+
+    /**
+     * 按首次设置的顺序输出, 重复设置不改变位置, clear之后重新计数
+     */
+    @Test
+    public void testToStringOrder() throws SQLException {
+        ParameterBuffer buffer = new ParameterBuffer();
+        buffer.setLong(2, ParameterMethod.setInt, 2);
+        buffer.setLong(1, ParameterMethod.setInt, 1);
+        buffer.setLong(2, ParameterMethod.setLong, 3);
+        assertEquals("{2=setLong(2, 3), 1=setInt(1, 1)}", buffer.toString());
+        assertEquals(buffer.toString(), buffer.copy().toString());
+
+        buffer.clear();
+        for (int i = 10; i > 0; i--) {
+            buffer.setLong(i, ParameterMethod.setInt, i);
+        }
+        assertTrue(buffer.toString().startsWith("{10=setInt(10, 10), 9=setInt(9, 9), "));
+        assertTrue(buffer.toString().endsWith(", 1=setInt(1, 1)}"));
+    }
+}
@@ -157,6 +157,25 @@ public class ConsistentHashingStrategyTest {
         }
     }
 
+    /**
+     * 一致性负载策略：选中的server执行中的请求数超过平均值的(1+25%)时，顺延到环上下一个server
+     */
+    @Test
+    public void testSelect5_1() {
+        when(mockdsh3.getInflight()).thenReturn(10);
+
+        List<DataSourceHolder> excludeList = new ArrayList<DataSourceHolder>();
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(mockdsh1, mockchs.select(excludeList, mockSql, mockParameterSettings));
+        }
+
+        when(mockdsh1.getInflight()).thenReturn(10);
+        assertEquals(mockdsh2, mockchs.select(excludeList, mockSql, mockParameterSettings));
+
+        when(mockdsh3.getInflight()).thenReturn(1);
+        assertEquals(mockdsh3, mockchs.select(excludeList, mockSql, mockParameterSettings));
+    }
+
     @Test
     public void testIsInvalid() {
         assertFalse(mockchs.isInvalid());
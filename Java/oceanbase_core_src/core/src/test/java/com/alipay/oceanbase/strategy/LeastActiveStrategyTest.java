@@ -0,0 +1,119 @@
+package com.alipay.oceanbase.strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.powermock.api.mockito.PowerMockito.doReturn;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.spy;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import com.alipay.oceanbase.config.MergeServerConfig;
+import com.alipay.oceanbase.factory.DataSourceFactory;
+import com.alipay.oceanbase.factory.DataSourceHolder;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(DataSourceFactory.class)
+public class LeastActiveStrategyTest {
+
+    /**
+     * 执行中语句最多的mergeserver永远不会被选中
+     */
+    @Test
+    public void testSelect1() {
+        when(mockdsh1.getInflight()).thenReturn(1);
+        when(mockdsh2.getInflight()).thenReturn(2);
+        when(mockdsh3.getInflight()).thenReturn(100);
+
+        List<DataSourceHolder> excludeList = new ArrayList<DataSourceHolder>();
+
+        int count1 = 0, count2 = 0, count3 = 0, total = 10000;
+        for (int i = 0; i < total; i++) {
+            DataSourceHolder dsh = mockstrategy.select(excludeList);
+            if (dsh == mockdsh1) {
+                count1++;
+            } else if (dsh == mockdsh2) {
+                count2++;
+            } else if (dsh == mockdsh3) {
+                count3++;
+            }
+        }
+
+        assertEquals(0, count3);
+        assertTrue(count1 > count2);
+        assertEquals(total, count1 + count2);
+    }
+
+    /**
+     * 负载较低但不可用的mergeserver不会被选中
+     */
+    @Test
+    public void testSelect2() {
+        when(mockdsh1.getInflight()).thenReturn(0);
+        when(mockdsh1.isInvalid()).thenReturn(true);
+        when(mockdsh2.getInflight()).thenReturn(5);
+        when(mockdsh3.getInflight()).thenReturn(5);
+
+        List<DataSourceHolder> excludeList = new ArrayList<DataSourceHolder>();
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(mockstrategy.select(excludeList) != mockdsh1);
+        }
+    }
+
+    /**
+     * 所有mergeserver都被排除时，仍然返回一个结果
+     */
+    @Test
+    public void testSelect3() {
+        List<DataSourceHolder> excludeList = new ArrayList<DataSourceHolder>();
+        excludeList.add(mockdsh1);
+        excludeList.add(mockdsh2);
+        excludeList.add(mockdsh3);
+
+        assertNotNull(mockstrategy.select(excludeList));
+    }
+
+    Set<MergeServerConfig> mockMergeServerConfigs;
+    Map<String, String>    mockParams;
+    MergeServerConfig      mockmsc1, mockmsc2, mockmsc3;
+    DataSourceHolder       mockdsh1, mockdsh2, mockdsh3;
+    LeastActiveStrategy    mockstrategy;
+
+    @Before
+    public void setUp() throws Exception {
+        mockMergeServerConfigs = new LinkedHashSet<MergeServerConfig>();
+
+        mockmsc1 = mock(MergeServerConfig.class);
+        mockmsc2 = mock(MergeServerConfig.class);
+        mockmsc3 = mock(MergeServerConfig.class);
+
+        mockMergeServerConfigs.add(mockmsc1);
+        mockMergeServerConfigs.add(mockmsc2);
+        mockMergeServerConfigs.add(mockmsc3);
+
+        mockdsh1 = mock(DataSourceHolder.class);
+        mockdsh2 = mock(DataSourceHolder.class);
+        mockdsh3 = mock(DataSourceHolder.class);
+
+        // mock static getHolder method
+        spy(DataSourceFactory.class);
+
+        doReturn(mockdsh1).when(DataSourceFactory.class, "getHolder", mockmsc1, mockParams);
+        doReturn(mockdsh2).when(DataSourceFactory.class, "getHolder", mockmsc2, mockParams);
+        doReturn(mockdsh3).when(DataSourceFactory.class, "getHolder", mockmsc3, mockParams);
+
+        mockstrategy = new LeastActiveStrategy(mockMergeServerConfigs, mockParams);
+    }
+}
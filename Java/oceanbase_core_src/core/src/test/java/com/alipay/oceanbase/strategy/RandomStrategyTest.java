@@ -100,6 +100,26 @@ public class RandomStrategyTest {
         assertNotNull(mockrs.select(excludeList));
     }
 
+    /**
+     * 慢启动中的merge server只分到少量流量
+     */
+    @Test
+    public void testSelect3() {
+        when(mockdsh3.isWarmingUp()).thenReturn(true);
+        when(mockdsh3.getWarmupFactor()).thenReturn(0.1D);
+
+        List<DataSourceHolder> excludeList = new ArrayList<DataSourceHolder>();
+
+        int count3 = 0, total = 10000;
+        for (int i = 0; i < total; i++) {
+            if (mockrs.select(excludeList) == mockdsh3) {
+                count3++;
+            }
+        }
+
+        assertTrue(0 < count3 && count3 < (total / 10));
+    }
+
     @Test
     public void testIsInvalid() {
         assertFalse(mockrs.isInvalid());
@@ -131,6 +151,7 @@ public class RandomStrategyTest {
     @Test
     public void testAddDataSource() throws SQLException {
         mockrs.addDataSource(mockmsc4);
+        verify(mockdsh4, times(1)).startWarmup();
         mockrs.destroyDataSource();
         verify(mockdsh4, times(1)).destroy();
     }
@@ -30,4 +30,12 @@ public class WeakConsistencyStrategyTest {
             WeakConsistencyStrategy.getStrategy(100L));
     }
 
+    @Test
+    public void testGetStrategy3() {
+        assertEquals(WeakConsistencyStrategy.LEAST_ACTIVE_STRATEGY,
+            WeakConsistencyStrategy.getStrategy(3L));
+        assertEquals(WeakConsistencyStrategy.WEIGHTED_RANDOM_STRATEGY,
+            WeakConsistencyStrategy.getStrategy(5L));
+    }
+
 }
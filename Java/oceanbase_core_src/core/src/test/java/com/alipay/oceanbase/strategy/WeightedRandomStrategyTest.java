@@ -0,0 +1,123 @@
+package com.alipay.oceanbase.strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.powermock.api.mockito.PowerMockito.doReturn;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.spy;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import com.alipay.oceanbase.config.MergeServerConfig;
+import com.alipay.oceanbase.factory.DataSourceFactory;
+import com.alipay.oceanbase.factory.DataSourceHolder;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(DataSourceFactory.class)
+public class WeightedRandomStrategyTest {
+
+    /**
+     * 按权重1:3:0分配流量
+     */
+    @Test
+    public void testSelect1() {
+        List<DataSourceHolder> excludeList = new ArrayList<DataSourceHolder>();
+
+        int count1 = 0, count2 = 0, count3 = 0, total = 10000;
+        for (int i = 0; i < total; i++) {
+            DataSourceHolder dsh = mockstrategy.select(excludeList);
+            if (dsh == mockdsh1) {
+                count1++;
+            } else if (dsh == mockdsh2) {
+                count2++;
+            } else if (dsh == mockdsh3) {
+                count3++;
+            }
+        }
+
+        assertEquals(0, count3);
+        assertTrue(total * 0.2 < count1 && count1 < total * 0.3);
+        assertTrue(total * 0.7 < count2 && count2 < total * 0.8);
+    }
+
+    /**
+     * 权重变化后重建alias表
+     */
+    @Test
+    public void testRefreshWeights() {
+        msc1.setWeight(0);
+        mockstrategy.refreshWeights();
+
+        List<DataSourceHolder> excludeList = new ArrayList<DataSourceHolder>();
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(mockstrategy.select(excludeList) == mockdsh2);
+        }
+    }
+
+    /**
+     * 权重最大的mergeserver不可用时, 流量转到其他mergeserver
+     */
+    @Test
+    public void testSelect2() {
+        when(mockdsh2.isInvalid()).thenReturn(true);
+
+        List<DataSourceHolder> excludeList = new ArrayList<DataSourceHolder>();
+        int count2 = 0, total = 10000;
+        for (int i = 0; i < total; i++) {
+            if (mockstrategy.select(excludeList) == mockdsh2) {
+                count2++;
+            }
+        }
+
+        assertTrue(count2 < total * 0.7);
+    }
+
+    Set<MergeServerConfig> mockMergeServerConfigs;
+    Map<String, String>    mockParams;
+    MergeServerConfig      msc1, msc2, msc3;
+    DataSourceHolder       mockdsh1, mockdsh2, mockdsh3;
+    WeightedRandomStrategy mockstrategy;
+
+    @Before
+    public void setUp() throws Exception {
+        mockMergeServerConfigs = new LinkedHashSet<MergeServerConfig>();
+
+        msc1 = new MergeServerConfig("10.1.1.1", 2828L);
+        msc1.setWeight(100);
+        msc2 = new MergeServerConfig("10.1.1.2", 2828L);
+        msc2.setWeight(300);
+        msc3 = new MergeServerConfig("10.1.1.3", 2828L);
+        msc3.setWeight(0);
+
+        mockMergeServerConfigs.add(msc1);
+        mockMergeServerConfigs.add(msc2);
+        mockMergeServerConfigs.add(msc3);
+
+        mockdsh1 = mock(DataSourceHolder.class);
+        when(mockdsh1.getMergeServerConfig()).thenReturn(msc1);
+        mockdsh2 = mock(DataSourceHolder.class);
+        when(mockdsh2.getMergeServerConfig()).thenReturn(msc2);
+        mockdsh3 = mock(DataSourceHolder.class);
+        when(mockdsh3.getMergeServerConfig()).thenReturn(msc3);
+
+        // mock static getHolder method
+        spy(DataSourceFactory.class);
+
+        doReturn(mockdsh1).when(DataSourceFactory.class, "getHolder", msc1, mockParams);
+        doReturn(mockdsh2).when(DataSourceFactory.class, "getHolder", msc2, mockParams);
+        doReturn(mockdsh3).when(DataSourceFactory.class, "getHolder", msc3, mockParams);
+
+        mockstrategy = new WeightedRandomStrategy(mockMergeServerConfigs, mockParams);
+    }
+}
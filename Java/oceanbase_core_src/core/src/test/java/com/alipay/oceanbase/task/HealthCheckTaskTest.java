@@ -0,0 +1,86 @@
+package com.alipay.oceanbase.task;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alipay.oceanbase.config.MergeServerConfig;
+import com.alipay.oceanbase.factory.DataSourceHolder;
+
+public class HealthCheckTaskTest {
+
+    boolean          probeResult;
+    HealthCheckTask  task;
+    DataSourceHolder dsh;
+
+    /**
+     * 连续失败fall次后标记为不可用
+     */
+    @Test
+    public void testFall() {
+        probeResult = false;
+        task.check(dsh);
+        task.check(dsh);
+        assertFalse(dsh.isInvalid());
+
+        task.check(dsh);
+        assertTrue(dsh.isDown());
+        assertTrue(dsh.isInvalid());
+    }
+
+    /**
+     * 连续成功rise次后恢复可用, 中间的失败会重新计数
+     */
+    @Test
+    public void testRise() {
+        probeResult = false;
+        for (int i = 0; i < 3; i++) {
+            task.check(dsh);
+        }
+        assertTrue(dsh.isDown());
+
+        probeResult = true;
+        task.check(dsh);
+        probeResult = false;
+        task.check(dsh);
+        probeResult = true;
+        task.check(dsh);
+        assertTrue(dsh.isDown());
+
+        task.check(dsh);
+        assertFalse(dsh.isDown());
+        assertFalse(dsh.isInvalid());
+    }
+
+    @Before
+    public void setUp() {
+        Map<String, String> configParams = new HashMap<String, String>();
+        configParams.put("username", "admin");
+        configParams.put("password", "admin");
+        configParams.put("healthCheckRise", "2");
+        configParams.put("healthCheckFall", "3");
+
+        task = new HealthCheckTask(null, configParams) {
+            @Override
+            protected boolean probe(DataSourceHolder dsh, ProbeState state) {
+                return probeResult;
+            }
+        };
+
+        dsh = new DataSourceHolder(new MergeServerConfig("10.1.1.1", 2828L)) {
+            @Override
+            public javax.sql.DataSource getDataSource() {
+                return null;
+            }
+
+            @Override
+            public void destroy() {
+            }
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package com.alipay.oceanbase.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alipay.oceanbase.config.ClusterConfig;
+import com.alipay.oceanbase.config.MergeServerConfig;
+import com.alipay.oceanbase.factory.DataSourceHolder;
+
+/**
+ * 备集群复制延迟的采样
+ */
+public class ReplicaLagTaskTest {
+
+    ReplicaLagTask task;
+    ClusterConfig  slave;
+    int            queries;
+
+    /**
+     * 采样成功时记录返回的延迟
+     */
+    @Test
+    public void testSample() {
+        task.refresh(slave, Arrays.asList(holder(300L)));
+        assertEquals(300L, slave.getReplicaLag());
+        assertTrue(slave.isStale(100L));
+        assertFalse(slave.isStale(300L));
+    }
+
+    /**
+     * 跳过不可用的mergeserver, 失败时换一个
+     */
+    @Test
+    public void testSkipInvalidAndFailover() {
+        DataSourceHolder down = holder(100L);
+        down.markDown();
+
+        task.refresh(slave, Arrays.asList(down, holder(-1L), holder(200L)));
+        assertEquals(200L, slave.getReplicaLag());
+        assertEquals(2, queries);
+    }
+
+    /**
+     * 采样失败时保留上次的延迟并随时间增长
+     */
+    @Test
+    public void testFailureAgesLastSample() throws InterruptedException {
+        task.refresh(slave, Arrays.asList(holder(50L)));
+        assertEquals(50L, slave.getReplicaLag());
+
+        Thread.sleep(20L);
+        task.refresh(slave, Arrays.asList(holder(-1L)));
+        assertTrue(slave.getReplicaLag() >= 70L);
+        assertTrue(slave.isStale(60L));
+    }
+
+    /**
+     * 从未采样成功或没有可用的mergeserver时延迟未知, 限制了延迟的读不使用
+     */
+    @Test
+    public void testUnknownLagIsStale() {
+        DataSourceHolder down = holder(100L);
+        down.markDown();
+
+        task.refresh(slave, Arrays.asList(down));
+        task.refresh(slave, Arrays.asList(holder(-1L)));
+        assertEquals(-1L, slave.getReplicaLag());
+        assertTrue(slave.isStale(Long.MAX_VALUE));
+        assertFalse(slave.isStale(-1L));
+    }
+
+    @Before
+    public void setUp() {
+        task = new ReplicaLagTask(null, "select lag");
+        slave = new ClusterConfig("10.1.1.1", 2828L, 2L, 2L, 50L);
+        queries = 0;
+    }
+
+    /**
+     *
+     *
+     * @param lag 查询返回的延迟, 小于0时查询失败
+     * @return
+     */
+    private DataSourceHolder holder(final long lag) {
+        final ResultSet rs = proxy(ResultSet.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("next".equals(method.getName())) {
+                    return true;
+                } else if ("getLong".equals(method.getName())) {
+                    return lag;
+                }
+                return "wasNull".equals(method.getName()) ? false : null;
+            }
+        });
+        final Statement stmt = proxy(Statement.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+                if ("executeQuery".equals(method.getName())) {
+                    queries++;
+                    if (lag < 0) {
+                        throw new SQLException("timeout");
+                    }
+                    return rs;
+                }
+                return null;
+            }
+        });
+        final Connection conn = proxy(Connection.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return "createStatement".equals(method.getName()) ? stmt : null;
+            }
+        });
+        final DataSource ds = proxy(DataSource.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return "getConnection".equals(method.getName()) ? conn : null;
+            }
+        });
+
+        return new DataSourceHolder(new MergeServerConfig("10.1.1." + (lag & 0xff), 2828L)) {
+            @Override
+            public DataSource getDataSource() {
+                return ds;
+            }
+
+            @Override
+            public void destroy() {
+            }
+        };
+    }
+
+    private static <T> T proxy(Class<T> clazz, InvocationHandler handler) {
+        return clazz.cast(Proxy.newProxyInstance(ReplicaLagTaskTest.class.getClassLoader(),
+            new Class<?>[] { clazz }, handler));
+    }
+}
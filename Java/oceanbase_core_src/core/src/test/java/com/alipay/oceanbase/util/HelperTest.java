@@ -4,10 +4,12 @@ import static com.alipay.oceanbase.util.Helper.atomicDecIfPositive;
 import static com.alipay.oceanbase.util.Helper.buildReadDistTable;
 import static com.alipay.oceanbase.util.Helper.getMySqlConURL;
 import static com.alipay.oceanbase.util.Helper.getVersionReportSQL;
+import static com.alipay.oceanbase.util.Helper.loadServerWeights;
 import static com.alipay.oceanbase.util.OBDataSourceConstants.READ_DIST_TABLE_SIZE;
 import static junit.framework.Assert.assertEquals;
 
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -54,6 +56,14 @@ public class HelperTest {
         assertEquals(0, ai.get());
     }
 
+    @Test
+    public void testLoadServerWeights() {
+        Map<String, Integer> weights = loadServerWeights("10.1.1.1_2828=200;10.1.1.2_2828=x;10.1.1.3_2828=-1;10.1.1.4_2828=0");
+        assertEquals(2, weights.size());
+        assertEquals(Integer.valueOf(200), weights.get("10.1.1.1_2828"));
+        assertEquals(Integer.valueOf(0), weights.get("10.1.1.4_2828"));
+    }
+
     @Test
     public void testGetMySqlConURL1() {
         assertEquals("jdbc:mysql://" + mockIp1 + ":" + mockPort1 + "/Java",
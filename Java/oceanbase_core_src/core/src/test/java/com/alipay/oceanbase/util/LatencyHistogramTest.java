@@ -0,0 +1,54 @@
+package com.alipay.oceanbase.util;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    /**
+     * 分桶的上界不小于样本
+     */
+    @Test
+    public void testBucket() {
+        assertEquals(0, LatencyHistogram.bucket(0L));
+        assertEquals(0, LatencyHistogram.bucket(1000L));
+        assertEquals(96, LatencyHistogram.bucket(Long.MAX_VALUE));
+
+        long[] samples = { 1001L, 1500L, 999999L, 1000000L, 123456789L };
+        for (long nanos : samples) {
+            int i = LatencyHistogram.bucket(nanos);
+            assertTrue(LatencyHistogram.upperBound(i) >= nanos);
+            assertTrue(LatencyHistogram.upperBound(i - 1) < nanos);
+        }
+    }
+
+    /**
+     * 分位数和衰减
+     */
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getPercentile(95));
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(1000000L);// 1ms
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(100000000L);// 100ms
+        }
+        assertEquals(100, histogram.getCount());
+
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 1000000L && p50 < 1200000L);
+        long p95 = histogram.getPercentile(95);
+        assertTrue(p95 >= 100000000L && p95 < 120000000L);
+
+        for (int i = 0; i < 2000; i++) {
+            histogram.record(1000000L);
+        }
+        assertTrue(histogram.getCount() < 2048);
+        assertTrue(histogram.getPercentile(99) < 1200000L);
+    }
+}
@@ -0,0 +1,41 @@
+package com.alipay.oceanbase.util;
+
+import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PeakEwmaTest {
+
+    /**
+     * 采样值大于当前值时立即取峰值
+     */
+    @Test
+    public void testPeak() {
+        PeakEwma ewma = new PeakEwma(1, TimeUnit.HOURS);
+        ewma.observe(10);
+        ewma.observe(1000);
+        assertEquals(1000.0D, ewma.get(), 1.0D);
+    }
+
+    /**
+     * 峰值随时间衰减
+     */
+    @Test
+    public void testDecay() throws InterruptedException {
+        PeakEwma ewma = new PeakEwma(50, TimeUnit.MILLISECONDS);
+        ewma.observe(1000);
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertTrue(ewma.get() < 100.0D);
+
+        ewma.observe(10);
+        assertTrue(ewma.get() < 100.0D);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDecayTime() {
+        new PeakEwma(0, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,74 @@
+package com.alipay.oceanbase.util;
+
+import static com.alipay.oceanbase.util.OBDataSourceConstants.SESSION_TOKEN_LIMIT;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SessionConsistencyTest {
+
+    @Test
+    public void testWindow() throws InterruptedException {
+        SessionConsistency session = new SessionConsistency(50);
+        assertTrue(session.isEnabled());
+        assertFalse(session.isWithinWindow(0L));
+        assertTrue(session.isWithinWindow(System.nanoTime()));
+
+        session.markWrite("user-1");
+        assertTrue(session.isRecentWrite("user-1"));
+        assertFalse(session.isRecentWrite("user-2"));
+
+        Thread.sleep(60);
+        assertFalse(session.isRecentWrite("user-1"));
+        assertEquals(0, session.size());
+    }
+
+    @Test
+    public void testDisabled() {
+        assertFalse(new SessionConsistency(0).isEnabled());
+        assertFalse(new SessionConsistency(-1).isWithinWindow(System.nanoTime()));
+    }
+
+    /**
+     * token数量有上限, 达到上限时不丢弃已有的token, 未记录的token读主集群
+     */
+    @Test
+    public void testLimit() {
+        SessionConsistency session = new SessionConsistency(60000);
+        for (int i = 0; i < SESSION_TOKEN_LIMIT * 2; i++) {
+            session.markWrite("user-" + i);
+        }
+        assertEquals(SESSION_TOKEN_LIMIT, session.size());
+        assertTrue(session.isRecentWrite("user-0"));
+        assertTrue(session.isRecentWrite("user-" + (SESSION_TOKEN_LIMIT * 2 - 1)));
+        assertTrue(session.isRecentWrite("user-never-written"));
+    }
+
+    /**
+     * 过期的token按写入顺序清理, 腾出位置后恢复记录
+     */
+    @Test
+    public void testExpireInOrder() throws InterruptedException {
+        SessionConsistency session = new SessionConsistency(50, 2);
+        session.markWrite("user-1");
+        session.markWrite("user-2");
+        session.markWrite("user-3");// 达到上限
+        assertEquals(2, session.size());
+        assertTrue(session.isRecentWrite("user-3"));
+
+        Thread.sleep(30);
+        session.markWrite("user-1");// 重新写入, 按新的时间排队
+        Thread.sleep(30);
+        assertTrue(session.isRecentWrite("user-1"));
+        assertEquals(1, session.size());
+
+        session.markWrite("user-4");
+        assertEquals(2, session.size());
+        Thread.sleep(60);
+        assertFalse(session.isRecentWrite("user-1"));
+        assertFalse(session.isRecentWrite("user-3"));
+        assertEquals(0, session.size());
+    }
+}
@@ -0,0 +1,57 @@
+package com.alipay.oceanbase.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class ThreadLocalSequenceNumberTest {
+
+    /**
+     * 同一线程内连续递增
+     */
+    @Test
+    public void testGetSequenceNumber1() {
+        ThreadLocalSequenceNumber sequenceNumber = new ThreadLocalSequenceNumber();
+
+        int first = sequenceNumber.getSequenceNumber();
+        for (int i = 1; i < 1000; i++) {
+            assertEquals(first + i, sequenceNumber.getSequenceNumber());
+        }
+    }
+
+    /**
+     * 不同线程的起始值不同, 互不影响
+     */
+    @Test
+    public void testGetSequenceNumber2() throws InterruptedException {
+        final ThreadLocalSequenceNumber sequenceNumber = new ThreadLocalSequenceNumber();
+        final int threads = 8;
+        final ConcurrentHashMap<Integer, Integer> firsts = new ConcurrentHashMap<Integer, Integer>();
+        final CountDownLatch latch = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    firsts.put(id, sequenceNumber.getSequenceNumber());
+                    for (int i = 0; i < 10000; i++) {
+                        sequenceNumber.getSequenceNumber();
+                    }
+                    latch.countDown();
+                }
+            }.start();
+        }
+        latch.await();
+
+        Set<Integer> distinct = new HashSet<Integer>(firsts.values());
+        assertEquals(threads, distinct.size());
+        assertFalse(distinct.contains(-1));
+    }
+}
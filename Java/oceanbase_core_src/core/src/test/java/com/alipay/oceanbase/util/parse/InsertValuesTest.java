@@ -0,0 +1,91 @@
+package com.alipay.oceanbase.util.parse;
+
+import static com.alipay.oceanbase.util.parse.InsertValues.parse;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.alipay.oceanbase.jdbc.BatchRewriter;
+import com.alipay.oceanbase.jdbc.parameter.BatchBuffer;
+import com.alipay.oceanbase.jdbc.parameter.ParameterBuffer;
+import com.alipay.oceanbase.jdbc.parameter.ParameterMethod;
+
+public class InsertValuesTest {
+
+    /**
+     * 单行的insert ... values改写为多行
+     */
+    @Test
+    public void testParse() {
+        InsertValues insert = parse("/*+ob_route(cluster=1)*/ insert into tab(id, `values`) "
+                                    + "VALUES (?, concat(?, '?)'));");
+        assertEquals(2, insert.getPlaceholders());
+        assertEquals("/*+ob_route(cluster=1)*/ insert into tab(id, `values`) VALUES "
+                     + "(?, concat(?, '?)')),(?, concat(?, '?)'))", insert.toSql(2));
+        assertEquals("insert into tab value(?)", parse("insert into tab value(?) -- c").toSql(1));
+
+        assertNull(parse("select ? from dual"));
+        assertNull(parse("replace into tab values(?)"));
+        assertNull(parse("insert into tab values(1)"));
+        assertNull(parse("insert into tab values(?),(?)"));
+        assertNull(parse("insert into tab values(?) on duplicate key update c = c + 1"));
+        assertNull(parse("insert into tab select ? from dual"));
+        assertNull(parse("insert into tab set a = ?"));
+    }
+
+    /**
+     * 并发的分块以不同的行数调用toSql, 返回的sql与行数一致
+     */
+    @Test
+    public void testConcurrentToSql() throws InterruptedException {
+        final InsertValues insert = parse("insert into tab values(?)");
+        final AtomicInteger errors = new AtomicInteger(0);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int rows = t + 1;
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        String sql = insert.toSql(rows);
+                        if (sql.length() != 21 + 4 * rows) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+    }
+
+    /**
+     * 按行数和估算的字节数分块
+     */
+    @Test
+    public void testChunk() throws SQLException {
+        InsertValues insert = parse("insert into tab values(?, ?)");
+        BatchBuffer batch = new BatchBuffer();
+        ParameterBuffer parameters = new ParameterBuffer();
+        for (int i = 0; i < 10; i++) {
+            parameters.setLong(1, ParameterMethod.setLong, i);
+            parameters.setObject(2, ParameterMethod.setString, i == 5 ? new String(new char[1000])
+                : "s");
+            batch.add(parameters);
+        }
+
+        BatchRewriter rewriter = new BatchRewriter(4, 1000);
+        assertEquals(4, rewriter.nextChunk(batch, insert, 0));
+        assertEquals(5, rewriter.nextChunk(batch, insert, 4));
+        assertEquals(6, rewriter.nextChunk(batch, insert, 5));// 超过字节数的行单独执行
+        assertEquals(10, rewriter.nextChunk(batch, insert, 6));
+        assertEquals(4, rewriter.getStatementCount());
+        assertEquals(10, rewriter.getRowCount());
+    }
+}
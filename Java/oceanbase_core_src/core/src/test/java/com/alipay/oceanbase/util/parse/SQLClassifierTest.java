@@ -0,0 +1,106 @@
+package com.alipay.oceanbase.util.parse;
+
+import static com.alipay.oceanbase.util.parse.SQLClassifier.classify;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+
+import org.junit.Test;
+
+public class SQLClassifierTest {
+
+    /**
+     * 一次扫描同时得到语句类型和hint
+     */
+    @Test
+    public void testClassify() {
+        SqlClassification sc = classify("select /*+read_consistency(weak)*/ "
+                                        + "/*+ read_cluster(slave) */ * from tab");
+        assertEquals(SqlType.SELECT, sc.getSqlType());
+        assertEquals(SqlHintType.CONSISTENCY_WEAK, sc.getConsistencyHint());
+        assertEquals(SqlHintType.CLUSTER_SLAVE, sc.getClusterHint());
+
+        sc = classify("/* comment */ insert /*+READ_CLUSTER(Master)*/ into tab values(1)");
+        assertEquals(SqlType.INSERT, sc.getSqlType());
+        assertEquals(SqlHintType.CONSISTENCY_NONE, sc.getConsistencyHint());
+        assertEquals(SqlHintType.CLUSTER_MASTER, sc.getClusterHint());
+
+        assertEquals(SqlType.SELECT, classify("((select 1))").getSqlType());
+        assertEquals(SqlType.DEFAULT, classify("(insert into tab values(1))").getSqlType());
+        assertEquals(SqlType.DEFAULT, classify("   ").getSqlType());
+    }
+
+    /**
+     * 字符串和注释中的内容不影响分类
+     */
+    @Test
+    public void testCommentsAndLiterals() {
+        assertEquals(SqlType.SELECT, classify("-- comment\nselect 1").getSqlType());
+        assertEquals(SqlType.SELECT, classify("# comment\nselect 1").getSqlType());
+        assertEquals(SqlType.SELECT, classify("select * from tab where c = ' for update '")
+            .getSqlType());
+        assertEquals(SqlType.SELECT, classify("select * from tab where c = 'it\\'s' -- for update")
+            .getSqlType());
+        assertEquals(SqlType.SELECT_FOR_UPDATE, classify("select * from tab\nFOR /* x */ UPDATE")
+            .getSqlType());
+        assertEquals(SqlType.SELECT_WHEN, classify("select 1 when row_count(delete from t)>0")
+            .getSqlType());
+        assertEquals(SqlHintType.CONSISTENCY_NONE,
+            classify("select '/*+read_consistency(weak)*/' from tab").getConsistencyHint());
+    }
+
+    /**
+     * hint语法错误只在读取该hint时抛出
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidHint() {
+        SqlClassification sc = classify("select /*+read_cluster(foo)*/ 1");
+        assertEquals(SqlType.SELECT, sc.getSqlType());
+        assertEquals(SqlHintType.CONSISTENCY_NONE, sc.getConsistencyHint());
+        sc.getClusterHint();
+    }
+
+    /**
+     * 同一个注释中的多个路由hint
+     */
+    @Test
+    public void testRouteHint() {
+        SqlClassification sc = classify("select /*+ ob_route(ms=10.0.0.1:2828) ob_timeout(50ms) ob_retry(0) */ 1");
+        assertEquals(SqlType.SELECT, sc.getSqlType());
+        assertEquals("10.0.0.1:2828", sc.getRouteHint().getServer());
+        assertEquals(-1L, sc.getRouteHint().getClusterId());
+        assertEquals(50L, sc.getRouteHint().getTimeout());
+        assertEquals(1, sc.getRouteHint().getExecuteTimes(2));
+
+        sc = classify("/*+read_cluster(slave), ob_route(cluster = 3), OB_TIMEOUT(2s)*/ select 1");
+        assertEquals(SqlHintType.CLUSTER_SLAVE, sc.getClusterHint());
+        assertEquals(3L, sc.getRouteHint().getClusterId());
+        assertEquals(2000L, sc.getRouteHint().getTimeout());
+        assertEquals(2, sc.getRouteHint().getExecuteTimes(2));
+
+        sc = classify("select /*+read_consistency(weak) ob_max_lag(1s)*/ 1");
+        assertEquals(1000L, sc.getRouteHint().getMaxLag());
+        assertEquals(-1L, sc.getRouteHint().getTimeout());
+
+        assertSame(RouteHint.NONE, classify("select /*+ob_retry(1)+*/ 1").getRouteHint());
+        assertSame(RouteHint.NONE, classify("select /*+ob_timeout()*/ 1").getRouteHint());
+        assertSame(RouteHint.NONE, classify("select /*+index(t idx)*/ 1").getRouteHint());
+    }
+
+    /**
+     * 路由hint语法错误只在读取路由hint时抛出
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRouteHint() {
+        SqlClassification sc = classify("select /*+ob_route(ms=10.0.0.1) ob_retry(0)*/ 1");
+        assertEquals(SqlHintType.CLUSTER_NONE, sc.getClusterHint());
+        sc.getRouteHint();
+    }
+
+    /**
+     * 合法的分类结果是共享的实例
+     */
+    @Test
+    public void testShared() {
+        assertSame(classify("select c1 from t1"), classify("SELECT c2 FROM t2"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.alipay.oceanbase.util.parse;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SqlClassificationCacheTest {
+
+    /**
+     * 相同的sql只解析一次
+     */
+    @Test
+    public void testHit() {
+        SqlClassificationCache cache = new SqlClassificationCache(16);
+        String sql = "select /*+read_cluster(slave)*/ * from tab where id = ?";
+        SqlClassification sc = cache.classify(sql);
+        for (int i = 0; i < 100; i++) {
+            assertSame(sc, cache.classify(new String(sql)));
+        }
+
+        assertEquals(SqlHintType.CLUSTER_SLAVE, sc.getClusterHint());
+        assertEquals(1, cache.size());
+        assertEquals(100, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    /**
+     * 超过容量时淘汰, 最近访问过的sql保留
+     */
+    @Test
+    public void testEvict() {
+        SqlClassificationCache cache = new SqlClassificationCache(10);
+        String hot = "select * from hot where id = ?";
+        cache.classify(hot);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.classify("select * from tab where id = " + i);
+            cache.classify(hot);
+            assertTrue(cache.size() <= 10);
+        }
+
+        long misses = cache.getMissCount();
+        cache.classify(hot);
+        assertEquals(misses, cache.getMissCount());
+    }
+
+    /**
+     * 容量小于等于0时不缓存
+     */
+    @Test
+    public void testDisabled() {
+        SqlClassificationCache cache = new SqlClassificationCache(0);
+        assertFalse(cache.isEnabled());
+        assertEquals(SqlType.INSERT, cache.classify("insert into tab values(1)").getSqlType());
+        assertEquals(SqlType.INSERT, cache.classify("insert into tab values(1)").getSqlType());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+}